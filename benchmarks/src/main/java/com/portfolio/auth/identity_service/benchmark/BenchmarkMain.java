@@ -0,0 +1,31 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar: JMH's own command line, but results are always written as
+ * JSON unless -rf/-rff are given, to jmh-results/<label>.json where the label comes from
+ * -Dbench.label (e.g. the release version) or defaults to a timestamp. Compare two runs
+ * with CompareResults.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> argv = new ArrayList<>(List.of(args));
+        if (!argv.contains("-rf") && !argv.contains("-rff") && !argv.contains("-h") && !argv.contains("-l")) {
+            String label = System.getProperty("bench.label",
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+            File output = new File("jmh-results", label + ".json");
+            output.getParentFile().mkdirs();
+            argv.addAll(List.of("-rf", "json", "-rff", output.getPath()));
+        }
+        org.openjdk.jmh.Main.main(argv.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,82 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files (baseline, candidate) benchmark by benchmark.
+ *
+ *   java -cp target/benchmarks.jar com.portfolio.auth.identity_service.benchmark.CompareResults \
+ *        jmh-results/1.3.0.json jmh-results/1.4.0.json [threshold-percent, default 10]
+ *
+ * A benchmark regresses when it got worse by more than the threshold and by more than the
+ * two runs' combined error margins. Exits with status 1 if any did, so CI can gate on it.
+ */
+public final class CompareResults {
+
+    private CompareResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareResults <baseline.json> <candidate.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> candidate = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-80s %14s %14s %9s  %s%n", "benchmark", "baseline", "candidate", "change", "unit");
+        for (Map.Entry<String, Result> entry : new TreeMap<>(candidate).entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-80s %14s %14.3f %9s  %s%n", entry.getKey(), "-", after.score, "new", after.unit);
+                continue;
+            }
+
+            // Positive = worse, whatever the mode (lower time / higher throughput is better)
+            double worse = after.higherIsBetter ? before.score - after.score : after.score - before.score;
+            double changePercent = 100.0 * worse / before.score;
+            boolean regressed = changePercent > threshold && worse > before.error + after.error;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), before.score, after.score,
+                    changePercent, after.unit, regressed ? "  REGRESSION" : "");
+        }
+
+        System.out.printf("%n%d regression(s) above %.1f%%%n", regressions, threshold);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+                    .replace("com.portfolio.auth.identity_service.benchmark.", ""));
+            run.path("params").fields().forEachRemaining(p -> key.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+            key.append(" [").append(run.path("mode").asText()).append(']');
+
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            results.put(key.toString(), new Result(
+                    metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error,
+                    metric.path("scoreUnit").asText(),
+                    "thrpt".equals(run.path("mode").asText())));
+        }
+        return results;
+    }
+
+    private record Result(double score, double error, String unit, boolean higherIsBetter) {
+    }
+}
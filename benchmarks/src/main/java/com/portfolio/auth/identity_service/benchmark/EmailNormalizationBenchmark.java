@@ -0,0 +1,45 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Email normalization as AuthService applies it on every request, by input shape
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailNormalizationBenchmark {
+
+    @Param({"jane.doe@example.com", "Jane.Doe@Example.COM", "  jane.doe@example.com  "})
+    public String email;
+
+    @Benchmark
+    public String normalize() {
+        return EmailNormalizer.normalize(email);
+    }
+
+    // Before EmailNormalizer: default-locale lowercasing (wrong under e.g. tr_TR, and locale-lookup cost)
+    @Benchmark
+    public String legacyDefaultLocale() {
+        return email.trim().toLowerCase();
+    }
+
+    @Benchmark
+    public String lowerOnlyRoot() {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,105 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.portfolio.auth.identity_service.dto.ApiError;
+import com.portfolio.auth.identity_service.dto.UserResponse;
+import com.portfolio.auth.identity_service.dto.UserSnapshot;
+import com.portfolio.auth.identity_service.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Response bodies and the user cache's Redis payload, with a mapper configured like Boot's
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper mapper;
+    private ObjectWriter userResponseWriter;
+    private ObjectReader snapshotReader;
+
+    private UserResponse userResponse;
+    private ApiError apiError;
+    private UserSnapshot snapshot;
+    private String snapshotJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        userResponseWriter = mapper.writerFor(UserResponse.class);
+        snapshotReader = mapper.readerFor(UserSnapshot.class);
+
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 15, 10, 30, 0);
+        userResponse = UserResponse.builder()
+                .id(370282882372993024L)
+                .name("Jane Doe")
+                .email("jane.doe@example.com")
+                .phoneNumber("+15551234567")
+                .role("USER")
+                .enabled(true)
+                .createdAt(createdAt)
+                .build();
+        apiError = ApiError.builder()
+                .status(409)
+                .error("EmailAlreadyExists")
+                .message("Email already registered: jane.doe@example.com")
+                .timestamp(createdAt)
+                .build();
+        snapshot = UserSnapshot.builder()
+                .id(370282882372993024L)
+                .name("Jane Doe")
+                .email("jane.doe@example.com")
+                .role(User.Role.USER)
+                .enabled(true)
+                .createdAt(createdAt)
+                .build();
+        snapshotJson = mapper.writeValueAsString(snapshot);
+    }
+
+    @Benchmark
+    public String userResponse() throws JsonProcessingException {
+        return mapper.writeValueAsString(userResponse);
+    }
+
+    @Benchmark
+    public byte[] userResponsePrebuiltWriter() throws JsonProcessingException {
+        return userResponseWriter.writeValueAsBytes(userResponse);
+    }
+
+    @Benchmark
+    public String apiError() throws JsonProcessingException {
+        return mapper.writeValueAsString(apiError);
+    }
+
+    // UserCache L2 write and read
+    @Benchmark
+    public String snapshotWrite() throws JsonProcessingException {
+        return mapper.writeValueAsString(snapshot);
+    }
+
+    @Benchmark
+    public UserSnapshot snapshotRead() throws JsonProcessingException {
+        return snapshotReader.readValue(snapshotJson);
+    }
+}
@@ -0,0 +1,124 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import com.portfolio.auth.identity_service.config.MailTemplateProperties;
+import com.portfolio.auth.identity_service.service.MailService;
+import com.portfolio.auth.identity_service.service.MailTemplates;
+import com.portfolio.auth.identity_service.service.OtpPurpose;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTP mail rendering: compiled templates (MailTemplates / MailService) against the previous
+ * String.formatted text block + SimpleMailMessage. Run with -prof gc to compare bytes/op;
+ * the compiled render allocates its output twice (exact-size builder + String) and nothing else.
+ *
+ *   legacyText                      the old plain-text body
+ *   compiledBody                    the whole encoded multipart body (text + HTML parts)
+ *   legacyMessage / mimeMessage     whole message as handed to SMTP (the legacy one converted
+ *                                   to a MimeMessage the way JavaMailSenderImpl did it on send)
+ *   legacyWrite / mimeWrite         plus saveChanges() and writing it out, as the SMTP transport does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailTemplateBenchmark {
+
+    private static final String FROM = "identityservice7@gmail.com";
+    private static final String TO = "jane.doe@example.com";
+    private static final String CODE = "482913";
+
+    private JavaMailSenderImpl mailSender;
+    private MailService mailService;
+    private MailTemplates.OtpMail template;
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(8192);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MailTemplateProperties props = new MailTemplateProperties();
+        props.setLocales(List.of(Locale.ENGLISH, Locale.GERMAN));
+        MailTemplates templates = new MailTemplates(props);
+
+        mailSender = new JavaMailSenderImpl();
+        mailService = new MailService(null, templates, mailSender, FROM);   // no dispatcher: build only
+        template = templates.otp(OtpPurpose.REGISTER, Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public String legacyText() {
+        return legacyBody(CODE);
+    }
+
+    @Benchmark
+    public String compiledBody() {
+        return template.render(CODE);
+    }
+
+    @Benchmark
+    public MimeMessage legacyMessage() {
+        SimpleMailMessage simple = new SimpleMailMessage();
+        simple.setFrom(FROM);
+        simple.setTo(TO);
+        simple.setSubject("Your OTP Verification Code");
+        simple.setText(legacyBody(CODE));
+
+        MimeMailMessage mime = new MimeMailMessage(mailSender.createMimeMessage());
+        simple.copyTo(mime);
+        return mime.getMimeMessage();
+    }
+
+    @Benchmark
+    public MimeMessage mimeMessage() {
+        return mailService.buildOtpMessage(TO, CODE, OtpPurpose.REGISTER, Locale.ENGLISH);
+    }
+
+    @Benchmark
+    public int legacyWrite() throws Exception {
+        return write(legacyMessage());
+    }
+
+    @Benchmark
+    public int mimeWrite() throws Exception {
+        return write(mimeMessage());
+    }
+
+    private int write(MimeMessage message) throws Exception {
+        message.saveChanges();
+        sink.reset();
+        message.writeTo(sink);
+        return sink.size();
+    }
+
+    // MailService.buildOtpMessage before the templates
+    private static String legacyBody(String otpCode) {
+        return """
+                Hello,
+
+                Your OTP verification code is: %s
+
+                This code will expire in 10 minutes.
+
+                If you did not request this, you can ignore this email.
+                """.formatted(otpCode);
+    }
+}
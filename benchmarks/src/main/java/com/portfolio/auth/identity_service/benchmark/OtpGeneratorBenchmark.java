@@ -0,0 +1,72 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import com.portfolio.auth.identity_service.service.OtpGenerator;
+import com.portfolio.auth.identity_service.service.PrefilledOtpGenerator;
+import com.portfolio.auth.identity_service.service.SecureRandomOtpGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// OTP code generation: the original per-call SecureRandom + String.format vs OtpGenerator
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OtpGeneratorBenchmark {
+
+    private OtpGenerator shared;
+    private PrefilledOtpGenerator prefilled;
+
+    @Setup
+    public void setUp() {
+        shared = new SecureRandomOtpGenerator();
+        prefilled = new PrefilledOtpGenerator(new SecureRandomOtpGenerator(), 4096, Duration.ofMillis(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefilled.close();
+    }
+
+    @Benchmark
+    public String legacyNewSecureRandomAndFormat() {
+        return String.format("%06d", new SecureRandom().nextInt(1_000_000));
+    }
+
+    @Benchmark
+    public String sharedDrbg() {
+        return shared.nextCode();
+    }
+
+    @Benchmark
+    public String prefilledRing() {
+        return prefilled.nextCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sharedDrbgContended() {
+        return shared.nextCode();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String prefilledRingContended() {
+        return prefilled.nextCode();
+    }
+}
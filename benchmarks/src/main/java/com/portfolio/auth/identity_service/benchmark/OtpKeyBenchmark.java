@@ -0,0 +1,55 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import com.portfolio.auth.identity_service.service.OtpKeys;
+import com.portfolio.auth.identity_service.service.OtpPurpose;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Key building on every OTP create / verify: what OtpServiceImpl does per call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OtpKeyBenchmark {
+
+    private final String rawEmail = "  Jane.Doe@Example.com ";
+    private final String normalizedEmail = EmailNormalizer.normalize(rawEmail);
+    private final OtpPurpose purpose = OtpPurpose.REGISTER;
+
+    // Shipped layout: truncated SHA-256 of the email, one key for all OTP state
+    @Benchmark
+    public String identityKey() {
+        return OtpKeys.identity(normalizedEmail);
+    }
+
+    // verify path: normalize once, then the identity key for the script
+    @Benchmark
+    public String normalizeAndIdentityKey() {
+        return OtpKeys.identity(EmailNormalizer.normalize(rawEmail));
+    }
+
+    // Previous layout: plain concatenation, one key per purpose and state
+    @Benchmark
+    public void legacyBothKeys(Blackhole bh) {
+        bh.consume(OtpKeys.legacyCode(normalizedEmail, purpose));
+        bh.consume(OtpKeys.legacyVerified(normalizedEmail, purpose));
+    }
+
+    @Benchmark
+    public String formatKey() {
+        return String.format("otp:%s:%s", purpose.name(), normalizedEmail);
+    }
+}
@@ -0,0 +1,152 @@
+package com.portfolio.auth.identity_service.benchmark;
+
+import com.portfolio.auth.identity_service.service.OtpKeys;
+import com.portfolio.auth.identity_service.service.OtpPurpose;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The service's Redis access patterns through the same client stack (Lettuce + StringRedisTemplate).
+ *
+ * Starts an embedded Redis on a free port; pass -Dbench.redis.host=... (and .port) to measure
+ * against a real instance instead. Absolute numbers are mostly loopback round trips, so the
+ * interesting comparisons are between patterns (one script call vs GET+DEL, pipelined vs not).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisOpsBenchmark {
+
+    private static final RedisScript<Long> ISSUE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-issue.lua"), Long.class);
+    private static final RedisScript<Long> VERIFY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-verify.lua"), Long.class);
+    private static final RedisScript<Long> LEGACY_VERIFY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-verify-legacy.lua"), Long.class);
+
+    private static final Duration OTP_TTL = Duration.ofMinutes(10);
+
+    private RedisServer embedded;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+
+    private final String identityKey = OtpKeys.identity("jane.doe@example.com");
+    private final String codeKey = OtpKeys.legacyCode("jane.doe@example.com", OtpPurpose.REGISTER);
+    private final String verifiedKey = OtpKeys.legacyVerified("jane.doe@example.com", OtpPurpose.REGISTER);
+    private final String cacheKey = "user:email:jane.doe@example.com";
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        String host = System.getProperty("bench.redis.host");
+        int port;
+        if (host == null) {
+            host = "127.0.0.1";
+            port = freePort();
+            embedded = new RedisServer(port);
+            embedded.start();
+        } else {
+            port = Integer.getInteger("bench.redis.port", 6379);
+        }
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redis = new StringRedisTemplate(connectionFactory);
+
+        redis.opsForValue().set(cacheKey, "{\"id\":1,\"email\":\"jane.doe@example.com\"}", Duration.ofMinutes(10));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        redis.delete(List.of(identityKey, codeKey, verifiedKey, cacheKey));
+        connectionFactory.destroy();
+        if (embedded != null) {
+            embedded.stop();
+        }
+    }
+
+    // UserCache L2 hit
+    @Benchmark
+    public String get() {
+        return redis.opsForValue().get(cacheKey);
+    }
+
+    // Old OTP create: one SET ... EX
+    @Benchmark
+    public void setWithTtl() {
+        redis.opsForValue().set(codeKey, "123456", OTP_TTL);
+    }
+
+    // Same effect as setWithTtl in two commands, pipelined into one round trip
+    @Benchmark
+    public List<Object> setThenExpirePipelined() {
+        return redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection c = (StringRedisConnection) connection;
+            c.set(codeKey, "123456");
+            c.expire(codeKey, OTP_TTL.toSeconds());
+            return null;
+        });
+    }
+
+    @Benchmark
+    public Boolean setThenDelete() {
+        redis.opsForValue().set(codeKey, "123456", OTP_TTL);
+        return redis.delete(codeKey);
+    }
+
+    // OTP create + verify as shipped: one script call each on the per-identity hash
+    @Benchmark
+    public Long issueThenVerifyHash() {
+        redis.execute(ISSUE_SCRIPT, List.of(identityKey), "123456", OtpPurpose.REGISTER.name(),
+                "1700000000", String.valueOf(OTP_TTL.toSeconds()));
+        return redis.execute(VERIFY_SCRIPT, List.of(identityKey), OtpPurpose.REGISTER.name(), "123456", "0", "5");
+    }
+
+    // The previous layout: SET of a string key, then the compare-and-consume script
+    @Benchmark
+    public Long createThenVerifyLegacyScript() {
+        redis.opsForValue().set(codeKey, "123456", OTP_TTL);
+        return redis.execute(LEGACY_VERIFY_SCRIPT, List.of(codeKey, verifiedKey), "123456", "0");
+    }
+
+    // The original verify: GET, compare in Java, DEL (an extra round trip and not atomic)
+    @Benchmark
+    public Boolean createThenGetCompareDelete() {
+        redis.opsForValue().set(codeKey, "123456", OTP_TTL);
+        String stored = redis.opsForValue().get(codeKey);
+        return "123456".equals(stored) && Boolean.TRUE.equals(redis.delete(codeKey));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
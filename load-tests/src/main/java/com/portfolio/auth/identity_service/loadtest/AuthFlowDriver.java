@@ -0,0 +1,165 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop driver of the complete account lifecycle. Each client repeats, with a new user
+ * every time:
+ *
+ *   register -> OTP mail -> verify-otp -> forgot-password -> OTP mail
+ *            -> forgot-password/verify-otp -> reset-password -> login
+ *
+ * The codes are read from the SMTP sink, so mail dispatch is part of the measured path
+ * ("otp-mail" is the time from the request that triggers a mail until it is in the inbox).
+ * A failed step ends that iteration; the next one starts with a fresh user.
+ */
+final class AuthFlowDriver {
+
+    static final List<String> STEPS = List.of(
+            "register", "otp-mail", "verify-otp", "forgot-password", "forgot-password/verify-otp",
+            "reset-password", "login");
+
+    private static final AtomicInteger USER_SEQ = new AtomicInteger();
+    private static final Duration MAIL_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String baseUrl;
+    private final OtpInbox inbox;
+    private final HttpClient client;
+
+    AuthFlowDriver(String baseUrl, OtpInbox inbox) {
+        this.baseUrl = baseUrl;
+        this.inbox = inbox;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+    }
+
+    Result run(int concurrency, Duration warmup, Duration measure) throws InterruptedException {
+        drive(concurrency, warmup, false);
+        long started = System.nanoTime();
+        Map<String, EndpointStats> stats = drive(concurrency, measure, true);
+        return new Result(concurrency, (System.nanoTime() - started) / 1e9, stats);
+    }
+
+    private Map<String, EndpointStats> drive(int concurrency, Duration duration, boolean record)
+            throws InterruptedException {
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        Map<String, EndpointStats> merged = newStats();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            clients.submit(() -> {
+                Map<String, EndpointStats> own = newStats();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        runFlow(own);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (record) {
+                    synchronized (merged) {
+                        own.forEach((step, stats) -> merged.get(step).add(stats));
+                    }
+                }
+            });
+        }
+
+        clients.shutdown();
+        if (!clients.awaitTermination(duration.toMillis() + 120_000, TimeUnit.MILLISECONDS)) {
+            clients.shutdownNow();
+        }
+        return merged;
+    }
+
+    private void runFlow(Map<String, EndpointStats> stats) throws InterruptedException {
+        String email = "flow-" + ProcessHandle.current().pid() + "-" + USER_SEQ.incrementAndGet() + "@example.test";
+
+        // 1) Sign up and confirm the address with the mailed code
+        if (!step(stats, "register", "/api/auth/register",
+                "{\"name\":\"Load Test\",\"email\":\"" + email + "\",\"password\":\"first-password\"}")) {
+            return;
+        }
+        String code = awaitMail(stats, email, 1);
+        if (code == null || !step(stats, "verify-otp", "/api/auth/verify-otp",
+                "{\"email\":\"" + email + "\",\"otpCode\":\"" + code + "\"}")) {
+            return;
+        }
+
+        // 2) Forgot password: mailed code, verify it, set the new password
+        if (!step(stats, "forgot-password", "/api/auth/forgot-Password", "{\"email\":\"" + email + "\"}")) {
+            return;
+        }
+        code = awaitMail(stats, email, 2);
+        if (code == null || !step(stats, "forgot-password/verify-otp", "/api/auth/forgot-password/verify-otp",
+                "{\"email\":\"" + email + "\",\"otpCode\":\"" + code + "\"}")) {
+            return;
+        }
+        if (!step(stats, "reset-password", "/api/auth/forgot-password/reset-password",
+                "{\"email\":\"" + email + "\",\"newPassword\":\"second-password\",\"confirmPassword\":\"second-password\"}")) {
+            return;
+        }
+
+        // 3) The new password works
+        step(stats, "login", "/api/auth/login",
+                "{\"email\":\"" + email + "\",\"password\":\"second-password\"}");
+    }
+
+    private String awaitMail(Map<String, EndpointStats> stats, String email, int nth) throws InterruptedException {
+        long start = System.nanoTime();
+        String code = inbox.awaitCode(email, nth, MAIL_TIMEOUT);
+        stats.get("otp-mail").record(System.nanoTime() - start, code == null ? -1 : 200);
+        return code;
+    }
+
+    private boolean step(Map<String, EndpointStats> stats, String name, String path, String json) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            status = -1;   // connect/read failure or timeout
+        }
+        stats.get(name).record(System.nanoTime() - start, status);
+        return status >= 200 && status < 300;
+    }
+
+    private static Map<String, EndpointStats> newStats() {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        STEPS.forEach(step -> stats.put(step, new EndpointStats(step)));
+        return stats;
+    }
+
+    record Result(int concurrency, double seconds, Map<String, EndpointStats> steps) {
+
+        // Completed flows = successful logins, the last step
+        long completedFlows() {
+            EndpointStats login = steps.get("login");
+            return login.count() - login.errors();
+        }
+
+        List<EndpointStats> ordered() {
+            return new ArrayList<>(steps.values());
+        }
+    }
+}
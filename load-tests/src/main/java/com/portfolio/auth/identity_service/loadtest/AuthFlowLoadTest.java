@@ -0,0 +1,82 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Capacity run of the signup / verify / password-reset flows (see AuthFlowDriver) against
+ * the real service on local stand-ins: embedded Redis, GreenMail as the SMTP server and an
+ * in-memory H2 database in MySQL mode. Nothing external is needed.
+ *
+ * Usage: mvn compile exec:java -Dloadtest.main=com.portfolio.auth.identity_service.loadtest.AuthFlowLoadTest \
+ *            -Dexec.args="[concurrency] [seconds] [warmup-seconds]"          (default 50 60 10)
+ *
+ * System properties:
+ *   loadtest.jdbc-pool-size   Hikari maximum-pool-size (default 20)
+ *   loadtest.virtual-threads  true: run with the "virtual" profile (Java 21)
+ *   loadtest.db.url / .user / .password
+ *                             an existing MySQL instead of H2 (e.g. a local install)
+ *
+ * Reports throughput and p50/p99/p99.9/max latency per step, and how saturated the JDBC,
+ * Tomcat, BCrypt and mail pools were while it ran.
+ */
+public final class AuthFlowLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        Duration measure = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 60);
+        Duration warmup = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        boolean virtual = Boolean.getBoolean("loadtest.virtual-threads");
+
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spring.datasource.hikari.maximum-pool-size", Integer.getInteger("loadtest.jdbc-pool-size", 20));
+        overrides.put("server.tomcat.mbeanregistry.enabled", true);   // tomcat.threads.* gauges
+        String dbUrl = System.getProperty("loadtest.db.url");
+        if (dbUrl != null) {
+            overrides.put("spring.datasource.url", dbUrl);
+            overrides.put("spring.datasource.username", System.getProperty("loadtest.db.user", "root"));
+            overrides.put("spring.datasource.password", System.getProperty("loadtest.db.password", ""));
+            overrides.put("spring.datasource.driver-class-name", "com.mysql.cj.jdbc.Driver");
+            overrides.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+            overrides.put("spring.jpa.hibernate.ddl-auto", "update");
+        }
+
+        AuthFlowDriver.Result result;
+        try (StandIns standIns = new StandIns();
+             ServiceUnderTest service = new ServiceUnderTest("authflow", standIns, virtual, overrides)) {
+
+            AuthFlowDriver driver = new AuthFlowDriver(service.baseUrl(), standIns.otpInbox());
+            System.out.printf("== %d clients, %ds warmup + %ds measured, %s threads, %s%n",
+                    concurrency, warmup.toSeconds(), measure.toSeconds(), virtual ? "virtual" : "platform",
+                    dbUrl == null ? "H2" : dbUrl);
+
+            driver.run(concurrency, warmup, Duration.ZERO);   // JIT, pools, caches
+            try (PoolSampler pools = new PoolSampler(service.bean(MeterRegistry.class))) {
+                result = driver.run(concurrency, Duration.ZERO, measure);
+                pools.close();
+                print(result);
+                pools.print();
+            }
+        }
+        System.exit(0);   // HttpClient / Lettuce leave non-daemon threads behind
+    }
+
+    static void print(AuthFlowDriver.Result result) {
+        System.out.println();
+        System.out.printf("%-28s %8s %9s %9s %9s %9s %9s %9s%n",
+                "step", "count", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (EndpointStats step : result.ordered()) {
+            System.out.printf("%-28s %8d %9.1f %9d %9.2f %9.2f %9.2f %9.2f%n",
+                    step.name, step.count(), step.count() / result.seconds(), step.errors(),
+                    step.percentileMs(50), step.percentileMs(99), step.percentileMs(99.9), step.maxMs());
+            if (step.errors() > 0) {
+                System.out.println("    statuses " + step.statuses);
+            }
+        }
+        System.out.printf("%ncompleted flows: %d (%.1f/s)%n",
+                result.completedFlows(), result.completedFlows() / result.seconds());
+    }
+}
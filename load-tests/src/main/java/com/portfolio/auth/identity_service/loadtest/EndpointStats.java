@@ -0,0 +1,51 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Latency histogram (microseconds, 3 significant digits) and status counts of one endpoint.
+// Each client thread fills its own instance; they are added together at the end.
+final class EndpointStats {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    final String name;
+    final Histogram latencies = new Histogram(MAX_TRACKABLE_MICROS, 3);
+    final Map<Integer, Long> statuses = new TreeMap<>();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long elapsedNanos, int status) {
+        latencies.recordValue(Math.min(MAX_TRACKABLE_MICROS, Math.max(1, elapsedNanos / 1_000)));
+        statuses.merge(status, 1L, Long::sum);
+    }
+
+    void add(EndpointStats other) {
+        latencies.add(other.latencies);
+        other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+    }
+
+    long count() {
+        return latencies.getTotalCount();
+    }
+
+    long errors() {
+        return statuses.entrySet().stream()
+                .filter(e -> e.getKey() < 200 || e.getKey() >= 300)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    double percentileMs(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1_000.0;
+    }
+
+    double maxMs() {
+        return latencies.getMaxValue() / 1_000.0;
+    }
+}
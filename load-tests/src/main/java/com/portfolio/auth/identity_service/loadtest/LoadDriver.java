@@ -0,0 +1,172 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP driver: `concurrency` clients each send the next request as soon as the
+ * previous one returns. Traffic mix per iteration:
+ *   60% verify-otp with a wrong code  (Redis script)
+ *   30% resend-otp                    (user cache / JDBC, Redis, mail queue)
+ *   10% register                      (BCrypt on the hashing pool, JDBC insert)
+ */
+final class LoadDriver {
+
+    private static final AtomicInteger USER_SEQ = new AtomicInteger();
+
+    private final String baseUrl;
+    private final HttpClient client;
+
+    LoadDriver(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+    }
+
+    // Registered accounts the mixed traffic resends / verifies against
+    List<String> seedUsers(int count) {
+        List<String> emails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String email = nextEmail();
+            send("/api/auth/register", registerBody(email));
+            emails.add(email);
+        }
+        return emails;
+    }
+
+    Result run(String label, List<String> emails, int concurrency, Duration warmup, Duration measure)
+            throws InterruptedException {
+
+        drive(emails, concurrency, warmup, null);
+        Recorder recorder = new Recorder();
+        long started = System.nanoTime();
+        drive(emails, concurrency, measure, recorder);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return recorder.toResult(label, concurrency, seconds);
+    }
+
+    private void drive(List<String> emails, int concurrency, Duration duration, Recorder recorder)
+            throws InterruptedException {
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            clients.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] latencies = new long[1024];
+                int recorded = 0;
+                while (System.nanoTime() < deadline) {
+                    String email = emails.get(random.nextInt(emails.size()));
+                    int dice = random.nextInt(100);
+
+                    long start = System.nanoTime();
+                    int status;
+                    if (dice < 60) {
+                        status = send("/api/auth/verify-otp",
+                                "{\"email\":\"" + email + "\",\"otpCode\":\"000000\"}");
+                    } else if (dice < 90) {
+                        status = send("/api/auth/resend-otp", "{\"email\":\"" + email + "\"}");
+                    } else {
+                        status = send("/api/auth/register", registerBody(nextEmail()));
+                    }
+                    if (recorder != null) {
+                        if (recorded == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, recorded * 2);
+                        }
+                        latencies[recorded++] = System.nanoTime() - start;
+                        recorder.status(status);
+                    }
+                }
+                if (recorder != null) {
+                    recorder.merge(latencies, recorded);
+                }
+            });
+        }
+
+        clients.shutdown();
+        if (!clients.awaitTermination(duration.toMillis() + 60_000, TimeUnit.MILLISECONDS)) {
+            clients.shutdownNow();
+        }
+    }
+
+    private int send(String path, String json) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;   // connect/read failure or timeout
+        }
+    }
+
+    private static String nextEmail() {
+        return "load-" + ProcessHandle.current().pid() + "-" + USER_SEQ.incrementAndGet() + "@example.test";
+    }
+
+    private static String registerBody(String email) {
+        return "{\"name\":\"Load Test\",\"email\":\"" + email + "\",\"password\":\"secret-password\"}";
+    }
+
+    record Result(String label, int concurrency, long requests, double throughput,
+                  double p50Ms, double p99Ms, double maxMs, Map<Integer, Long> statusCounts) {
+
+        long count(int status) {
+            return statusCounts.getOrDefault(status, 0L);
+        }
+    }
+
+    // Client threads record into their own buffer and hand it over once, when they finish
+    private static final class Recorder {
+
+        private final List<long[]> latencies = new ArrayList<>();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void status(int status) {
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        synchronized void merge(long[] values, int size) {
+            latencies.add(Arrays.copyOf(values, size));
+        }
+
+        synchronized Result toResult(String label, int concurrency, double seconds) {
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, adder) -> counts.put(status, adder.sum()));
+
+            return new Result(label, concurrency, all.length, all.length / seconds,
+                    percentileMs(all, 0.50), percentileMs(all, 0.99),
+                    all.length == 0 ? 0 : all[all.length - 1] / 1e6, counts);
+        }
+
+        private static double percentileMs(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import com.icegreen.greenmail.imap.ImapHostManager;
+import com.icegreen.greenmail.store.FolderException;
+import com.icegreen.greenmail.store.MailFolder;
+import com.icegreen.greenmail.store.StoredMessage;
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads OTP codes out of the GreenMail sink, the way a user would from their inbox.
+ *
+ * GreenMail creates one mailbox per recipient, so a lookup only touches that user's few
+ * messages, not everything received during the run.
+ */
+final class OtpInbox {
+
+    private static final Pattern CODE = Pattern.compile("code is: (\\d{6})");
+    private static final long POLL_MILLIS = 5;
+
+    private final GreenMail smtp;
+
+    OtpInbox(GreenMail smtp) {
+        this.smtp = smtp;
+    }
+
+    // Waits for the recipient's nth message (1-based) and returns the code in it, or null on timeout
+    String awaitCode(String email, int nth, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        ImapHostManager mailboxes = smtp.getManagers().getImapHostManager();
+
+        while (System.nanoTime() < deadline) {
+            GreenMailUser user = smtp.getUserManager().getUserByEmail(email);
+            if (user != null) {
+                try {
+                    MailFolder inbox = mailboxes.getInbox(user);
+                    List<StoredMessage> messages = inbox.getMessages();
+                    if (messages.size() >= nth) {
+                        Matcher matcher = CODE.matcher(GreenMailUtil.getBody(messages.get(nth - 1).getMimeMessage()));
+                        return matcher.find() ? matcher.group(1) : null;
+                    }
+                } catch (FolderException e) {
+                    // inbox not created yet
+                }
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        return null;
+    }
+}
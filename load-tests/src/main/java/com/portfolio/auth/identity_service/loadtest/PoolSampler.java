@@ -0,0 +1,105 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the service's own pool gauges while the load runs: JDBC connections (Hikari),
+ * Tomcat request threads, the BCrypt hashing pool and the mail queue. A pool whose active
+ * count sits at its maximum while requests queue for it ("pending", "queue") is the
+ * bottleneck at that load.
+ */
+final class PoolSampler implements AutoCloseable {
+
+    private static final long INTERVAL_MILLIS = 100;
+
+    // label -> meter name; gauges with several tag sets (e.g. one per pool) are summed
+    private static final Map<String, String> GAUGES = new LinkedHashMap<>();
+
+    static {
+        GAUGES.put("jdbc active", "hikaricp.connections.active");
+        GAUGES.put("jdbc pending", "hikaricp.connections.pending");
+        GAUGES.put("jdbc max", "hikaricp.connections.max");
+        GAUGES.put("tomcat busy", "tomcat.threads.busy");
+        GAUGES.put("tomcat max", "tomcat.threads.config.max");
+        GAUGES.put("bcrypt active", "password.hashing.active");
+        GAUGES.put("bcrypt queue", "password.hashing.queue.depth");
+        GAUGES.put("mail queue", "mail.dispatch.queue.depth");
+    }
+
+    private final MeterRegistry registry;
+    private final Map<String, double[]> samples = new LinkedHashMap<>();   // label -> {sum, max, count}
+    private final Thread sampler;
+    private volatile boolean running = true;
+
+    PoolSampler(MeterRegistry registry) {
+        this.registry = registry;
+        GAUGES.keySet().forEach(label -> samples.put(label, new double[3]));
+        this.sampler = new Thread(this::loop, "pool-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    private void loop() {
+        while (running) {
+            synchronized (samples) {
+                GAUGES.forEach((label, meter) -> {
+                    double value = registry.find(meter).gauges().stream().mapToDouble(Gauge::value).sum();
+                    double[] acc = samples.get(label);
+                    acc[0] += value;
+                    acc[1] = Math.max(acc[1], value);
+                    acc[2]++;
+                });
+            }
+            try {
+                Thread.sleep(INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        sampler.join();
+    }
+
+    void print() {
+        System.out.println();
+        System.out.printf("%-16s %10s %10s%n", "pool", "avg", "max");
+        synchronized (samples) {
+            samples.forEach((label, acc) ->
+                    System.out.printf("%-16s %10.1f %10.0f%n", label, acc[2] == 0 ? 0 : acc[0] / acc[2], acc[1]));
+        }
+
+        double jdbcMax = samples.get("jdbc max")[1];
+        double tomcatMax = samples.get("tomcat max")[1];
+        if (jdbcMax > 0) {
+            System.out.printf("jdbc saturation: avg %.0f%%, peak %.0f%% of %d connections%n",
+                    100 * average("jdbc active") / jdbcMax, 100 * samples.get("jdbc active")[1] / jdbcMax, (int) jdbcMax);
+        }
+        if (tomcatMax > 0) {
+            System.out.printf("tomcat saturation: avg %.0f%%, peak %.0f%% of %d threads%n",
+                    100 * average("tomcat busy") / tomcatMax, 100 * samples.get("tomcat busy")[1] / tomcatMax, (int) tomcatMax);
+        }
+
+        Timer acquire = registry.find("hikaricp.connections.acquire").timer();
+        if (acquire != null) {
+            System.out.printf("jdbc acquire: mean %.2f ms, max %.2f ms, %d timeouts%n",
+                    acquire.mean(TimeUnit.MILLISECONDS), acquire.max(TimeUnit.MILLISECONDS),
+                    (long) registry.find("hikaricp.connections.timeout").counters().stream()
+                            .mapToDouble(c -> c.count()).sum());
+        }
+    }
+
+    private double average(String label) {
+        double[] acc = samples.get(label);
+        return acc[2] == 0 ? 0 : acc[0] / acc[2];
+    }
+}
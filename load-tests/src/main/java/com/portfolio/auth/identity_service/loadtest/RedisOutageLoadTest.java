@@ -0,0 +1,65 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import com.portfolio.auth.identity_service.observability.OtpStoreHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The signup / reset flows (see AuthFlowDriver) through a simulated Redis outage: a baseline
+ * phase, a phase with the embedded Redis stopped, and a phase after it is started again
+ * (empty). Shows that the OTP steps fail fast or fall back instead of waiting on Redis, and
+ * how quickly the circuit breaker closes again.
+ *
+ * Usage: mvn compile exec:java -Dloadtest.main=com.portfolio.auth.identity_service.loadtest.RedisOutageLoadTest \
+ *            -Dexec.args="[concurrency] [seconds-per-phase]"          (default 20 20)
+ *
+ * System properties:
+ *   loadtest.local-fallback   false: no local OTP store, OTP steps answer 503 during the outage
+ *                             (default true; one in-process node, so "sticky" trivially holds)
+ *
+ * Reports p50/p99/max and statuses per step and phase, plus the otpStore health after each phase.
+ * Outside the OTP path, reset-password (it revokes the user's tokens, fail closed) and login
+ * (its session) still need Redis, so those fail for the whole outage either way.
+ */
+public final class RedisOutageLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Duration phase = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 20);
+        boolean localFallback = Boolean.parseBoolean(System.getProperty("loadtest.local-fallback", "true"));
+
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("otp.resilience.local-fallback.enabled", localFallback);
+        overrides.put("rate-limit.enabled", false);   // one client IP for everything
+
+        try (StandIns standIns = new StandIns();
+             ServiceUnderTest service = new ServiceUnderTest("outage", standIns, false, overrides)) {
+
+            AuthFlowDriver driver = new AuthFlowDriver(service.baseUrl(), standIns.otpInbox());
+            OtpStoreHealthIndicator health = service.bean(OtpStoreHealthIndicator.class);
+            System.out.printf("== %d clients, %ds per phase, local fallback %s%n",
+                    concurrency, phase.toSeconds(), localFallback ? "on" : "off");
+
+            driver.run(concurrency, Duration.ofSeconds(5), Duration.ZERO);   // JIT, pools, caches
+
+            report("baseline", driver.run(concurrency, Duration.ZERO, phase), health);
+
+            standIns.stopRedis();
+            report("redis down", driver.run(concurrency, Duration.ZERO, phase), health);
+
+            standIns.startRedis();
+            report("redis back", driver.run(concurrency, Duration.ZERO, phase), health);
+        }
+        System.exit(0);   // HttpClient / Lettuce leave non-daemon threads behind
+    }
+
+    private static void report(String phase, AuthFlowDriver.Result result, OtpStoreHealthIndicator indicator) {
+        System.out.printf("%n-- %s%n", phase);
+        AuthFlowLoadTest.print(result);
+        Health health = indicator.health();
+        System.out.printf("otpStore health: %s %s%n", health.getStatus(), health.getDetails());
+    }
+}
@@ -0,0 +1,67 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import com.portfolio.auth.identity_service.Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Boots the real Application in this JVM, wired to the stand-ins instead of MySQL/Redis/Gmail
+final class ServiceUnderTest implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    ServiceUnderTest(String runName, StandIns standIns, boolean virtualThreads, Map<String, Object> overrides) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("server.port", 0);
+        props.put("management.server.port", 0);
+        props.put("spring.datasource.url",
+                "jdbc:h2:mem:" + runName + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        props.put("spring.datasource.username", "sa");
+        props.put("spring.datasource.password", "");
+        props.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        props.put("spring.datasource.hikari.maximum-pool-size", 20);
+        props.put("spring.jpa.hibernate.ddl-auto", "create");
+        props.put("spring.jpa.show-sql", false);
+        props.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        props.put("spring.data.redis.host", "127.0.0.1");
+        props.put("spring.data.redis.port", standIns.redisPort());
+        props.put("spring.mail.host", "127.0.0.1");
+        props.put("spring.mail.port", standIns.smtpPort());
+        props.put("spring.mail.username", StandIns.SMTP_USER);
+        props.put("spring.mail.password", StandIns.SMTP_PASSWORD);
+        props.put("spring.mail.properties.mail.smtp.starttls.enable", false);
+        props.put("spring.threads.virtual.enabled", virtualThreads);
+        props.put("rate-limit.enabled", false);                       // we are the abuser here
+        props.put("security.password-hashing.calibration.enabled", false);
+        props.put("logging.level.root", "WARN");
+        props.put("logging.level.com.portfolio.auth", "WARN");
+        props.putAll(overrides);
+
+        // As command-line args: they must win over application.yaml (and the virtual profile)
+        String[] args = props.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class);
+        if (virtualThreads) {
+            builder.profiles("virtual");
+        }
+        this.context = builder.run(args);
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
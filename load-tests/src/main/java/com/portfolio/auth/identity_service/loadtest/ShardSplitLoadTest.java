@@ -0,0 +1,184 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import com.portfolio.auth.identity_service.dto.UserPage;
+import com.portfolio.auth.identity_service.dto.UserSummary;
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import com.portfolio.auth.identity_service.service.ShardSplit;
+import com.portfolio.auth.identity_service.service.UserAdminService;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import com.portfolio.auth.identity_service.util.ShardRing;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Online shard split under load, on four in-memory H2 databases (MySQL mode) that outlive the
+ * service instances of one JVM. Each phase boots the service with the config of one rollout
+ * step (see ShardingProperties) and runs the signup / reset flows (AuthFlowDriver) against it:
+ *
+ *   sharded   users on shards 0-2
+ *   copy      shadow ring 0-3: writes dual-written, backfill copies the rest to shard 3
+ *   cutover   ring 0-3, shadow 0-2: reads from the new owners
+ *   cleanup   ring 0-3: rows a shard no longer owns are deleted
+ *
+ * Usage: mvn compile exec:java -Dloadtest.main=com.portfolio.auth.identity_service.loadtest.ShardSplitLoadTest \
+ *            -Dexec.args="[concurrency] [seconds-per-phase]"          (default 10 15)
+ *
+ * After every phase it checks the databases directly (every user on their owner shard, rows
+ * per shard, copies still to clean up) and pages through the admin listing in small pages,
+ * which must return each user exactly once in id order. Users created before the split keep
+ * their ids, so those that moved no longer sit on the shard their id names.
+ */
+public final class ShardSplitLoadTest {
+
+    private static final List<Integer> OLD_RING = List.of(0, 1, 2);
+    private static final List<Integer> NEW_RING = List.of(0, 1, 2, 3);
+    private static final int VIRTUAL_NODES = 160;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        Duration phase = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 15);
+
+        try (StandIns standIns = new StandIns()) {
+            phase("sharded", standIns, concurrency, phase, OLD_RING, List.of(), false);
+            phase("copy", standIns, concurrency, phase, OLD_RING, NEW_RING, false);
+            phase("cutover", standIns, concurrency, phase, NEW_RING, OLD_RING, false);
+            phase("cleanup", standIns, concurrency, phase, NEW_RING, List.of(), true);
+        }
+        System.exit(0);   // HttpClient / Lettuce leave non-daemon threads behind
+    }
+
+    private static void phase(String name, StandIns standIns, int concurrency, Duration length,
+                              List<Integer> members, List<Integer> shadow, boolean cleanup) throws Exception {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("sharding.enabled", true);
+        overrides.put("sharding.initialize-schema", true);
+        for (int shard = 1; shard < NEW_RING.size(); shard++) {
+            overrides.put("sharding.shards[" + (shard - 1) + "].id", shard);
+            overrides.put("sharding.shards[" + (shard - 1) + "].url", url(shard));
+        }
+        overrides.put("sharding.members", join(members));
+        overrides.put("sharding.shadow-members", join(shadow));
+        overrides.put("sharding.split.cleanup", cleanup);
+        overrides.put("sharding.split.pause", "0ms");
+        overrides.put("spring.datasource.url", url(0));
+        overrides.put("spring.jpa.hibernate.ddl-auto", "update");   // the databases carry over between phases
+
+        try (ServiceUnderTest service = new ServiceUnderTest("split", standIns, false, overrides)) {
+            AuthFlowDriver driver = new AuthFlowDriver(service.baseUrl(), standIns.otpInbox());
+            System.out.printf("%n== %s: ring %s, shadow %s%s, %d clients, %ds%n",
+                    name, members, shadow, cleanup ? ", cleanup" : "", concurrency, length.toSeconds());
+
+            AuthFlowLoadTest.print(driver.run(concurrency, Duration.ZERO, length));
+
+            if (!shadow.isEmpty()) {
+                ShardSplit split = service.bean(ShardSplit.class);
+                long waitUntil = System.nanoTime() + Duration.ofMinutes(2).toNanos();
+                while (!split.isBackfillComplete() && System.nanoTime() < waitUntil) {
+                    Thread.sleep(200);
+                }
+                System.out.println("backfill complete: " + split.isBackfillComplete());
+            } else if (cleanup) {
+                Thread.sleep(2_000);   // cleanup runs in the background from startup
+            }
+
+            verifyListing(service.bean(UserAdminService.class), new ShardRing(members, VIRTUAL_NODES));
+        }
+        // After shutdown: queued copies and last logins are written by then
+        verifyPlacement(members, shadow);
+    }
+
+    // Every user on their owner, and on the shadow owner too while a split is running
+    private static void verifyPlacement(List<Integer> members, List<Integer> shadow) throws SQLException {
+        ShardRing ring = new ShardRing(members, VIRTUAL_NODES);
+        ShardRing shadowRing = shadow.isEmpty() ? null : new ShardRing(shadow, VIRTUAL_NODES);
+
+        Map<Integer, Set<String>> emailsByShard = new HashMap<>();
+        Set<String> everyone = new HashSet<>();
+        for (int shard : NEW_RING) {
+            Set<String> emails = emails(shard);
+            emailsByShard.put(shard, emails);
+            everyone.addAll(emails);
+        }
+
+        int missing = 0;
+        int missingShadow = 0;
+        int misplaced = 0;
+        for (String email : everyone) {
+            if (!emailsByShard.get(ring.shardFor(email)).contains(email)) {
+                missing++;
+            }
+            if (shadowRing != null && !emailsByShard.get(shadowRing.shardFor(email)).contains(email)) {
+                missingShadow++;
+            }
+        }
+        for (int shard : NEW_RING) {
+            for (String email : emailsByShard.get(shard)) {
+                boolean owner = ring.shardFor(email) == shard;
+                boolean shadowOwner = shadowRing != null && shadowRing.shardFor(email) == shard;
+                if (!owner && !shadowOwner) {
+                    misplaced++;
+                }
+            }
+        }
+
+        System.out.printf("users %d, rows per shard %s%n", everyone.size(),
+                NEW_RING.stream().map(shard -> shard + "=" + emailsByShard.get(shard).size()).toList());
+        System.out.printf("missing on owner %d, missing on shadow owner %d, copies left to clean up %d%n",
+                missing, missingShadow, misplaced);
+    }
+
+    // Pages of 7 through the scatter-gather listing: ascending ids, nobody twice
+    private static void verifyListing(UserAdminService admin, ShardRing ring) {
+        Set<Long> seen = new HashSet<>();
+        long last = Long.MIN_VALUE;
+        boolean ordered = true;
+        int onHomeShard = 0;
+        int pages = 0;
+        Long after = null;
+        do {
+            UserPage page = admin.list(null, null, after, 7);
+            for (UserSummary user : page.getItems()) {
+                ordered &= user.getId() > last;
+                last = user.getId();
+                seen.add(user.getId());
+                if (TimeOrderedIds.shardOf(user.getId()) == ring.shardFor(EmailNormalizer.normalize(user.getEmail()))) {
+                    onHomeShard++;
+                }
+            }
+            after = page.getNextAfter();
+            pages++;
+        } while (after != null);
+        System.out.printf("admin listing: %d users in %d pages, ascending %s, %d on the shard in their id%n",
+                seen.size(), pages, ordered, onHomeShard);
+    }
+
+    private static Set<String> emails(int shard) throws SQLException {
+        Set<String> emails = new HashSet<>();
+        try (Connection connection = DriverManager.getConnection(url(shard), "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT email_normalized FROM users")) {
+            while (rs.next()) {
+                emails.add(rs.getString(1));
+            }
+        }
+        return emails;
+    }
+
+    private static String url(int shard) {
+        return "jdbc:h2:mem:split-" + shard + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    private static String join(List<Integer> shards) {
+        return String.join(",", shards.stream().map(String::valueOf).toList());
+    }
+}
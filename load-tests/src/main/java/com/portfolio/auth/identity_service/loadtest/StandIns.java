@@ -0,0 +1,79 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+// Local replacements for the service's external dependencies: embedded Redis and a GreenMail SMTP server.
+// MySQL is replaced by an in-memory H2 database per run (see ServiceUnderTest).
+final class StandIns implements AutoCloseable {
+
+    static final String SMTP_USER = "loadtest@localhost";
+    static final String SMTP_PASSWORD = "loadtest";
+
+    private final int redisPort = freePort();
+    private final int smtpPort = freePort();
+    private RedisServer redis;
+    private final GreenMail smtp;
+
+    StandIns() throws IOException {
+        this.redis = new RedisServer(redisPort);
+        this.smtp = new GreenMail(new ServerSetup(smtpPort, "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+        smtp.setUser(SMTP_USER, SMTP_PASSWORD);
+        redis.start();
+        smtp.start();
+    }
+
+    int redisPort() {
+        return redisPort;
+    }
+
+    // Simulated outage: the port refuses connections until startRedis(); data is lost
+    void stopRedis() throws IOException {
+        redis.stop();
+    }
+
+    void startRedis() throws IOException {
+        redis = new RedisServer(redisPort);
+        redis.start();
+    }
+
+    int smtpPort() {
+        return smtpPort;
+    }
+
+    OtpInbox otpInbox() {
+        return new OtpInbox(smtp);
+    }
+
+    int receivedMails() {
+        return smtp.getReceivedMessages().length;
+    }
+
+    // Between runs, so one mode doesn't start with the other's keys and mailbox
+    void reset() {
+        try {
+            smtp.purgeEmailFromAllMailboxes();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not purge GreenMail", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        smtp.stop();
+        redis.stop();
+    }
+
+    static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.portfolio.auth.identity_service.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Platform threads vs virtual threads under the same closed-loop load.
+ *
+ * Each mode gets a fresh application context and H2 database, with the same stand-ins,
+ * seed data and Hikari pool size; only spring.threads.virtual.enabled (plus the
+ * "virtual" profile's limits) differs. Virtual mode needs a Java 21 runtime and is
+ * skipped otherwise.
+ *
+ * Usage: mvn compile exec:java -Dexec.args="[concurrency] [seconds]"   (default 200 30)
+ */
+public final class ThreadModeComparison {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        Duration measure = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 30);
+        Duration warmup = Duration.ofSeconds(10);
+
+        List<LoadDriver.Result> results = new ArrayList<>();
+
+        try (StandIns standIns = new StandIns()) {
+            results.add(runMode("platform", false, standIns, concurrency, warmup, measure));
+
+            if (Runtime.version().feature() >= 21) {
+                standIns.reset();
+                results.add(runMode("virtual", true, standIns, concurrency, warmup, measure));
+            } else {
+                System.out.println("Java " + Runtime.version().feature() + " runtime: virtual mode skipped (needs 21+)");
+            }
+        }
+
+        print(results);
+        System.exit(0);   // HttpClient / Lettuce leave non-daemon threads behind
+    }
+
+    private static LoadDriver.Result runMode(String mode, boolean virtual, StandIns standIns,
+                                             int concurrency, Duration warmup, Duration measure)
+            throws InterruptedException {
+
+        System.out.println("== " + mode + " threads: starting service");
+        try (ServiceUnderTest service = new ServiceUnderTest("loadtest_" + mode, standIns, virtual, Map.of())) {
+            LoadDriver driver = new LoadDriver(service.baseUrl());
+            List<String> users = driver.seedUsers(200);
+
+            System.out.printf("== %s threads: %d clients, %ds warmup + %ds measured%n",
+                    mode, concurrency, warmup.toSeconds(), measure.toSeconds());
+            return driver.run(mode, users, concurrency, warmup, measure);
+        }
+    }
+
+    private static void print(List<LoadDriver.Result> results) {
+        System.out.println();
+        System.out.printf("%-10s %8s %10s %10s %10s %10s %8s %8s %8s%n",
+                "mode", "clients", "req/s", "p50 ms", "p99 ms", "max ms", "2xx/4xx", "503", "errors");
+        for (LoadDriver.Result r : results) {
+            long ok = r.statusCounts().entrySet().stream()
+                    .filter(e -> e.getKey() >= 200 && e.getKey() < 500)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            long errors = r.requests() - ok - r.count(503);
+            System.out.printf("%-10s %8d %10.1f %10.2f %10.2f %10.2f %8d %8d %8d%n",
+                    r.label(), r.concurrency(), r.throughput(), r.p50Ms(), r.p99Ms(), r.maxMs(),
+                    ok, r.count(503), errors);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "admin-users")
+public class AdminUserQueryProperties {
+
+    // Upper bound for one keyset page of the admin listing
+    private int maxPageSize = 200;
+
+    // Export cursor fetch size, rows per round trip. Only for drivers that take a positive one
+    // (H2, PostgreSQL); on MySQL Connector/J the export streams rows one at a time instead
+    // (Integer.MIN_VALUE), chosen per database from the driver
+    private int exportFetchSize = 1000;
+
+    // Export output is flushed to the client every this many rows
+    private int exportFlushEvery = 1000;
+}
@@ -0,0 +1,54 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Measures BCrypt on the current host once at startup and picks the highest cost within budget
+@Slf4j
+final class BcryptCostCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-Sample-Passw0rd!";
+    private static final int SAMPLES = 3;
+
+    private BcryptCostCalibrator() {
+    }
+
+    static int calibrate(PasswordHashingProperties.Calibration calibration) {
+        if (!calibration.isEnabled()) {
+            return calibration.getDefaultCost();
+        }
+
+        long budgetNanos = calibration.getLatencyBudget().toNanos();
+        int chosen = calibration.getMinCost();
+
+        // Warm up so the first measurement isn't dominated by class loading / JIT
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(4));
+
+        for (int cost = calibration.getMinCost(); cost <= calibration.getMaxCost(); cost++) {
+            long nanos = medianHashNanos(cost);
+            log.debug("BCrypt cost {} takes {} ms", cost, Duration.ofNanos(nanos).toMillis());
+
+            if (nanos > budgetNanos) {
+                break;   // every extra cost step doubles the time, no point going further
+            }
+            chosen = cost;
+        }
+
+        log.info("Using BCrypt cost {} (latency budget {} ms)", chosen, calibration.getLatencyBudget().toMillis());
+        return chosen;
+    }
+
+    private static long medianHashNanos(int cost) {
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(cost));
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
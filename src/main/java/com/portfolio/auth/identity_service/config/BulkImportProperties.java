@@ -0,0 +1,20 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "bulk-import")
+public class BulkImportProperties {
+
+    // Rows per dedupe query / JDBC batch / checkpoint
+    private int chunkSize = 500;
+
+    // Per-row errors kept per job (oldest are trimmed)
+    private int maxErrorsKept = 1000;
+
+    // How long job progress stays queryable/resumable
+    private Duration jobTtl = Duration.ofDays(7);
+}
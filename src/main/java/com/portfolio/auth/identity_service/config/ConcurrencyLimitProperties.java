@@ -0,0 +1,23 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    // Off by default: on platform threads Tomcat's maxThreads is already the limit
+    private boolean enabled = false;
+
+    // Requests allowed to run at once; size it to what the Hikari pool + hashing pool can serve
+    private int maxInFlight = 200;
+
+    // How long a request may wait for a slot before it is shed with a 503
+    private Duration acquireTimeout = Duration.ofMillis(100);
+
+    // Retry-After hint sent with the 503
+    private int retryAfterSeconds = 1;
+}
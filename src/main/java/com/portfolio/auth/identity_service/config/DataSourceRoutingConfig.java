@@ -0,0 +1,82 @@
+package com.portfolio.auth.identity_service.config;
+
+import com.portfolio.auth.identity_service.datasource.ReadWriteRoutingDataSource;
+import com.portfolio.auth.identity_service.datasource.ReplicaHealthChecker;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Primary + read replicas. Replaces Boot's single DataSource only when
+ * datasource-routing.enabled=true; spring.datasource(.hikari) keeps configuring the primary.
+ * Stands down when sharding is on (ShardingConfig rejects that combination).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource-routing", name = "enabled", havingValue = "true")
+@ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    // Not @Primary: only reachable through the lazy proxy below; close() shuts the replica pools
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                       DataSourceProperties properties,
+                                                       DataSourceRoutingProperties routing,
+                                                       TaskScheduler taskScheduler,
+                                                       MeterRegistry registry) {
+        List<DataSource> replicas = new ArrayList<>(routing.getReplicas().size());
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            replicas.add(replicaPool(i, routing.getReplicas().get(i), properties, routing));
+        }
+
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primaryDataSource, replicas, registry);
+        taskScheduler.scheduleWithFixedDelay(
+                new ReplicaHealthChecker(dataSource, routing.getHealthCheckTimeout()),
+                Instant.now().plus(routing.getHealthCheckInterval()),
+                routing.getHealthCheckInterval());
+        return dataSource;
+    }
+
+    // What JPA, JdbcTemplate and the transaction manager see
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    // Lazily started: a replica that is down at boot just stays out of rotation
+    private static HikariDataSource replicaPool(int index,
+                                                DataSourceRoutingProperties.Replica replica,
+                                                DataSourceProperties primary,
+                                                DataSourceRoutingProperties routing) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("replica-" + index);
+        pool.setJdbcUrl(replica.getUrl());
+        pool.setUsername(replica.getUsername() != null ? replica.getUsername() : primary.determineUsername());
+        pool.setPassword(replica.getPassword() != null ? replica.getPassword() : primary.determinePassword());
+        pool.setDriverClassName(primary.determineDriverClassName());
+        pool.setMaximumPoolSize(routing.getReplicaPoolSize());
+        pool.setConnectionTimeout(Math.max(250, routing.getHealthCheckTimeout().toMillis()));
+        pool.setReadOnly(true);
+        return pool;
+    }
+}
@@ -0,0 +1,36 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "datasource-routing")
+public class DataSourceRoutingProperties {
+
+    // Off: the single spring.datasource serves everything, as before
+    private boolean enabled = false;
+
+    // Read replicas; spring.datasource stays the primary. Username/password default to the primary's
+    private List<Replica> replicas = new ArrayList<>();
+
+    private int replicaPoolSize = 10;
+
+    // Replicas are probed this often; a failed probe or connection takes one out until it passes again
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+    private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+    // After a write to a user, that user's reads go to the primary for this long (> expected replica lag)
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    private String readYourWritesKeyPrefix = "ryw:user:";
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,28 @@
+package com.portfolio.auth.identity_service.config;
+
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class IdGeneratorConfig {
+
+    private final ShardingProperties sharding;
+
+    // Must be unique per running instance, e.g. the pod ordinal
+    @Value("${identity.id.node-id:0}")
+    private long nodeId;
+
+    @PostConstruct
+    void configureIds() {
+        // Shard bits only once sharding is on, so ids issued before read as shard 0
+        int shardBits = sharding.isEnabled() ? sharding.getIdShardBits() : 0;
+        TimeOrderedIds.configure(nodeId, shardBits);
+        log.info("Time-ordered id generator using node id {}, {} shard bits", nodeId, shardBits);
+    }
+}
@@ -0,0 +1,21 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "jwt")
+public class JwtProperties {
+
+    // HS256 key material, at least 32 bytes
+    private String secret;
+
+    private long accessTokenExpirationMs = 900_000;
+
+    private long refreshTokenExpirationMs = 2_592_000_000L;
+
+    private String issuer = "identity-service";
+
+    // Tolerated clock difference between nodes when checking exp / iat
+    private long clockSkewSeconds = 30;
+}
@@ -0,0 +1,21 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "last-login")
+public class LastLoginProperties {
+
+    // Pending last-login times are written to the DB this often (and on shutdown)
+    private Duration flushInterval = Duration.ofSeconds(2);
+
+    // Users per UPDATE statement
+    private int batchSize = 500;
+
+    // Bound on users waiting for a flush; reaching it triggers an early flush,
+    // and new users are dropped (counted) while it is still full
+    private int maxPending = 100_000;
+}
@@ -0,0 +1,40 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "mail.dispatch")
+public class MailDispatchProperties {
+
+    // Number of worker threads draining the queue
+    private int workers = 2;
+
+    // Max concurrent SMTP sessions across workers and CALLER_RUNS senders
+    private int maxConcurrentSends = 4;
+
+    // Max messages waiting for a worker before the rejection policy kicks in
+    private int queueCapacity = 1000;
+
+    // Max messages sent over a single SMTP connection
+    private int batchSize = 20;
+
+    // How long a worker waits for more messages before sending a partial batch
+    private Duration batchLinger = Duration.ofMillis(50);
+
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+
+    // Only used by the BLOCK policy
+    private Duration offerTimeout = Duration.ofMillis(200);
+
+    // How long shutdown waits for the queue to drain
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    public enum RejectionPolicy {
+        DROP,          // log + count, message is lost
+        CALLER_RUNS,   // send on the calling thread (natural backpressure)
+        BLOCK          // wait up to offerTimeout for space, then drop
+    }
+}
@@ -0,0 +1,20 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+import java.util.Locale;
+
+@Data
+@ConfigurationProperties(prefix = "mail.templates")
+public class MailTemplateProperties {
+
+    // Classpath folder with otp-<purpose>_<language>.txt / .html
+    private String location = "mail-templates/";
+
+    // Used for any language without its own templates; must exist for every purpose
+    private Locale defaultLocale = Locale.ENGLISH;
+
+    private List<Locale> locales = List.of(Locale.ENGLISH);
+}
@@ -0,0 +1,22 @@
+package com.portfolio.auth.identity_service.config;
+
+import com.portfolio.auth.identity_service.service.OtpGenerator;
+import com.portfolio.auth.identity_service.service.PrefilledOtpGenerator;
+import com.portfolio.auth.identity_service.service.SecureRandomOtpGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OtpGeneratorConfig {
+
+    @Bean
+    public OtpGenerator otpGenerator(OtpGeneratorProperties props) {
+        OtpGenerator generator = new SecureRandomOtpGenerator();
+
+        OtpGeneratorProperties.Pool pool = props.getPool();
+        if (pool.isEnabled()) {
+            return new PrefilledOtpGenerator(generator, pool.getCapacity(), pool.getRefillInterval());
+        }
+        return generator;
+    }
+}
@@ -0,0 +1,21 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "otp.generator")
+public class OtpGeneratorProperties {
+
+    private Pool pool = new Pool();
+
+    @Data
+    public static class Pool {
+        // Pre-generate codes on a background thread so the request path only does a slot swap
+        private boolean enabled = false;
+        private int capacity = 1024;
+        private Duration refillInterval = Duration.ofMillis(100);
+    }
+}
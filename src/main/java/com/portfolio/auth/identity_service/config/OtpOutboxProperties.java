@@ -0,0 +1,30 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "otp.outbox")
+public class OtpOutboxProperties {
+
+    private String streamKey = "otp:outbox";
+    private String deadLetterKey = "otp:outbox:dlq";
+    private String consumerGroup = "otp-mailers";
+
+    // Approximate MAXLEN applied on every XADD so the stream can't grow unbounded
+    private long maxLength = 100_000;
+
+    private int workers = 1;
+    private int batchSize = 20;
+    private Duration blockTimeout = Duration.ofSeconds(2);
+
+    // Entries pending longer than this are re-claimed by any consumer and retried
+    private Duration claimIdle = Duration.ofSeconds(60);
+    private Duration claimInterval = Duration.ofSeconds(15);
+    private int maxAttempts = 5;
+
+    // Events older than the OTP TTL are acked without sending, the code is already expired
+    private Duration maxEventAge = Duration.ofMinutes(10);
+}
@@ -0,0 +1,40 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "otp.resilience")
+public class OtpResilienceProperties {
+
+    // Deadline of every OTP / rate-limit Redis command (own connection, the shared one keeps its timeout)
+    private Duration commandTimeout = Duration.ofMillis(250);
+
+    private Breaker breaker = new Breaker();
+    private LocalFallback localFallback = new LocalFallback();
+
+    @Data
+    public static class Breaker {
+        // Opens when this share of the last slidingWindowSize calls failed or were slow
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDuration = Duration.ofMillis(150);
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+
+        // Open: calls fail at once for this long, then a few probe calls decide
+        private Duration waitInOpenState = Duration.ofSeconds(5);
+        private int permittedCallsInHalfOpenState = 3;
+    }
+
+    @Data
+    public static class LocalFallback {
+        // Keep OTPs in this node's memory while Redis is unavailable. Only sound behind a load
+        // balancer with sticky sessions: the verify must reach the node that issued the code.
+        private boolean enabled = false;
+        private int maxEntries = 50_000;
+        private Duration tick = Duration.ofSeconds(1);
+    }
+}
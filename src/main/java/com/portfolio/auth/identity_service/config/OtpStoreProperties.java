@@ -0,0 +1,20 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "otp.store")
+public class OtpStoreProperties {
+
+    // Wrong guesses after which the current code is void and a new one has to be requested
+    private int maxAttempts = 5;
+
+    // Also accept codes / verified flags in the old per-purpose string keys, and keep writing
+    // them for nodes still on the previous version. Turn off one OTP TTL after the last of
+    // those nodes is gone.
+    private boolean legacyFallback = true;
+
+    // Keys per purpose whose MEMORY USAGE is sampled for the keyspace report
+    private int reportSampleSize = 1000;
+}
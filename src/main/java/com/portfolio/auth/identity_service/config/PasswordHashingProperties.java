@@ -0,0 +1,36 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "security.password-hashing")
+public class PasswordHashingProperties {
+
+    // Hashing threads; 0 = one per available core (BCrypt is pure CPU work)
+    private int poolSize = 0;
+
+    // Hash jobs allowed to wait for a thread; beyond that requests are shed with a 503
+    private int queueCapacity = 64;
+
+    // Max time a request waits for its hash (queueing + hashing)
+    private Duration timeout = Duration.ofSeconds(5);
+
+    // Retry-After hint sent with the 503
+    private int retryAfterSeconds = 2;
+
+    private Calibration calibration = new Calibration();
+
+    @Data
+    public static class Calibration {
+        // Pick the highest BCrypt cost whose hash time on this host fits the budget
+        private boolean enabled = true;
+        private Duration latencyBudget = Duration.ofMillis(250);
+        private int minCost = 10;
+        private int maxCost = 14;
+        // Used as-is when calibration is disabled
+        private int defaultCost = 10;
+    }
+}
@@ -0,0 +1,34 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Max distinct keys tracked by the in-process pre-filter
+    private long localMaxKeys = 100_000;
+
+    // Keyed by RateLimitPolicy config key, e.g. "otp-send"
+    private Map<String, Policy> policies = new HashMap<>();
+
+    @Data
+    public static class Policy {
+        private Limit email = new Limit();
+        private Limit ip = new Limit();
+    }
+
+    // Token bucket: 'capacity' requests in a burst, refilled from empty to full over 'period'
+    @Data
+    public static class Limit {
+        private int capacity = 5;
+        private Duration period = Duration.ofMinutes(10);
+    }
+}
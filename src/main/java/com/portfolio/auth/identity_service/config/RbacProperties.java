@@ -0,0 +1,20 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "rbac")
+public class RbacProperties {
+
+    // Redis hash role -> comma-separated permission names; absent means built-in defaults
+    private String redisKey = "rbac:role_permissions";
+
+    // Pub/sub channel telling every node to reload after a change
+    private String reloadChannel = "rbac:reload";
+
+    // Periodic reload as well, in case a notification was missed
+    private Duration reloadInterval = Duration.ofMinutes(5);
+}
@@ -1,13 +1,27 @@
 package com.portfolio.auth.identity_service.config;
 
+import com.portfolio.auth.identity_service.filter.JwtAuthenticationFilter;
+import com.portfolio.auth.identity_service.security.Permission;
+import com.portfolio.auth.identity_service.security.PermissionAuthorizationManager;
+import com.portfolio.auth.identity_service.service.JwtService;
+import com.portfolio.auth.identity_service.service.RolePermissionService;
+import com.portfolio.auth.identity_service.service.SessionService;
+import com.portfolio.auth.identity_service.service.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 
 @Configuration
@@ -15,20 +29,63 @@ import org.springframework.security.web.SecurityFilterChain;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    private final JwtService jwtService;
+    private final TokenRevocationService revocationService;
+    private final SessionService sessionService;
+    private final RolePermissionService rolePermissionService;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
+    // Cost is calibrated against the host at startup; stored hashes with a lower cost are upgraded on login
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties props) {
+        return new BCryptPasswordEncoder(BcryptCostCalibrator.calibrate(props.getCalibration()));
     }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
+                .httpBasic(basic -> basic.disable())
+                .formLogin(form -> form.disable())
+                // Stateless: the access token is the only credential, no HttpSession is created
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .exceptionHandling(ex -> ex
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                        // Status only: sendError() would re-dispatch to /error, which is itself secured
+                        .accessDeniedHandler((request, response, denied) -> response.setStatus(HttpStatus.FORBIDDEN.value())))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService, revocationService, sessionService), UsernamePasswordAuthenticationFilter.class)
                 .authorizeHttpRequests(authz -> authz
                         .requestMatchers("/api/auth/**").permitAll()  // ✅ Public endpoints
+                        // Probes; keep /actuator off the public ingress
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        // Scraping only on the separate management port, which the ingress doesn't route
+                        .requestMatchers(onManagementPort("/actuator/prometheus")).permitAll()
+                        // Permission checks are a bitmask test against the in-memory role table
+                        .requestMatchers("/api/sessions/**").access(require(Permission.SESSIONS_MANAGE))
+                        .requestMatchers("/api/admin/users/import/**").access(require(Permission.USERS_IMPORT))
+                        .requestMatchers(HttpMethod.GET, "/api/admin/users/export").access(require(Permission.USERS_EXPORT))
+                        .requestMatchers("/api/admin/users/*/role", "/api/admin/roles/**").access(require(Permission.USERS_MANAGE_ROLES))
+                        .requestMatchers(HttpMethod.GET, "/api/admin/users/**").access(require(Permission.USERS_READ))
+                        .requestMatchers(HttpMethod.GET, "/api/admin/otp/**").access(require(Permission.OTP_KEYSPACE_READ))
+                        .requestMatchers("/api/admin/**").denyAll()
                         .anyRequest().authenticated()                 // ✅ Everything else requires auth
                 );
 
         return http.build();
     }
-}
\ No newline at end of file
+
+    // Never matches when management shares the application port (or has a random one)
+    private RequestMatcher onManagementPort(String path) {
+        boolean separate = managementPort > 0 && managementPort != serverPort;
+        return request -> separate && request.getLocalPort() == managementPort && path.equals(request.getRequestURI());
+    }
+
+    private PermissionAuthorizationManager require(Permission permission) {
+        return new PermissionAuthorizationManager(rolePermissionService, permission);
+    }
+}
@@ -0,0 +1,24 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "session")
+public class SessionProperties {
+
+    // A session not seen (request or refresh) for this long expires
+    private Duration idleTimeout = Duration.ofDays(14);
+
+    // Sliding expiry is pushed to Redis at most this often per session and node;
+    // also how long a session ended elsewhere may still be accepted by this node
+    private Duration touchInterval = Duration.ofMinutes(1);
+
+    // Oldest sessions are ended when a login goes over the limit
+    private int maxPerUser = 10;
+
+    // Sessions whose last touch this node remembers
+    private long localMaxEntries = 500_000;
+}
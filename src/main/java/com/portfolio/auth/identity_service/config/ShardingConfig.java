@@ -0,0 +1,109 @@
+package com.portfolio.auth.identity_service.config;
+
+import com.portfolio.auth.identity_service.datasource.ShardContext;
+import com.portfolio.auth.identity_service.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.relational.SchemaManager;
+import org.hibernate.tool.schema.spi.SchemaManagementException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Users shards. Replaces Boot's single DataSource only when sharding.enabled=true;
+ * spring.datasource(.hikari) keeps configuring shard 0. Replica routing is not combined
+ * with it: datasource-routing must stay off.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    public ShardingConfig(DataSourceRoutingProperties routing) {
+        if (routing.isEnabled()) {
+            throw new IllegalStateException("sharding and datasource-routing can't both be enabled");
+        }
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource shard0DataSource(DataSourceProperties properties) {
+        HikariDataSource shard0 = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        shard0.setPoolName("shard-0");
+        return shard0;
+    }
+
+    // Not @Primary: only reachable through the lazy proxy below; close() shuts the extra pools
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource shard0DataSource,
+                                                         DataSourceProperties properties,
+                                                         ShardingProperties sharding,
+                                                         MeterRegistry registry) {
+        Map<Integer, DataSource> shards = new HashMap<>();
+        shards.put(ShardContext.DEFAULT_SHARD, shard0DataSource);
+        for (ShardingProperties.Shard shard : sharding.getShards()) {
+            if (shards.containsKey(shard.getId())) {
+                throw new IllegalStateException("Shard " + shard.getId() + " is configured twice");
+            }
+            shards.put(shard.getId(), shardPool(shard, properties, sharding));
+        }
+        log.info("✓ Users sharded over {} databases", shards.size());
+        return new ShardRoutingDataSource(shards, registry);
+    }
+
+    // What JPA, JdbcTemplate and the transaction manager see
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    // Boot's ddl-auto only reaches shard 0; an empty extra shard gets the mapped tables here
+    @Bean
+    @ConditionalOnProperty(prefix = "sharding", name = "initialize-schema", havingValue = "true")
+    public SmartInitializingSingleton shardSchemaInitializer(EntityManagerFactory entityManagerFactory,
+                                                             ShardRoutingDataSource shardRoutingDataSource) {
+        return () -> {
+            SchemaManager schema = entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager();
+            for (Integer shard : shardRoutingDataSource.shards().keySet()) {
+                if (shard == ShardContext.DEFAULT_SHARD) {
+                    continue;
+                }
+                ShardContext.on(shard, () -> {
+                    try {
+                        schema.validateMappedObjects();
+                    } catch (SchemaManagementException e) {
+                        log.info("Creating users schema on shard {} ({})", shard, e.getMessage());
+                        schema.exportMappedObjects(true);
+                    }
+                });
+            }
+        };
+    }
+
+    private static HikariDataSource shardPool(ShardingProperties.Shard shard,
+                                              DataSourceProperties shard0,
+                                              ShardingProperties sharding) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("shard-" + shard.getId());
+        pool.setJdbcUrl(shard.getUrl());
+        pool.setUsername(shard.getUsername() != null ? shard.getUsername() : shard0.determineUsername());
+        pool.setPassword(shard.getPassword() != null ? shard.getPassword() : shard0.determinePassword());
+        pool.setDriverClassName(shard0.determineDriverClassName());
+        pool.setMaximumPoolSize(sharding.getPoolSize());
+        return pool;
+    }
+}
@@ -0,0 +1,75 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Users table sharding. Shard 0 is spring.datasource; the others are listed under shards.
+ *
+ * Splitting (or any other ring change) is three config rollouts:
+ *   1. add the new shard to shards and set shadow-members to the new member list: writes
+ *      are copied to their new owner as well, and the backfill copies the existing rows
+ *   2. once the backfill has logged completion, swap members and shadow-members: reads move
+ *      to the new owners, which keep copying back to the old ones for nodes not rolled yet
+ *   3. clear shadow-members and set split.cleanup: every shard drops the rows it no longer owns
+ */
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+
+    // Off: one database, as before (shard 0 owns everyone)
+    private boolean enabled = false;
+
+    // Shards besides shard 0. Username/password default to spring.datasource's
+    private List<Shard> shards = new ArrayList<>();
+
+    // Shards on the ring that owns the users. Empty = shard 0 alone, which is where an existing
+    // database's users are: new shards take users over by a split, not by being listed here
+    private List<Integer> members = new ArrayList<>();
+
+    // Ring a split is moving to (see above); empty = no split in progress
+    private List<Integer> shadowMembers = new ArrayList<>();
+
+    // Points per shard on the ring; changing it moves users like a ring change does
+    private int virtualNodes = 160;
+
+    // Bits of the 10-bit id node field that hold the shard: up to 2^n shards, node ids below 2^(10-n)
+    private int idShardBits = 4;
+
+    private int poolSize = 10;
+
+    // Parallel per-shard queries of the admin listing
+    private int scatterThreads = 8;
+    private Duration scatterTimeout = Duration.ofSeconds(5);
+
+    // Create the tables on an empty extra shard at startup (local / test setups)
+    private boolean initializeSchema = false;
+
+    private Split split = new Split();
+
+    @Data
+    public static class Shard {
+        private int id;
+        private String url;
+        private String username;
+        private String password;
+    }
+
+    @Data
+    public static class Split {
+        // Rows per backfill / cleanup chunk, and the pause between chunks
+        private int chunkSize = 500;
+        private Duration pause = Duration.ofMillis(50);
+
+        // Users waiting for their write to be copied to the shadow owner; beyond it the
+        // writer copies inline
+        private int maxPendingCopies = 10_000;
+
+        // Step 3: delete rows a shard no longer owns (only once the owner has them)
+        private boolean cleanup = false;
+    }
+}
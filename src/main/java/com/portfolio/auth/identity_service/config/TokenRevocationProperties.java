@@ -0,0 +1,21 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "token-revocation")
+public class TokenRevocationProperties {
+
+    // Local filter sizing: ~1.2 MB for 1M entries at 1%
+    private long expectedEntries = 1_000_000;
+    private double falsePositiveRate = 0.01;
+
+    // Pub/sub channel carrying single-entry deltas between nodes
+    private String channel = "token-revocation";
+
+    // How often each node rebuilds its filter from Redis (drops expired entries, heals missed deltas)
+    private Duration rebuildInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,24 @@
+package com.portfolio.auth.identity_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "user-cache")
+public class UserCacheProperties {
+
+    private boolean enabled = true;
+
+    // L1: per-node Caffeine cache
+    private long localMaxSize = 100_000;
+    private Duration localTtl = Duration.ofMinutes(1);
+
+    // L2: shared Redis cache; TTL also bounds staleness if an invalidation is ever missed
+    private String redisKeyPrefix = "user:email:";
+    private Duration redisTtl = Duration.ofMinutes(10);
+
+    // Pub/sub channel used to evict L1 entries on every node
+    private String invalidationChannel = "user-cache:invalidate";
+}
@@ -0,0 +1,24 @@
+package com.portfolio.auth.identity_service.controller;
+
+import com.portfolio.auth.identity_service.dto.OtpKeyspaceReport;
+import com.portfolio.auth.identity_service.service.OtpKeyspaceReporter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/otp")
+@RequiredArgsConstructor
+public class AdminOtpController {
+
+    private final OtpKeyspaceReporter keyspaceReporter;
+
+
+    // SCANs the OTP keyspace; seconds on a large Redis, so not for polling
+    @GetMapping("/keyspace")
+    public ResponseEntity<OtpKeyspaceReport> keyspace() {
+        return ResponseEntity.ok(keyspaceReporter.report());
+    }
+}
@@ -0,0 +1,39 @@
+package com.portfolio.auth.identity_service.controller;
+
+import com.portfolio.auth.identity_service.dto.RolePermissionsRequest;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.security.Permission;
+import com.portfolio.auth.identity_service.service.RolePermissionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/admin/roles")
+@RequiredArgsConstructor
+public class AdminRoleController {
+
+    private final RolePermissionService rolePermissionService;
+
+
+    @GetMapping
+    public ResponseEntity<Map<User.Role, Set<Permission>>> listRoles() {
+        return ResponseEntity.ok(rolePermissionService.snapshot().asMap());
+    }
+
+    // Takes effect on every node within moments (pub/sub reload), at the latest after rbac.reload-interval
+    @PutMapping("/{role}")
+    public ResponseEntity<Map<User.Role, Set<Permission>>> updateRole(@PathVariable User.Role role,
+                                                                      @Valid @RequestBody RolePermissionsRequest request) {
+        return ResponseEntity.ok(rolePermissionService.update(role, request.getPermissions()).asMap());
+    }
+}
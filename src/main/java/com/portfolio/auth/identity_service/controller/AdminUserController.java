@@ -0,0 +1,77 @@
+package com.portfolio.auth.identity_service.controller;
+
+import com.portfolio.auth.identity_service.dto.BulkImportReport;
+import com.portfolio.auth.identity_service.dto.ChangeRoleRequest;
+import com.portfolio.auth.identity_service.dto.UserPage;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.service.BulkUserImportService;
+import com.portfolio.auth.identity_service.service.UserAdminService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/admin/users")
+@RequiredArgsConstructor
+public class AdminUserController {
+
+    private final BulkUserImportService bulkUserImportService;
+    private final UserAdminService userAdminService;
+
+
+    // Body is read straight from the request stream, never buffered whole.
+    // Re-POST the same file with the returned jobId to resume after a failure.
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<BulkImportReport> importUsers(@RequestParam(required = false) String jobId,
+                                                        @RequestParam(defaultValue = "false") boolean sendVerification,
+                                                        HttpServletRequest http) throws IOException {
+        BulkUserImportService.Format format = http.getContentType().startsWith("text/csv")
+                ? BulkUserImportService.Format.CSV
+                : BulkUserImportService.Format.NDJSON;
+
+        return ResponseEntity.ok(
+                bulkUserImportService.importUsers(jobId, http.getInputStream(), format, sendVerification));
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<BulkImportReport> importStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(bulkUserImportService.getReport(jobId));
+    }
+
+    // Keyset pagination: pass the previous page's nextAfter as "after"
+    @GetMapping
+    public ResponseEntity<UserPage> listUsers(@RequestParam(required = false) User.Role role,
+                                              @RequestParam(required = false) Boolean enabled,
+                                              @RequestParam(required = false) Long after,
+                                              @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(userAdminService.list(role, enabled, after, size));
+    }
+
+    // NDJSON, streamed from a database cursor; safe to call on any table size
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportUsers(@RequestParam(required = false) User.Role role,
+                            @RequestParam(required = false) Boolean enabled,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        userAdminService.export(role, enabled, response.getOutputStream());
+    }
+
+    @PutMapping("/{id}/role")
+    public ResponseEntity<Void> changeRole(@PathVariable long id, @Valid @RequestBody ChangeRoleRequest request) {
+        userAdminService.changeRole(id, request.getRole());
+        return ResponseEntity.noContent().build();
+    }
+}
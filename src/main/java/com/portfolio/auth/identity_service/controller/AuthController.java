@@ -2,9 +2,16 @@ package com.portfolio.auth.identity_service.controller;
 
 import com.portfolio.auth.identity_service.dto.*;
 import com.portfolio.auth.identity_service.service.AuthService;
+import com.portfolio.auth.identity_service.service.JwtService;
+import com.portfolio.auth.identity_service.service.OtpPurpose;
+import com.portfolio.auth.identity_service.service.OtpRateLimiter;
+import com.portfolio.auth.identity_service.service.RateLimitPolicy;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,6 +25,7 @@ import java.net.URI;
 public class AuthController {
 
     private final AuthService authService;
+    private final OtpRateLimiter otpRateLimiter;
 
 
     @PostMapping("/register")
@@ -29,19 +37,22 @@ public class AuthController {
 
 
     @PostMapping("/verify-otp")
-    public ResponseEntity<String> verifyEmailOtp(@RequestBody VerifyOtpRequest req) {
+    public ResponseEntity<String> verifyEmailOtp(@RequestBody VerifyOtpRequest req, HttpServletRequest http) {
+        otpRateLimiter.check(RateLimitPolicy.OTP_VERIFY, OtpPurpose.REGISTER, req.getEmail(), http.getRemoteAddr());
         authService.verifyEmailOtp(req.getEmail(), req.getOtpCode());
         return ResponseEntity.ok("Email verified successfully!");
     }
 
     @PostMapping("/resend-otp")
-    public ResponseEntity<String> resendEmailOtp(@Valid @RequestBody ResendOtpRequest req) {
+    public ResponseEntity<String> resendEmailOtp(@Valid @RequestBody ResendOtpRequest req, HttpServletRequest http) {
+        otpRateLimiter.check(RateLimitPolicy.OTP_SEND, OtpPurpose.REGISTER, req.getEmail(), http.getRemoteAddr());
         authService.resendEmailOtp(req.getEmail());
         return ResponseEntity.ok("OTP resent successfully to " + req.getEmail());
     }
 
     @PostMapping("/forgot-Password")
-    public ResponseEntity<String> forgotPassword(@Valid @RequestBody ForgotPasswordRequest req){
+    public ResponseEntity<String> forgotPassword(@Valid @RequestBody ForgotPasswordRequest req, HttpServletRequest http){
+        otpRateLimiter.check(RateLimitPolicy.OTP_SEND, OtpPurpose.FORGOT_PASSWORD, req.getEmail(), http.getRemoteAddr());
         authService.forgotPassword(req.getEmail());
         return ResponseEntity.ok(
                 "If the email is registered and verified, an OTP has been sent."
@@ -49,7 +60,8 @@ public class AuthController {
     }
 
     @PostMapping("/forgot-password/verify-otp")
-    public ResponseEntity<String> verifyForgotPasswordOtp(@Valid @RequestBody VerifyOtpRequest req) {
+    public ResponseEntity<String> verifyForgotPasswordOtp(@Valid @RequestBody VerifyOtpRequest req, HttpServletRequest http) {
+        otpRateLimiter.check(RateLimitPolicy.OTP_VERIFY, OtpPurpose.FORGOT_PASSWORD, req.getEmail(), http.getRemoteAddr());
         authService.verifyForgotPasswordOtp(req.getEmail(), req.getOtpCode());
         return ResponseEntity.ok("OTP verified successfully. You can now reset your password.");
     }
@@ -60,4 +72,21 @@ public class AuthController {
         return ResponseEntity.ok("Password reset successful.");
     }
 
+    @PostMapping("/login")
+    public ResponseEntity<AuthTokenResponse> login(@Valid @RequestBody LoginRequest req, HttpServletRequest http) {
+        return ResponseEntity.ok(authService.login(req, http.getRemoteAddr(), http.getHeader(HttpHeaders.USER_AGENT)));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthTokenResponse> refresh(@Valid @RequestBody RefreshTokenRequest req) {
+        return ResponseEntity.ok(authService.refresh(req.getRefreshToken()));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequest req,
+                                       @AuthenticationPrincipal JwtService.AccessTokenClaims accessToken) {
+        authService.logout(req.getRefreshToken(), accessToken);
+        return ResponseEntity.noContent().build();
+    }
+
 }
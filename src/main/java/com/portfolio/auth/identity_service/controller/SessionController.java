@@ -0,0 +1,46 @@
+package com.portfolio.auth.identity_service.controller;
+
+import com.portfolio.auth.identity_service.dto.SessionInfo;
+import com.portfolio.auth.identity_service.service.JwtService;
+import com.portfolio.auth.identity_service.service.SessionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// The caller's own sessions; the user id always comes from the access token
+@RestController
+@RequestMapping("/api/sessions")
+@RequiredArgsConstructor
+public class SessionController {
+
+    private final SessionService sessionService;
+
+
+    @GetMapping
+    public ResponseEntity<List<SessionInfo>> listSessions(@AuthenticationPrincipal JwtService.AccessTokenClaims me) {
+        return ResponseEntity.ok(sessionService.list(me.userId(), me.sessionId()));
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> endSession(@AuthenticationPrincipal JwtService.AccessTokenClaims me,
+                                           @PathVariable String sessionId) {
+        // Someone else's session id is answered like an unknown one
+        if (!sessionService.end(me.userId(), sessionId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> endAllSessions(@AuthenticationPrincipal JwtService.AccessTokenClaims me) {
+        sessionService.endAll(me.userId());
+        return ResponseEntity.noContent().build();
+    }
+}
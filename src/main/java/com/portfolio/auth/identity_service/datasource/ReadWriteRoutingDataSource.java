@@ -0,0 +1,169 @@
+package com.portfolio.auth.identity_service.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to a healthy replica (round robin) and everything else to
+ * the primary.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction manager asks for a
+ * connection before it has published the read-only flag, so the real connection (and with
+ * it the routing decision) has to wait until the first statement. Work outside a
+ * transaction, writes, onPrimary() blocks and the case of no healthy replica all use the
+ * primary. A replica that fails to hand out a connection is marked down on the spot and the
+ * request falls back to the primary.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final List<String> replicaKeys;
+    private final AtomicIntegerArray healthy;     // 1 = up, per replica index
+    private final AtomicLong nextReplica = new AtomicLong();
+
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter fallbacks;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, MeterRegistry registry) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        this.replicaKeys = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            targets.put(key, replicas.get(i));
+            replicaKeys.add(key);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.healthy = new AtomicIntegerArray(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            healthy.set(i, 1);
+        }
+
+        this.primaryConnections = registry.counter("datasource.routing.connections", "target", "primary");
+        this.replicaConnections = registry.counter("datasource.routing.connections", "target", "replica");
+        this.fallbacks = registry.counter("datasource.routing.connections", "target", "fallback");
+        Gauge.builder("datasource.routing.replicas.healthy", this, ReadWriteRoutingDataSource::healthyReplicas)
+                .register(registry);
+    }
+
+    // Runs the lookup against the primary whatever its transaction says (read-your-writes)
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            } else {
+                FORCE_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (FORCE_PRIMARY.get() != null
+                || !TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        int replica = pickHealthyReplica();
+        return replica < 0 ? PRIMARY : replicaKeys.get(replica);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            primaryConnections.increment();
+            return super.getConnection();
+        }
+
+        DataSource replica = getResolvedDataSources().get(key);
+        try {
+            Connection connection = replica.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            markDown(replicaKeys.indexOf((String) key), e.getMessage());
+            fallbacks.increment();
+            return getResolvedDefaultDataSource().getConnection();
+        }
+    }
+
+    // Shuts the replica pools down with the context (the primary is a bean of its own)
+    public void close() {
+        for (String key : replicaKeys) {
+            if (getResolvedDataSources().get(key) instanceof AutoCloseable pool) {
+                try {
+                    pool.close();
+                } catch (Exception e) {
+                    log.warn("Closing {} failed: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+
+    List<String> replicaKeys() {
+        return replicaKeys;
+    }
+
+    DataSource replica(int index) {
+        return getResolvedDataSources().get(replicaKeys.get(index));
+    }
+
+    void markUp(int index) {
+        if (healthy.compareAndSet(index, 0, 1)) {
+            log.info("✓ Replica {} is back in rotation", replicaKeys.get(index));
+        }
+    }
+
+    void markDown(int index, String reason) {
+        if (healthy.compareAndSet(index, 1, 0)) {
+            log.warn("✗ Replica {} taken out of rotation: {}", replicaKeys.get(index), reason);
+        }
+    }
+
+    private int pickHealthyReplica() {
+        int size = replicaKeys.size();
+        long start = nextReplica.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            int candidate = (int) Math.floorMod(start + i, (long) size);
+            if (healthy.get(candidate) == 1) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private int healthyReplicas() {
+        int up = 0;
+        for (int i = 0; i < healthy.length(); i++) {
+            up += healthy.get(i);
+        }
+        return up;
+    }
+}
@@ -0,0 +1,32 @@
+package com.portfolio.auth.identity_service.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+// Probes every replica with Connection.isValid(); runs on the shared TaskScheduler
+public class ReplicaHealthChecker implements Runnable {
+
+    private final ReadWriteRoutingDataSource routing;
+    private final int timeoutSeconds;
+
+    public ReplicaHealthChecker(ReadWriteRoutingDataSource routing, Duration timeout) {
+        this.routing = routing;
+        this.timeoutSeconds = (int) Math.max(1, timeout.toSeconds());
+    }
+
+    @Override
+    public void run() {
+        for (int i = 0; i < routing.replicaKeys().size(); i++) {
+            try (Connection connection = routing.replica(i).getConnection()) {
+                if (connection.isValid(timeoutSeconds)) {
+                    routing.markUp(i);
+                } else {
+                    routing.markDown(i, "validation failed");
+                }
+            } catch (SQLException e) {
+                routing.markDown(i, e.getMessage());
+            }
+        }
+    }
+}
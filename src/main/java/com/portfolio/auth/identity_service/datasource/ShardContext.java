@@ -0,0 +1,47 @@
+package com.portfolio.auth.identity_service.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * The users shard the current thread works on. ShardRoutingDataSource picks its connection
+ * from it and TimeOrderedIdGenerator writes it into new ids. Unset means shard 0.
+ *
+ * The routing happens when a transaction runs its first statement, so the shard has to be
+ * chosen before that and stays the transaction's shard until it ends: one transaction never
+ * spans two shards.
+ */
+public final class ShardContext {
+
+    public static final int DEFAULT_SHARD = 0;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? DEFAULT_SHARD : shard;
+    }
+
+    public static <T> T on(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void on(int shard, Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.portfolio.auth.identity_service.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One connection pool per users shard; a connection comes from the shard in ShardContext.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy for the same reason as the read/write
+ * router: the transaction manager asks for a connection before the caller's first statement,
+ * and the shard is only known by then. Shard 0 is the original spring.datasource database.
+ * An unknown shard number is an error, never a silent fallback to shard 0.
+ */
+@Slf4j
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<Integer, DataSource> shards;
+    private final Map<Integer, Counter> connections = new HashMap<>();
+
+    public ShardRoutingDataSource(Map<Integer, DataSource> shards, MeterRegistry registry) {
+        if (!shards.containsKey(ShardContext.DEFAULT_SHARD)) {
+            throw new IllegalArgumentException("Shard " + ShardContext.DEFAULT_SHARD + " is required");
+        }
+        this.shards = Collections.unmodifiableMap(new TreeMap<>(shards));
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(ShardContext.DEFAULT_SHARD));
+        setLenientFallback(false);
+
+        for (Integer shard : this.shards.keySet()) {
+            connections.put(shard, registry.counter("datasource.shard.connections", "shard", String.valueOf(shard)));
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        connections.get(ShardContext.current()).increment();
+        return connection;
+    }
+
+    // Shard number -> its own pool, for work that must not share the caller's transaction
+    public Map<Integer, DataSource> shards() {
+        return shards;
+    }
+
+    // Shuts the extra shard pools down with the context (shard 0 is a bean of its own)
+    public void close() {
+        shards.forEach((shard, dataSource) -> {
+            if (shard != ShardContext.DEFAULT_SHARD && dataSource instanceof AutoCloseable pool) {
+                try {
+                    pool.close();
+                } catch (Exception e) {
+                    log.warn("Closing shard {} failed: {}", shard, e.getMessage());
+                }
+            }
+        });
+    }
+}
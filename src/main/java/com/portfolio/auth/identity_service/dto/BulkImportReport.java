@@ -0,0 +1,23 @@
+package com.portfolio.auth.identity_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportReport {
+
+    private String jobId;
+    private String status;          // RUNNING / COMPLETED / FAILED
+    private long processedLines;    // resume point: lines already handled
+    private long inserted;
+    private long duplicates;
+    private long failed;
+    private List<String> errors;    // most recent per-row errors ("line N: reason"), capped
+}
@@ -0,0 +1,38 @@
+package com.portfolio.auth.identity_service.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One NDJSON line / CSV record of a bulk user import. Either password or passwordHash (BCrypt) is required.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportRow {
+
+    @NotBlank(message = "Name is required")
+    @Size(max = 100, message = "Name must be less than 100 characters")
+    private String name;
+
+    @NotBlank(message = "Email is required")
+    @Email(message = "Email should be valid")
+    private String email;
+
+    @Size(min = 6, message = "Password must be at least 6 characters")
+    private String password;
+
+    private String passwordHash;
+
+    private String phoneNumber;
+
+    // USER / MODERATOR / ADMIN, defaults to USER
+    private String role;
+
+    // Already-verified accounts from the source system; unverified ones can get an OTP
+    private Boolean enabled;
+}
@@ -0,0 +1,16 @@
+package com.portfolio.auth.identity_service.dto;
+
+import com.portfolio.auth.identity_service.entity.User;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangeRoleRequest {
+
+    @NotNull
+    private User.Role role;
+}
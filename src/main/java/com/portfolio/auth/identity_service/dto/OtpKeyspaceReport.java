@@ -0,0 +1,37 @@
+package com.portfolio.auth.identity_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// OTP keys in Redis by layout and purpose; bytes are MEMORY USAGE of a sample, extrapolated
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OtpKeyspaceReport {
+
+    private Instant generatedAt;
+    private int sampleSize;             // keys measured per layout / purpose at most
+    private List<Entry> entries;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+
+        private String layout;              // hash / legacy_code / legacy_verified
+        private String purpose;
+        private long keys;
+        private long sampledKeys;
+        private long avgBytes;
+        private long estimatedBytes;        // avgBytes * keys
+        private Map<String, Long> encodings; // OBJECT ENCODING of the sampled keys (hashes should be listpack)
+    }
+}
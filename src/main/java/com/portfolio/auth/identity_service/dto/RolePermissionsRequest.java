@@ -0,0 +1,18 @@
+package com.portfolio.auth.identity_service.dto;
+
+import com.portfolio.auth.identity_service.security.Permission;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RolePermissionsRequest {
+
+    @NotNull
+    private Set<Permission> permissions;
+}
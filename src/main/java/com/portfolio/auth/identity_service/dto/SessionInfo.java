@@ -0,0 +1,22 @@
+package com.portfolio.auth.identity_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionInfo {
+
+    private String id;
+    private Instant createdAt;
+    private Instant lastSeenAt;     // updated at most once per session.touch-interval
+    private String ip;
+    private String userAgent;
+    private boolean current;        // the session of the calling access token
+}
@@ -0,0 +1,22 @@
+package com.portfolio.auth.identity_service.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One keyset page; pass nextAfter back as "after" to continue, null when there is nothing more
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPage {
+
+    private List<UserSummary> items;
+    @JsonSerialize(using = ToStringSerializer.class)   // a user id, see UserResponse
+    private Long nextAfter;
+}
@@ -1,5 +1,7 @@
 package com.portfolio.auth.identity_service.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +15,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class UserResponse {
 
+    // 64-bit time-ordered ids exceed 2^53: a string, so JavaScript clients don't round them
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     private String name;
     private String email;
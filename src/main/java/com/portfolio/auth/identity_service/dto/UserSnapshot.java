@@ -0,0 +1,35 @@
+package com.portfolio.auth.identity_service.dto;
+
+import com.portfolio.auth.identity_service.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Cacheable read-only projection of User (no password hash, never leaves the service)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSnapshot {
+
+    private Long id;
+    private String name;
+    private String email;
+    private User.Role role;
+    private boolean enabled;
+    private LocalDateTime createdAt;
+
+    public static UserSnapshot from(User user) {
+        return UserSnapshot.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .role(user.getRole())
+                .enabled(user.isEnabled())
+                .createdAt(user.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.portfolio.auth.identity_service.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.portfolio.auth.identity_service.entity.User;
+
+import java.time.LocalDateTime;
+
+// Interface projection for admin listings: selects only these columns, no entity is managed
+public interface UserSummary {
+
+    @JsonSerialize(using = ToStringSerializer.class)   // above 2^53, see UserResponse
+    Long getId();
+
+    String getName();
+
+    String getEmail();
+
+    User.Role getRole();
+
+    boolean isEnabled();
+
+    LocalDateTime getCreatedAt();
+}
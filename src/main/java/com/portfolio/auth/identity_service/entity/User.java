@@ -1,6 +1,8 @@
 package com.portfolio.auth.identity_service.entity;
 
 
+import com.portfolio.auth.identity_service.id.TimeOrderedId;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -13,15 +15,24 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "users")
+@Table(
+        name = "users",
+        uniqueConstraints = @UniqueConstraint(name = User.EMAIL_NORMALIZED_UNIQUE, columnNames = "email_normalized"),
+        indexes = {
+                @Index(name = "idx_users_role_id", columnList = "role, id"),
+                @Index(name = "idx_users_enabled_id", columnList = "enabled, id")
+        }
+)
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class User {
 
+    public static final String EMAIL_NORMALIZED_UNIQUE = "uk_users_email_normalized";
 
+    // Assigned before the INSERT (not IDENTITY), so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -30,6 +41,11 @@ public class User {
     @Column(unique = true, nullable = false)
     private String email;
 
+    // Lookup key: exact-match, index-friendly replacement for lower(email) = lower(?).
+    // Nullable only until EmailNormalizationBackfill has filled pre-existing rows.
+    @Column(name = "email_normalized")
+    private String emailNormalized;
+
     @Column(name = "password_hash", nullable = false)
     private String passwordHash;
 
@@ -52,6 +68,12 @@ public class User {
 
     private LocalDateTime lastLogin;
 
+    @PrePersist
+    @PreUpdate
+    void normalizeEmail() {
+        this.emailNormalized = EmailNormalizer.normalize(email);
+    }
+
     public enum Role {
         USER,
         MODERATOR,
@@ -0,0 +1,7 @@
+package com.portfolio.auth.identity_service.exception;
+
+public class InvalidCredentialsException extends RuntimeException {
+    public InvalidCredentialsException(String message) {
+        super(message);
+    }
+}
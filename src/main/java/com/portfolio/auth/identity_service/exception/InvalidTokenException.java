@@ -0,0 +1,7 @@
+package com.portfolio.auth.identity_service.exception;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,99 @@
+package com.portfolio.auth.identity_service.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.portfolio.auth.identity_service.config.ConcurrencyLimitProperties;
+import com.portfolio.auth.identity_service.dto.ApiError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the number of requests executing at once.
+ *
+ * With virtual threads Tomcat no longer has a thread limit, so every queued connection
+ * becomes a running request that then waits on Hikari, Redis or the hashing pool. This
+ * puts the bound back in front of all of them: a request that can't get a slot within
+ * acquireTimeout is answered with 503 + Retry-After instead of piling up on the pool.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "concurrency-limit", name = "enabled", havingValue = "true")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final ConcurrencyLimitProperties props;
+    private final ObjectMapper objectMapper;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties props, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.permits = new Semaphore(props.getMaxInFlight(), true);
+
+        Gauge.builder("http.server.requests.in.flight", permits, p -> props.getMaxInFlight() - p.availablePermits())
+                .register(registry);
+        this.rejected = registry.counter("http.server.requests.shed");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Health and metrics must stay reachable while we shed load
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(props.getAcquireTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            rejected.increment();
+            writeOverloaded(response);
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void writeOverloaded(HttpServletResponse response) throws IOException {
+        ApiError error = ApiError.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("ServiceUnavailable")
+                .message("Server is busy, please retry shortly")
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(props.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+}
@@ -0,0 +1,81 @@
+package com.portfolio.auth.identity_service.filter;
+
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.exception.InvalidTokenException;
+import com.portfolio.auth.identity_service.service.JwtService;
+import com.portfolio.auth.identity_service.service.SessionService;
+import com.portfolio.auth.identity_service.service.TokenRevocationService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authenticates "Authorization: Bearer <jwt>" requests from the token alone.
+ *
+ * No user lookup: the claims carry id, email, role and session id; the revocation and
+ * session checks are answered locally except in the rare "maybe revoked" case and once
+ * per touch interval per session. A missing, invalid or revoked
+ * token just leaves the request anonymous, and the security chain decides whether that is allowed.
+ * Not a @Component, so Boot doesn't register it a second time as a plain servlet filter.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    // Authority lists are immutable and shared: no allocation per request
+    private static final Map<User.Role, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(User.Role.class);
+
+    static {
+        for (User.Role role : User.Role.values()) {
+            AUTHORITIES.put(role, List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        }
+    }
+
+    private final JwtService jwtService;
+    private final TokenRevocationService revocationService;
+    private final SessionService sessionService;
+
+    public JwtAuthenticationFilter(JwtService jwtService, TokenRevocationService revocationService,
+                                   SessionService sessionService) {
+        this.jwtService = jwtService;
+        this.revocationService = revocationService;
+        this.sessionService = sessionService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            try {
+                JwtService.AccessTokenClaims claims = jwtService.parseAccessToken(header.substring(BEARER.length()));
+                if (revocationService.isRevoked(claims)) {
+                    throw new InvalidTokenException("Access token has been revoked");
+                }
+                // Session liveness + sliding expiry; goes to Redis at most once per touch interval
+                if (claims.sessionId() != null && !sessionService.touch(claims.userId(), claims.sessionId())) {
+                    throw new InvalidTokenException("Session has ended");
+                }
+                SecurityContextHolder.getContext().setAuthentication(
+                        UsernamePasswordAuthenticationToken.authenticated(claims, null, AUTHORITIES.get(claims.role())));
+            } catch (InvalidTokenException e) {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+}
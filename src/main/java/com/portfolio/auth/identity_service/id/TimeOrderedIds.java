@@ -0,0 +1,99 @@
+package com.portfolio.auth.identity_service.id;
+
+import java.time.Instant;
+
+/**
+ * 64-bit, roughly time-ordered ids generated in-process (Snowflake layout):
+ *
+ *   0 | 41 bits ms since EPOCH | 10 bits node id | 12 bits sequence
+ *
+ * Unlike IDENTITY columns the id is known before the INSERT, so Hibernate can batch
+ * inserts, and ids stay ordered by creation time for keyset pagination. Every node must
+ * run with a distinct node id (identity.id.node-id).
+ *
+ * With sharding on, the top shardBits of the 10 are the shard the row was created on and the
+ * node id gets the rest. Node ids below 2^(10 - shardBits) keep those bits 0 in ids issued
+ * before, so existing rows read as shard 0, which is where they are.
+ */
+public final class TimeOrderedIds {
+
+    public static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static volatile long nodeId = 0;
+    private static volatile int shardBits = 0;
+
+    private static long lastMillis = -1L;
+    private static long sequence = 0L;
+
+    private TimeOrderedIds() {
+    }
+
+    public static void configure(long node) {
+        configure(node, 0);
+    }
+
+    public static void configure(long node, int shardIdBits) {
+        if (shardIdBits < 0 || shardIdBits >= NODE_BITS) {
+            throw new IllegalArgumentException("shard bits must be between 0 and " + (NODE_BITS - 1) + ": " + shardIdBits);
+        }
+        long maxNode = MAX_NODE_ID >>> shardIdBits;
+        if (node < 0 || node > maxNode) {
+            throw new IllegalArgumentException("node id must be between 0 and " + maxNode + ": " + node);
+        }
+        nodeId = node;
+        shardBits = shardIdBits;
+    }
+
+    public static long next() {
+        return next(0);
+    }
+
+    public static synchronized long next(int shard) {
+        if (shard < 0 || shard >> shardBits != 0) {
+            throw new IllegalArgumentException("shard " + shard + " does not fit in " + shardBits + " id bits");
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now < lastMillis) {
+            now = lastMillis;   // clock went backwards: keep issuing from the last timestamp
+        }
+
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // 4096 ids in this millisecond already, wait for the next one
+                while ((now = System.currentTimeMillis()) <= lastMillis) {
+                    Thread.onSpinWait();
+                }
+            }
+        } else {
+            sequence = 0;
+        }
+
+        lastMillis = now;
+        return ((now - EPOCH_MILLIS) << (NODE_BITS + SEQUENCE_BITS))
+                | ((long) shard << (NODE_BITS - shardBits + SEQUENCE_BITS))
+                | (nodeId << SEQUENCE_BITS)
+                | sequence;
+    }
+
+    // The shard the id was issued for (0 when sharding is off)
+    public static int shardOf(long id) {
+        int bits = shardBits;
+        return (int) ((id >>> (NODE_BITS - bits + SEQUENCE_BITS)) & ((1L << bits) - 1));
+    }
+
+    public static int maxShards() {
+        return 1 << shardBits;
+    }
+
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+}
@@ -0,0 +1,78 @@
+package com.portfolio.auth.identity_service.observability;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.ObservationView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Timers and trace spans for the auth flows, from one Observation per call:
+ *
+ *   auth.flow{flow, error}          whole flow (register, verify_email, reset_password, ...)
+ *   auth.stage{flow, stage, error}  one step inside it: hash, db, redis, mail, cache
+ *
+ * A stage takes its flow tag from the enclosing flow observation on the same thread, so
+ * the stage timers add up per flow, and with tracing on each stage is a child span of its
+ * flow. Hash time includes the wait for a hashing-pool thread, mail time is the enqueue only.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthObservations {
+
+    private static final String FLOW = "flow";
+    private static final String NO_FLOW = "none";
+
+    private final ObservationRegistry registry;
+
+    public enum Stage {
+        HASH, DB, REDIS, MAIL, CACHE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    public <T> T flow(String flow, Supplier<T> body) {
+        return Observation.createNotStarted("auth.flow", registry)
+                .contextualName("auth " + flow)
+                .lowCardinalityKeyValue(FLOW, flow)
+                .observe(body);
+    }
+
+    public void flow(String flow, Runnable body) {
+        flow(flow, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    public <T> T stage(Stage stage, Supplier<T> body) {
+        return Observation.createNotStarted("auth.stage", registry)
+                .contextualName(stage.tag)
+                .lowCardinalityKeyValue(FLOW, currentFlow())
+                .lowCardinalityKeyValue("stage", stage.tag)
+                .observe(body);
+    }
+
+    public void stage(Stage stage, Runnable body) {
+        stage(stage, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    private String currentFlow() {
+        ObservationView current = registry.getCurrentObservation();
+        while (current != null) {
+            KeyValue flow = current.getContextView().getLowCardinalityKeyValue(FLOW);
+            if (flow != null) {
+                return flow.getValue();
+            }
+            current = current.getContextView().getParentObservation();
+        }
+        return NO_FLOW;
+    }
+}
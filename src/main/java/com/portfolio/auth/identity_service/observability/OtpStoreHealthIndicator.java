@@ -0,0 +1,46 @@
+package com.portfolio.auth.identity_service.observability;
+
+import com.portfolio.auth.identity_service.service.LocalOtpStore;
+import com.portfolio.auth.identity_service.service.OtpRedis;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * "otpStore" health component: DEGRADED while the OTP Redis circuit breaker is not closed,
+ * i.e. OTP requests are failing fast (503) or being served from the local fallback store.
+ *
+ * DEGRADED maps to HTTP 200, so a node stays in rotation; alert on the status instead.
+ * It never reads Redis itself, so a health probe can't hang on an outage.
+ */
+@Component("otpStore")
+@RequiredArgsConstructor
+public class OtpStoreHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "OTP store unavailable, failing fast or serving locally");
+
+    private final OtpRedis otpRedis;
+    private final LocalOtpStore localStore;
+
+    @Override
+    public Health health() {
+        CircuitBreaker breaker = otpRedis.breaker();
+        CircuitBreaker.State state = breaker.getState();
+        CircuitBreaker.Metrics metrics = breaker.getMetrics();
+
+        Health.Builder health = switch (state) {
+            case CLOSED, DISABLED, METRICS_ONLY -> Health.up();
+            default -> Health.status(DEGRADED);
+        };
+        return health
+                .withDetail("circuit", state.name())
+                .withDetail("failureRate", metrics.getFailureRate())
+                .withDetail("slowCallRate", metrics.getSlowCallRate())
+                .withDetail("localFallback", localStore.isEnabled())
+                .withDetail("localEntries", localStore.size())
+                .build();
+    }
+}
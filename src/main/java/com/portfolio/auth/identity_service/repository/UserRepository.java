@@ -1,15 +1,49 @@
 package com.portfolio.auth.identity_service.repository;
 
+import com.portfolio.auth.identity_service.dto.UserSummary;
 import com.portfolio.auth.identity_service.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 
+// Query methods run read-only (replica-eligible under datasource-routing); writes declare their own @Transactional
+@Transactional(readOnly = true)
 public interface UserRepository  extends JpaRepository<User,Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+    Optional<User> findByEmailNormalized(String emailNormalized);
+    boolean existsByEmailNormalized(String emailNormalized);
+
+    // Function-wrapped predicate, can't use an index: only a fallback while the
+    // email_normalized backfill is still running
     Optional<User> findByEmailIgnoreCase(String email);
-    List<User> findByEnabledTrue();
-    List<User> findByRole(User.Role role);
+
+    // Admin listing, keyset pages: "id > :after order by id limit n" seeks straight to the
+    // page start on the (role, id) / (enabled, id) / primary key index, whatever the depth
+    List<UserSummary> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+    List<UserSummary> findByRoleAndIdGreaterThanOrderByIdAsc(User.Role role, Long after, Limit limit);
+    List<UserSummary> findByEnabledAndIdGreaterThanOrderByIdAsc(boolean enabled, Long after, Limit limit);
+    List<UserSummary> findByRoleAndEnabledAndIdGreaterThanOrderByIdAsc(User.Role role, boolean enabled, Long after, Limit limit);
+
+    // Single-statement writes by primary key (bulk JPQL updates skip @UpdateTimestamp, so set it here)
+    @Transactional
+    @Modifying
+    @Query("update User u set u.enabled = true, u.updatedAt = local datetime where u.id = :id")
+    int enableById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.passwordHash = :passwordHash, u.updatedAt = local datetime where u.id = :id")
+    int updatePasswordHash(@Param("id") Long id, @Param("passwordHash") String passwordHash);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.role = :role, u.updatedAt = local datetime where u.id = :id")
+    int updateRole(@Param("id") Long id, @Param("role") User.Role role);
 }
@@ -0,0 +1,16 @@
+package com.portfolio.auth.identity_service.security;
+
+// One bit per permission (ordinal), so a role's grants fit in a single long. Append only.
+public enum Permission {
+    PROFILE_READ,
+    SESSIONS_MANAGE,
+    USERS_READ,
+    USERS_IMPORT,
+    USERS_MANAGE_ROLES,
+    USERS_EXPORT,
+    OTP_KEYSPACE_READ;
+
+    public long bit() {
+        return 1L << ordinal();
+    }
+}
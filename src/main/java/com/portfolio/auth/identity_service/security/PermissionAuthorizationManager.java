@@ -0,0 +1,35 @@
+package com.portfolio.auth.identity_service.security;
+
+import com.portfolio.auth.identity_service.service.JwtService;
+import com.portfolio.auth.identity_service.service.RolePermissionService;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.function.Supplier;
+
+// Grants the request if the caller's role (from the verified access token) holds the permission
+public final class PermissionAuthorizationManager implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final RolePermissionService rolePermissions;
+    private final Permission permission;
+
+    public PermissionAuthorizationManager(RolePermissionService rolePermissions, Permission permission) {
+        this.rolePermissions = rolePermissions;
+        this.permission = permission;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, RequestAuthorizationContext context) {
+        Authentication auth = authentication.get();
+        if (auth != null && auth.getPrincipal() instanceof JwtService.AccessTokenClaims claims
+                && rolePermissions.isGranted(claims.role(), permission)) {
+            return GRANTED;
+        }
+        return DENIED;
+    }
+}
@@ -0,0 +1,66 @@
+package com.portfolio.auth.identity_service.security;
+
+import com.portfolio.auth.identity_service.entity.User;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable role -> permission table, one bitmask per role indexed by role ordinal.
+ * A check is an array read and an AND; a change builds a new instance that is swapped in whole.
+ */
+public final class RolePermissions {
+
+    private static final User.Role[] ROLES = User.Role.values();
+
+    private final long[] masks;
+
+    private RolePermissions(long[] masks) {
+        this.masks = masks;
+    }
+
+    public static RolePermissions defaults() {
+        Map<User.Role, Set<Permission>> grants = new EnumMap<>(User.Role.class);
+        grants.put(User.Role.USER, EnumSet.of(Permission.PROFILE_READ, Permission.SESSIONS_MANAGE));
+        grants.put(User.Role.MODERATOR, EnumSet.of(Permission.PROFILE_READ, Permission.SESSIONS_MANAGE,
+                Permission.USERS_READ));
+        grants.put(User.Role.ADMIN, EnumSet.allOf(Permission.class));
+        return of(grants);
+    }
+
+    // Roles missing from the map get no permissions
+    public static RolePermissions of(Map<User.Role, Set<Permission>> grants) {
+        long[] masks = new long[ROLES.length];
+        grants.forEach((role, permissions) -> {
+            for (Permission permission : permissions) {
+                masks[role.ordinal()] |= permission.bit();
+            }
+        });
+        return new RolePermissions(masks);
+    }
+
+    public boolean has(User.Role role, Permission permission) {
+        return (masks[role.ordinal()] & permission.bit()) != 0;
+    }
+
+    public Set<Permission> permissionsOf(User.Role role) {
+        EnumSet<Permission> permissions = EnumSet.noneOf(Permission.class);
+        for (Permission permission : Permission.values()) {
+            if (has(role, permission)) {
+                permissions.add(permission);
+            }
+        }
+        return Collections.unmodifiableSet(permissions);
+    }
+
+    public Map<User.Role, Set<Permission>> asMap() {
+        Map<User.Role, Set<Permission>> grants = new EnumMap<>(User.Role.class);
+        for (User.Role role : ROLES) {
+            grants.put(role, permissionsOf(role));
+        }
+        return Collections.unmodifiableMap(grants);
+    }
+}
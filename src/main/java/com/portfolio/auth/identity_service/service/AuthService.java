@@ -1,60 +1,83 @@
 package com.portfolio.auth.identity_service.service;
 
 /*
-   1. VALIDATION: Check if user already exists
-   2. SECURITY: Hash the password (never store plain text)
-   3. BUSINESS RULES: Set proper defaults (role=USER, enabled=false)
-   4. PERSISTENCE: Save to database
-   5. RESPONSE: Return appropriate message
+   1. SECURITY: Hash the password (never store plain text)
+   2. BUSINESS RULES: Set proper defaults (role=USER, enabled=false)
+   3. PERSISTENCE: Save to database (unique index rejects duplicate emails)
+   4. RESPONSE: Return appropriate message
 
  */
 
+import com.portfolio.auth.identity_service.dto.AuthTokenResponse;
+import com.portfolio.auth.identity_service.dto.LoginRequest;
 import com.portfolio.auth.identity_service.dto.RegisterRequest;
 import com.portfolio.auth.identity_service.dto.ResetPasswordRequest;
 import com.portfolio.auth.identity_service.dto.UserResponse;
+import com.portfolio.auth.identity_service.dto.UserSnapshot;
 import com.portfolio.auth.identity_service.entity.User;
 import com.portfolio.auth.identity_service.exception.EmailAlreadyExistsException;
+import com.portfolio.auth.identity_service.exception.InvalidCredentialsException;
 import com.portfolio.auth.identity_service.exception.InvalidOtpException;
+import com.portfolio.auth.identity_service.exception.InvalidTokenException;
 import com.portfolio.auth.identity_service.exception.ResourceNotFoundException;
+import com.portfolio.auth.identity_service.observability.AuthObservations;
 import com.portfolio.auth.identity_service.repository.UserRepository;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import com.portfolio.auth.identity_service.util.SqlErrors;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Locale;
+import java.util.Optional;
 
+import static com.portfolio.auth.identity_service.observability.AuthObservations.Stage.CACHE;
+import static com.portfolio.auth.identity_service.observability.AuthObservations.Stage.DB;
+import static com.portfolio.auth.identity_service.observability.AuthObservations.Stage.HASH;
+import static com.portfolio.auth.identity_service.observability.AuthObservations.Stage.REDIS;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;   // BCrypt on a bounded pool, off the request thread
+    private final UserCache userCache;                    // L1 Caffeine + L2 Redis cache of user lookups by email
     private final OtpService otpService;                  // encapsulates OTP generation + storage (Redis) + email send
-  //  private final JwtService jwtService;                  // encapsulates JWT creation & validation
-  //  private final RefreshTokenService refreshTokenService; // handles refresh token storage/rotation in Redis
-
-
-    @Transactional
+    private final JwtService jwtService;                  // encapsulates JWT creation & validation
+    private final RefreshTokenService refreshTokenService; // handles refresh token storage/rotation in Redis
+    private final EmailNormalizationBackfill emailBackfill;
+    private final TokenRevocationService revocationService; // revoked jti / per-user not-before, checked locally
+    private final SessionService sessionService;          // Redis sessions, one per login (= refresh token family)
+    private final ReadYourWrites readYourWrites;          // pins a user's reads to the primary right after their writes
+    private final AuthObservations observations;          // auth.flow / auth.stage timers and spans
+    private final LastLoginWriteBehind lastLogins;        // last_login is batched, not written per login
+    private final UserShards userShards;                  // a user's row lives on the shard of their email
+    private final ShardSplit shardSplit;                  // copies writes to the new owner while a split runs
+
+
+    // Deliberately not @Transactional: BCrypt must not run while a JDBC connection is held.
+    // The insert runs in the repository's own short transaction.
     public UserResponse register(RegisterRequest req){
+        return observations.flow("register", () -> doRegister(req));
+    }
+
+    private UserResponse doRegister(RegisterRequest req){
 
         // Normalize inputs
 
-        String email = req.getEmail().trim().toLowerCase();
+        String email = EmailNormalizer.normalize(req.getEmail());
         String name = req.getName().trim() ;
         String number = req.getPhoneNumber()== null ? null : req.getPhoneNumber().trim();
 
-        // 1) Business validation: duplicate email
-
-        if(userRepository.existsByEmail(email)){
-            throw new EmailAlreadyExistsException("Email already registered: " + email);
-        }
-        // 2) Security: hash password
+        // 1) Security: hash password
 
-        String hashed = passwordEncoder.encode(req.getPassword());
+        String hashed = observations.stage(HASH, () -> passwordHashingService.hash(req.getPassword()));
 
-        // 3) Business defaults: role & enabled=false until verification
+        // 2) Business defaults: role & enabled=false until verification
 
         User user = User.builder()
                 .name(name)
@@ -66,24 +89,31 @@ public class AuthService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        // 4) Persistence
-
-        User saved = userRepository.save(user);
+        // 3) Persistence, insert-first: the unique indexes on email / email_normalized are the
+        //    duplicate check (one statement, and no window between "exists?" and INSERT).
+        //    The email decides the shard, so its unique index sees every registration of it
 
-        // 5) Post-save: create OTP and send verification asynchronously
-        // OTP stored in Redis with TTL (e.g., 10 minutes)
+        User saved;
         try {
-            System.out.println("🚀 Calling OTP service for: " + saved.getEmail());
-            otpService.createAndQueueOtpForEmail(
-                    saved.getEmail(),
-                    OtpPurpose.REGISTER
-            );
-        } catch (Exception e) {
-            e.printStackTrace();  // show full email/redis errors
+            saved = observations.stage(DB, () -> userShards.onShardOf(email, () -> userRepository.save(user)));
+        } catch (DataIntegrityViolationException e) {
+            if (SqlErrors.isDuplicateKey(e)) {
+                throw new EmailAlreadyExistsException("Email already registered: " + email);
+            }
             throw e;
         }
+        shardSplit.afterWrite(email);
+        observations.stage(REDIS, () -> readYourWrites.markWritten(email));   // verify / resend right after must not hit a lagging replica
 
-        // 6) Map to safe response
+        // 4) Post-save: create OTP and send verification asynchronously
+        // OTP stored in Redis with TTL (e.g., 10 minutes); failures reach the exception handler as they are
+        log.debug("Queueing registration OTP for user {}", saved.getId());
+        otpService.createAndQueueOtpForEmail(
+                saved.getEmail(),
+                OtpPurpose.REGISTER
+        );
+
+        // 5) Map to safe response
 
         return UserResponse.builder()
                 .id(saved.getId())
@@ -98,6 +128,10 @@ public class AuthService {
 
     @Transactional
     public void verifyEmailOtp(String email, String otpCode) {
+        observations.flow("verify_email", () -> doVerifyEmailOtp(email, otpCode));
+    }
+
+    private void doVerifyEmailOtp(String email, String otpCode) {
 
         boolean isValid = otpService.verifyOtp(
                 email,
@@ -109,21 +143,27 @@ public class AuthService {
             throw new InvalidOtpException("Invalid or expired OTP");
         }
 
-        User user = userRepository.findByEmailIgnoreCase(email)
+        String normalizedEmail = EmailNormalizer.normalize(email);
+        UserSnapshot user = observations.stage(CACHE, () -> userCache.findByEmail(normalizedEmail))
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        user.setEnabled(true);
-
-        userRepository.save(user);
+        // Single UPDATE by primary key, no SELECT + dirty-check round trip
+        observations.stage(DB, () -> userShards.onShardOf(normalizedEmail, () -> userRepository.enableById(user.getId())));
+        shardSplit.afterWrite(normalizedEmail);
+        observations.stage(CACHE, () -> userCache.evict(normalizedEmail));
     }
 
-    @Transactional
+    // Read-only lookups go through the user cache; the DB only sees cache misses
     public void resendEmailOtp(String emailRaw) {
+        observations.flow("resend_otp", () -> doResendEmailOtp(emailRaw));
+    }
 
-        String email = emailRaw.trim().toLowerCase(Locale.ROOT);
+    private void doResendEmailOtp(String emailRaw) {
+
+        String email = EmailNormalizer.normalize(emailRaw);
 
         // 1) Check user exists
-        User user = userRepository.findByEmailIgnoreCase(email)
+        UserSnapshot user = observations.stage(CACHE, () -> userCache.findByEmail(email))
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
 
         // 2) (Optional) If already verified, don't resend
@@ -132,19 +172,23 @@ public class AuthService {
         }
 
         // 3) Re-create OTP and send it
-        System.out.println(" Resending OTP for: " + email);
+        log.debug("Resending registration OTP for user {}", user.getId());
         otpService.createAndQueueOtpForEmail(
                 email,
                 OtpPurpose.REGISTER
-        );    }
+        );
+    }
 
-    @Transactional
     public void forgotPassword(String emailRaw){
+        observations.flow("forgot_password", () -> doForgotPassword(emailRaw));
+    }
+
+    private void doForgotPassword(String emailRaw){
 
-        String email = emailRaw.trim().toLowerCase(Locale.ROOT);
+        String email = EmailNormalizer.normalize(emailRaw);
 
-        userRepository.findByEmailIgnoreCase(email)
-                .filter(User::isEnabled)
+        observations.stage(CACHE, () -> userCache.findByEmail(email))
+                .filter(UserSnapshot::isEnabled)
                 .ifPresent(user ->
                         otpService.createAndQueueOtpForEmail(
                                 email,
@@ -155,52 +199,145 @@ public class AuthService {
 
     public void verifyForgotPasswordOtp(String email, String otpCode) {
 
-        boolean ok = otpService.verifyOtp(email, otpCode, OtpPurpose.FORGOT_PASSWORD);
+        // Verify, consume and set the otp_verified flag in one atomic Redis call
+        boolean ok = observations.flow("verify_reset_otp",
+                () -> otpService.verifyAndMarkOtp(email, otpCode, OtpPurpose.FORGOT_PASSWORD));
 
         if (!ok) {
             throw new RuntimeException("Invalid or expired OTP");
         }
-
-        // ✅ THIS LINE goes here
-        otpService.markOtpVerified(email, OtpPurpose.FORGOT_PASSWORD);
     }
 
     public void resetPassword(ResetPasswordRequest req){
+        observations.flow("reset_password", () -> doResetPassword(req));
+    }
+
+    private void doResetPassword(ResetPasswordRequest req){
 
-        String email = req.getEmail().trim().toLowerCase();
+        String email = EmailNormalizer.normalize(req.getEmail());
 
-        //  1) Check email exists
-        User user = userRepository.findByEmailIgnoreCase(email)
+        //  1) Validate passwords match (before touching the otp_verified flag)
+        if (!req.getNewPassword().equals(req.getConfirmPassword())) {
+            throw new RuntimeException("New password and confirm password do not match");
+        }
+
+        //  2) Check email exists
+        UserSnapshot user = observations.stage(CACHE, () -> userCache.findByEmail(email))
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
 
-        //  2) Check otp_verified flag (VERY IMPORTANT)
-        boolean verified = otpService.isOtpVerified(email, OtpPurpose.FORGOT_PASSWORD);
-        if (!verified) {
+        //  3) Check and consume otp_verified flag (VERY IMPORTANT)
+        //     A single DEL, so two concurrent resets can't both pass
+        OtpVerifiedFlag verified = otpService.consumeOtpVerified(email, OtpPurpose.FORGOT_PASSWORD);
+        if (!verified.taken()) {
             throw new RuntimeException("OTP not verified. Please verify OTP first.");
         }
 
-        // 3) Validate passwords match
-        if (!req.getNewPassword().equals(req.getConfirmPassword())) {
-            throw new RuntimeException("New password and confirm password do not match");
+        // 4) Encode password, 5) update it in the DB; if either fails (pool full, DB down) the flag
+        //    goes back, so the user can retry without another OTP round
+        try {
+            String encodedPassword = observations.stage(HASH, () -> passwordHashingService.hash(req.getNewPassword()));
+            observations.stage(DB, () -> userShards.onShardOf(email, () -> userRepository.updatePasswordHash(user.getId(), encodedPassword)));
+        } catch (RuntimeException e) {
+            try {
+                otpService.restoreOtpVerified(email, OtpPurpose.FORGOT_PASSWORD, verified);
+            } catch (RuntimeException restoreFailure) {
+                e.addSuppressed(restoreFailure);   // the original failure is what the caller gets
+            }
+            throw e;
         }
+        shardSplit.afterWrite(email);
+        observations.stage(CACHE, () -> userCache.evict(email));
+
+        // 6) Sign out everywhere: tokens issued before the reset stop working on every node
+        observations.stage(REDIS, () -> revocationService.revokeAllForUser(user.getId()));
+
+    }
+
+    // Not @Transactional either: BCrypt runs on the hashing pool with no connection held
+    public AuthTokenResponse login(LoginRequest req, String clientIp, String userAgent) {
+        return observations.flow("login", () -> doLogin(req, clientIp, userAgent));
+    }
 
-        // 4) Encode password
-        String encodedPassword = passwordEncoder.encode(req.getNewPassword());
+    private AuthTokenResponse doLogin(LoginRequest req, String clientIp, String userAgent) {
 
-        // 5) Update password in DB
-        user.setPasswordHash(encodedPassword);
-        userRepository.save(user);
+        String email = EmailNormalizer.normalize(req.getEmail());
 
-        // 6) Delete Redis flags
-        otpService.clearOtpVerified(email, OtpPurpose.FORGOT_PASSWORD);
+        // 1) Load credentials (the cached snapshot deliberately has no password hash);
+        //    a replica serves it unless the user just verified / reset their password
+        Optional<User> user = observations.stage(DB, () -> userShards.onShardOf(email, () -> readYourWrites.read(email, () -> {
+            Optional<User> found = userRepository.findByEmailNormalized(email);
+            if (found.isEmpty() && !emailBackfill.isComplete()) {
+                found = userRepository.findByEmailIgnoreCase(email);
+            }
+            return found;
+        })));
 
+        // 2) Verify on the hashing pool; unknown emails cost one BCrypt too, so timing doesn't tell them apart
+        PasswordHashingService.PasswordVerification verification = observations.stage(HASH,
+                () -> passwordHashingService.verify(req.getPassword(), user.map(User::getPasswordHash).orElse(null)));
 
+        if (!verification.matched()) {
+            throw new InvalidCredentialsException("Invalid email or password");
+        }
+        if (!user.get().isEnabled()) {
+            throw new InvalidCredentialsException("Email not verified. Please verify your email first.");
+        }
+
+        // 3) Stored hash below the current cost: persist the upgraded one
+        if (verification.needsRehash()) {
+            observations.stage(DB, () -> userShards.onShardOf(email,
+                    () -> userRepository.updatePasswordHash(user.get().getId(), verification.upgradedHash())));
+            shardSplit.afterWrite(email);
+        }
+
+        // 4) New session (may end the oldest one over the per-user limit), then its tokens
+        UserSnapshot snapshot = UserSnapshot.from(user.get());
+        lastLogins.record(snapshot.getId(), email);
+        String sessionId = observations.stage(REDIS, () -> sessionService.create(snapshot, clientIp, userAgent));
+        String refreshToken = observations.stage(REDIS, () -> refreshTokenService.issue(snapshot, sessionId));
+        return tokens(snapshot, sessionId, refreshToken);
     }
 
+    public AuthTokenResponse refresh(String refreshToken) {
 
+        // 1) Rotate (single Lua call); a replayed token revokes its family and fails here
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
 
+        // 2) Current role / status from the user cache, so a demoted or removed user gets no new token;
+        //    a family started before a password reset / revoke-all is dead too
+        UserSnapshot user = userCache.findByEmail(rotation.email())
+                .filter(UserSnapshot::isEnabled)
+                .orElse(null);
 
+        if (user == null) {
+            refreshTokenService.revoke(rotation.refreshToken());
+            throw new InvalidTokenException("Account is no longer active");
+        }
+        if (revocationService.isRevokedForUser(user.getId(), rotation.familyIssuedAt())
+                || !sessionService.touch(user.getId(), rotation.familyId())) {
+            refreshTokenService.revoke(rotation.refreshToken());
+            throw new InvalidTokenException("Session has ended; please log in again");
+        }
 
+        return tokens(user, rotation.familyId(), rotation.refreshToken());
+    }
+
+    // accessToken is the caller's verified bearer token, if one was sent
+    public void logout(String refreshToken, JwtService.AccessTokenClaims accessToken) {
+        refreshTokenService.revoke(refreshToken)
+                .ifPresent(session -> sessionService.end(session.userId(), session.id()));
+        if (accessToken != null) {
+            revocationService.revokeToken(accessToken.jti(), accessToken.expiresAt());
+        }
+    }
 
+    private AuthTokenResponse tokens(UserSnapshot user, String sessionId, String refreshToken) {
+        return AuthTokenResponse.builder()
+                .accessToken(jwtService.generateAccessToken(user, sessionId))
+                .refreshToken(refreshToken)
+                .tokenType("Bearer")
+                .expiresIn(jwtService.accessTokenTtlSeconds())
+                .build();
+    }
 }
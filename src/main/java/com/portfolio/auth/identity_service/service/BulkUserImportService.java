@@ -0,0 +1,461 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.portfolio.auth.identity_service.config.BulkImportProperties;
+import com.portfolio.auth.identity_service.datasource.ShardContext;
+import com.portfolio.auth.identity_service.dto.BulkImportReport;
+import com.portfolio.auth.identity_service.dto.BulkImportRow;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.exception.ServiceOverloadedException;
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import com.portfolio.auth.identity_service.util.SqlErrors;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a bulk user import (NDJSON or CSV) line by line, so memory use depends on the
+ * chunk size, not on the upload size.
+ *
+ * Per chunk: validate, dedupe against users in one IN query, hash plain passwords in
+ * parallel on the hashing pool (pre-hashed BCrypt values are taken as-is), insert with one
+ * JDBC batch, then checkpoint progress to Redis. Re-running with the same jobId skips the
+ * lines already checkpointed; a chunk that was inserted but not checkpointed before a
+ * crash is simply reported as duplicates on the second run. Sharded, the dedupe query and
+ * the batch are split by the rows' shards.
+ */
+@Slf4j
+@Service
+public class BulkUserImportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+    private static final String INSERT_SQL = """
+            INSERT INTO users (id, name, email, email_normalized, password_hash, phone_number,
+                               role, enabled, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate batchTransaction;
+    private final StringRedisTemplate redisTemplate;
+    private final PasswordHashingService passwordHashingService;
+    private final OtpService otpService;
+    private final UserShards userShards;
+    private final ShardSplit shardSplit;
+    private final Validator validator;
+    private final ObjectReader rowReader;
+    private final BulkImportProperties props;
+
+    public BulkUserImportService(JdbcTemplate jdbcTemplate,
+                                 NamedParameterJdbcTemplate namedJdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 StringRedisTemplate redisTemplate,
+                                 PasswordHashingService passwordHashingService,
+                                 OtpService otpService,
+                                 UserShards userShards,
+                                 ShardSplit shardSplit,
+                                 Validator validator,
+                                 ObjectMapper objectMapper,
+                                 BulkImportProperties props) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        // One transaction per batch: a failed batch leaves none of its rows behind for the retry
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.redisTemplate = redisTemplate;
+        this.passwordHashingService = passwordHashingService;
+        this.otpService = otpService;
+        this.userShards = userShards;
+        this.shardSplit = shardSplit;
+        this.validator = validator;
+        this.rowReader = objectMapper.readerFor(BulkImportRow.class);
+        this.props = props;
+    }
+
+    public BulkImportReport importUsers(String jobIdOrNull, InputStream body, Format format, boolean sendVerification)
+            throws IOException {
+
+        String jobId = jobIdOrNull == null || jobIdOrNull.isBlank() ? UUID.randomUUID().toString() : jobIdOrNull;
+        long resumeAfter = readLong(jobId, "processed");
+        setField(jobId, "status", "RUNNING");
+
+        if (resumeAfter > 0) {
+            log.info("Resuming bulk import {} after line {}", jobId, resumeAfter);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String[] csvHeader = format == Format.CSV ? parseCsvLine(reader.readLine()) : null;
+
+            List<ParsedRow> chunk = new ArrayList<>(props.getChunkSize());
+            List<String> unparseable = new ArrayList<>();
+            long lineNo = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo <= resumeAfter || line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    BulkImportRow row = format == Format.CSV ? fromCsv(csvHeader, line) : rowReader.readValue(line);
+                    chunk.add(new ParsedRow(lineNo, row));
+                } catch (IOException | IllegalArgumentException e) {
+                    unparseable.add("line " + lineNo + ": unparseable row");
+                }
+
+                if (chunk.size() >= props.getChunkSize()) {
+                    processChunk(jobId, chunk, unparseable, lineNo, sendVerification);
+                    chunk.clear();
+                    unparseable.clear();
+                }
+            }
+
+            processChunk(jobId, chunk, unparseable, lineNo, sendVerification);
+            setField(jobId, "status", "COMPLETED");
+        } catch (IOException | RuntimeException e) {
+            setField(jobId, "status", "FAILED");
+            throw e;
+        }
+
+        return getReport(jobId);
+    }
+
+    public BulkImportReport getReport(String jobId) {
+        Map<Object, Object> job = hash().entries(jobKey(jobId));
+        List<String> errors = redisTemplate.opsForList().range(errorsKey(jobId), 0, 99);
+
+        return BulkImportReport.builder()
+                .jobId(jobId)
+                .status((String) job.getOrDefault("status", "UNKNOWN"))
+                .processedLines(parseLong(job.get("processed")))
+                .inserted(parseLong(job.get("inserted")))
+                .duplicates(parseLong(job.get("duplicates")))
+                .failed(parseLong(job.get("failed")))
+                .errors(errors == null ? List.of() : errors)
+                .build();
+    }
+
+    // Unparseable lines of the chunk are reported and counted as failed with its checkpoint
+    private void processChunk(String jobId, List<ParsedRow> chunk, List<String> unparseable, long lastLineNo,
+                              boolean sendVerification) {
+        List<String> errors = new ArrayList<>(unparseable);
+        long duplicates = 0;
+
+        // 1) Validate + dedupe inside the chunk
+        Map<String, ParsedRow> byEmail = new LinkedHashMap<>();
+        for (ParsedRow parsed : chunk) {
+            String problem = validate(parsed.row);
+            if (problem != null) {
+                errors.add("line " + parsed.lineNo + ": " + problem);
+                continue;
+            }
+            if (byEmail.putIfAbsent(EmailNormalizer.normalize(parsed.row.getEmail()), parsed) != null) {
+                duplicates++;
+            }
+        }
+
+        // 2) Dedupe against the table, one indexed IN query per chunk
+        if (!byEmail.isEmpty()) {
+            Set<String> existing = findExisting(byEmail.keySet());
+            duplicates += existing.size();
+            byEmail.keySet().removeAll(existing);
+        }
+
+        // 3) Hash plain passwords in parallel, 4) batch insert
+        List<Object[]> inserts = buildInserts(byEmail, errors);
+        InsertResult result = insert(inserts, errors);
+        duplicates += result.duplicates;
+        result.insertedEmails.forEach(shardSplit::afterWrite);
+
+        // 5) Optional verification OTPs for the rows we actually created
+        if (sendVerification) {
+            for (String email : result.insertedUnverifiedEmails) {
+                otpService.createAndQueueOtpForEmail(email, OtpPurpose.REGISTER);
+            }
+        }
+
+        // 6) Checkpoint
+        String key = jobKey(jobId);
+        hash().increment(key, "inserted", result.inserted);
+        hash().increment(key, "duplicates", duplicates);
+        hash().increment(key, "failed", errors.size());
+        hash().put(key, "processed", String.valueOf(lastLineNo));
+        redisTemplate.expire(key, props.getJobTtl());
+        recordErrors(jobId, errors);
+    }
+
+    private List<Object[]> buildInserts(Map<String, ParsedRow> byEmail, List<String> errors) {
+        Map<String, CompletableFuture<String>> hashes = new HashMap<>();
+        Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+
+        for (Map.Entry<String, ParsedRow> entry : byEmail.entrySet()) {
+            BulkImportRow row = entry.getValue().row;
+            if (row.getPasswordHash() != null) {
+                hashes.put(entry.getKey(), CompletableFuture.completedFuture(row.getPasswordHash()));
+                continue;
+            }
+            // The hashing pool sheds load when its queue is full: wait for our oldest job and retry
+            while (true) {
+                try {
+                    CompletableFuture<String> future = passwordHashingService.hashAsync(row.getPassword());
+                    hashes.put(entry.getKey(), future);
+                    inFlight.add(future);
+                    break;
+                } catch (ServiceOverloadedException e) {
+                    if (inFlight.isEmpty()) {
+                        throw e;
+                    }
+                    inFlight.poll().exceptionally(ex -> null).join();
+                }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> inserts = new ArrayList<>(byEmail.size());
+        byEmail.forEach((email, parsed) -> {
+            String passwordHash;
+            try {
+                passwordHash = hashes.get(email).join();
+            } catch (CompletionException e) {
+                errors.add("line " + parsed.lineNo + ": password hashing failed");
+                return;
+            }
+            BulkImportRow row = parsed.row;
+            inserts.add(new Object[]{
+                    TimeOrderedIds.next(userShards.shardOf(email)),
+                    row.getName().trim(),
+                    email,
+                    email,
+                    passwordHash,
+                    row.getPhoneNumber() == null ? null : row.getPhoneNumber().trim(),
+                    row.getRole() == null ? User.Role.USER.name() : row.getRole().trim().toUpperCase(Locale.ROOT),
+                    Boolean.TRUE.equals(row.getEnabled()),
+                    Timestamp.valueOf(now),
+                    Timestamp.valueOf(now)
+            });
+        });
+        return inserts;
+    }
+
+    private InsertResult insert(List<Object[]> inserts, List<String> errors) {
+        InsertResult result = new InsertResult();
+
+        // One batch per shard; the normalized email (insert[3]) decides it
+        Map<Integer, List<Object[]>> byShard = new HashMap<>();
+        for (Object[] insert : inserts) {
+            byShard.computeIfAbsent(userShards.shardOf((String) insert[3]), shard -> new ArrayList<>()).add(insert);
+        }
+        byShard.forEach((shard, rows) -> ShardContext.on(shard, () -> insertBatch(rows, errors, result)));
+        return result;
+    }
+
+    private void insertBatch(List<Object[]> inserts, List<String> errors, InsertResult result) {
+        try {
+            batchTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, inserts));
+            inserts.forEach(result::inserted);
+        } catch (DataIntegrityViolationException batchFailure) {
+            // Someone registered one of these emails since the dedupe query. The batch was rolled
+            // back as a whole (drivers differ in what they keep of a failed one): retry row by row
+            for (Object[] insert : inserts) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, insert);
+                    result.inserted(insert);
+                } catch (DataIntegrityViolationException e) {
+                    if (SqlErrors.isDuplicateKey(e)) {
+                        result.duplicates++;
+                    } else {
+                        errors.add(insert[2] + ": rejected by database");
+                    }
+                }
+            }
+        }
+    }
+
+    private Set<String> findExisting(Set<String> emails) {
+        Map<Integer, List<String>> byShard = new HashMap<>();
+        for (String email : emails) {
+            byShard.computeIfAbsent(userShards.shardOf(email), shard -> new ArrayList<>()).add(email);
+        }
+
+        // email IN (...) as well, for legacy rows the email_normalized backfill hasn't reached yet
+        Set<String> existing = new HashSet<>();
+        byShard.forEach((shard, shardEmails) -> {
+            List<String> found = ShardContext.on(shard, () -> namedJdbcTemplate.queryForList(
+                    "SELECT email FROM users WHERE email_normalized IN (:emails) OR email IN (:emails)",
+                    Map.of("emails", shardEmails),
+                    String.class));
+            for (String email : found) {
+                existing.add(EmailNormalizer.normalize(email));
+            }
+        });
+        return existing;
+    }
+
+    private String validate(BulkImportRow row) {
+        Set<ConstraintViolation<BulkImportRow>> violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<BulkImportRow> first = violations.iterator().next();
+            return first.getPropertyPath() + " " + first.getMessage();
+        }
+        if (row.getPasswordHash() == null && row.getPassword() == null) {
+            return "password or passwordHash is required";
+        }
+        if (row.getPasswordHash() != null && !BCRYPT_HASH.matcher(row.getPasswordHash()).matches()) {
+            return "passwordHash must be a BCrypt hash";
+        }
+        if (row.getRole() != null) {
+            try {
+                User.Role.valueOf(row.getRole().trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return "unknown role " + row.getRole();
+            }
+        }
+        return null;
+    }
+
+    private BulkImportRow fromCsv(String[] header, String line) {
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header missing");
+        }
+        String[] values = parseCsvLine(line);
+        Map<String, String> byColumn = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            byColumn.put(header[i].trim(), values[i].isEmpty() ? null : values[i]);
+        }
+
+        String enabled = byColumn.get("enabled");
+        return BulkImportRow.builder()
+                .name(byColumn.get("name"))
+                .email(byColumn.get("email"))
+                .password(byColumn.get("password"))
+                .passwordHash(byColumn.get("passwordHash"))
+                .phoneNumber(byColumn.get("phoneNumber"))
+                .role(byColumn.get("role"))
+                .enabled(enabled == null ? null : Boolean.parseBoolean(enabled))
+                .build();
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and "" escapes
+    static String[] parseCsvLine(String line) {
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields.toArray(String[]::new);
+    }
+
+    private void recordErrors(String jobId, List<String> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        String key = errorsKey(jobId);
+        redisTemplate.opsForList().leftPushAll(key, errors);
+        redisTemplate.opsForList().trim(key, 0, props.getMaxErrorsKept() - 1);
+        redisTemplate.expire(key, props.getJobTtl());
+    }
+
+    private void setField(String jobId, String field, String value) {
+        hash().put(jobKey(jobId), field, value);
+        redisTemplate.expire(jobKey(jobId), props.getJobTtl());
+    }
+
+    private long readLong(String jobId, String field) {
+        return parseLong(hash().get(jobKey(jobId), field));
+    }
+
+    private HashOperations<String, Object, Object> hash() {
+        return redisTemplate.opsForHash();
+    }
+
+    private static String jobKey(String jobId) {
+        return "import:job:" + jobId;
+    }
+
+    private static String errorsKey(String jobId) {
+        return "import:job:" + jobId + ":errors";
+    }
+
+    private static long parseLong(Object value) {
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    private record ParsedRow(long lineNo, BulkImportRow row) {
+    }
+
+    private static final class InsertResult {
+        private long inserted;
+        private long duplicates;
+        private final List<String> insertedEmails = new ArrayList<>();
+        private final List<String> insertedUnverifiedEmails = new ArrayList<>();
+
+        private void inserted(Object[] insert) {
+            inserted++;
+            insertedEmails.add((String) insert[3]);
+            if (!Boolean.TRUE.equals(insert[7])) {
+                insertedUnverifiedEmails.add((String) insert[3]);
+            }
+        }
+    }
+}
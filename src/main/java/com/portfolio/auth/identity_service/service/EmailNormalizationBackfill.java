@@ -0,0 +1,181 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.datasource.ShardContext;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills users.email_normalized for rows written before the column existed.
+ *
+ * Works in small keyset chunks (WHERE email_normalized IS NULL AND id > ? ORDER BY id),
+ * each its own short statement, so only the chunk's rows are locked. It is resumable by
+ * construction: a restart simply picks up the rows that are still NULL. A Redis lock
+ * (RedisLock) keeps the work on one node; every node re-checks completion so lookups can stop falling back
+ * to the IgnoreCase query. Rows left NULL by a normalization conflict keep the fallback on: those users are
+ * still only reachable through it. Sharded, it walks the shards one after the other.
+ */
+@Slf4j
+@Service
+public class EmailNormalizationBackfill {
+
+    private static final String LOCK_KEY = "migration:email_normalized:lock";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserShards userShards;
+    private final RedisLock lock;
+    private final int chunkSize;
+    private final Duration pause;
+
+    private volatile boolean complete;
+    private volatile boolean conflictsRemaining;
+
+    public EmailNormalizationBackfill(JdbcTemplate jdbcTemplate,
+                                      UserShards userShards,
+                                      StringRedisTemplate redisTemplate,
+                                      @Value("${migration.email-normalized.chunk-size:1000}") int chunkSize,
+                                      @Value("${migration.email-normalized.pause:200ms}") Duration pause) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userShards = userShards;
+        this.lock = new RedisLock(redisTemplate, LOCK_KEY, Duration.ofMinutes(5));
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /** The backfill stopped with conflicting rows left NULL; they need a manual fix. */
+    public boolean hasConflictsRemaining() {
+        return conflictsRemaining;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInBackground() {
+        Thread worker = new Thread(this::run, "email-normalized-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void run() {
+        while (!complete) {
+            try {
+                if (!hasPendingRows()) {
+                    complete = true;
+                    log.info("users.email_normalized backfill complete");
+                    return;
+                }
+                if (lock.tryAcquire()) {
+                    try {
+                        if (backfill() == 0 && hasPendingRows()) {
+                            // Only conflicting rows left (logged below), nothing more we can do. Not complete:
+                            // lookups keep the IgnoreCase fallback so those users can still sign in
+                            conflictsRemaining = true;
+                            log.warn("email_normalized backfill stopped with unresolved conflicts, fallback stays on");
+                            return;
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                } else {
+                    Thread.sleep(30_000);   // another node is on it, just re-check later
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (DataAccessException e) {
+                log.warn("email_normalized backfill paused: {}", e.getMessage());
+                sleepQuietly(30_000);
+            }
+        }
+    }
+
+    private long backfill() throws InterruptedException {
+        long updated = 0;
+        for (int shard : userShards.shards()) {
+            updated += backfillShard(shard);
+        }
+        log.info("email_normalized backfill pass finished, {} rows updated", updated);
+        return updated;
+    }
+
+    private long backfillShard(int shard) throws InterruptedException {
+        long lastId = 0;
+        long updated = 0;
+
+        while (true) {
+            long after = lastId;
+            List<Map<String, Object>> rows = ShardContext.on(shard, () -> jdbcTemplate.queryForList(
+                    "SELECT id, email FROM users WHERE email_normalized IS NULL AND id > ? ORDER BY id LIMIT ?",
+                    after, chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<Object[]> args = rows.stream()
+                    .map(row -> new Object[]{EmailNormalizer.normalize((String) row.get("email")), row.get("id")})
+                    .toList();
+            updated += ShardContext.on(shard, () -> updateChunk(args));
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+
+            lock.renew();   // lost it during a slow chunk: stop, the new holder carries on
+            log.debug("email_normalized backfill: {} rows updated on shard {}, cursor at id {}", updated, shard, lastId);
+            Thread.sleep(pause.toMillis());
+        }
+        return updated;
+    }
+
+    private int updateChunk(List<Object[]> args) {
+        String sql = "UPDATE users SET email_normalized = ? WHERE id = ? AND email_normalized IS NULL";
+        try {
+            int[] counts = jdbcTemplate.batchUpdate(sql, args);
+            int total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        } catch (DataIntegrityViolationException e) {
+            // Two legacy rows normalize to the same value: do the chunk row by row and leave the
+            // conflicting rows NULL for manual review instead of blocking the whole migration
+            int total = 0;
+            for (Object[] row : args) {
+                try {
+                    total += jdbcTemplate.update(sql, row);
+                } catch (DataIntegrityViolationException conflict) {
+                    log.error("✗ email_normalized conflict for user id {}, left NULL", row[1]);
+                }
+            }
+            return total;
+        }
+    }
+
+    private boolean hasPendingRows() {
+        for (int shard : userShards.shards()) {
+            if (ShardContext.on(shard,
+                    () -> !jdbcTemplate.queryForList("SELECT id FROM users WHERE email_normalized IS NULL LIMIT 1").isEmpty())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
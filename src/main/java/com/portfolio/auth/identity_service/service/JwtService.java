@@ -0,0 +1,93 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.JwtProperties;
+import com.portfolio.auth.identity_service.dto.UserSnapshot;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.exception.InvalidTokenException;
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Issues and verifies HS256 access tokens.
+ *
+ * The signing key and the parser are built once at startup and shared by all threads, so
+ * verifying a token is an HMAC plus a small JSON parse: no DB, no Redis, no per-request
+ * key derivation. Everything the filter chain needs (id, email, role, session) is in the claims.
+ */
+@Service
+public class JwtService {
+
+    private static final String CLAIM_EMAIL = "email";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_SESSION = "sid";
+
+    private final JwtProperties props;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+
+    public JwtService(JwtProperties props) {
+        byte[] secret = props.getSecret() == null ? new byte[0] : props.getSecret().getBytes(StandardCharsets.UTF_8);
+        if (secret.length < 32) {
+            throw new IllegalStateException("jwt.secret must be at least 32 bytes for HS256");
+        }
+
+        this.props = props;
+        this.signingKey = Keys.hmacShaKeyFor(secret);
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .requireIssuer(props.getIssuer())
+                .clockSkewSeconds(props.getClockSkewSeconds())
+                .build();
+    }
+
+    public String generateAccessToken(UserSnapshot user, String sessionId) {
+        long now = System.currentTimeMillis();
+
+        return Jwts.builder()
+                .issuer(props.getIssuer())
+                .subject(String.valueOf(user.getId()))
+                .id(Long.toString(TimeOrderedIds.next(), 36))   // unique across nodes, no SecureRandom needed
+                .claim(CLAIM_EMAIL, user.getEmail())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .claim(CLAIM_SESSION, sessionId)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + props.getAccessTokenExpirationMs()))
+                .signWith(signingKey, Jwts.SIG.HS256)
+                .compact();
+    }
+
+    public AccessTokenClaims parseAccessToken(String token) {
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            return new AccessTokenClaims(
+                    Long.parseLong(claims.getSubject()),
+                    claims.get(CLAIM_EMAIL, String.class),
+                    User.Role.valueOf(claims.get(CLAIM_ROLE, String.class)),
+                    claims.getId(),
+                    claims.get(CLAIM_SESSION, String.class),
+                    claims.getIssuedAt().toInstant(),
+                    claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException | NullPointerException e) {
+            throw new InvalidTokenException("Invalid or expired access token");
+        }
+    }
+
+    public long accessTokenTtlSeconds() {
+        return props.getAccessTokenExpirationMs() / 1000;
+    }
+
+    // Verified token contents; also the Authentication principal
+    public record AccessTokenClaims(long userId, String email, User.Role role, String jti, String sessionId,
+                                    Instant issuedAt, Instant expiresAt) {
+    }
+}
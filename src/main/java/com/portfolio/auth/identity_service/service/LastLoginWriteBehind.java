@@ -0,0 +1,219 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.LastLoginProperties;
+import com.portfolio.auth.identity_service.datasource.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind for users.last_login.
+ *
+ * A login only puts (userId -> time) into a map, keeping the latest time per user, so a user
+ * logging in many times between flushes costs one row update. Every flushInterval the map is
+ * drained into UPDATE ... CASE statements of up to batchSize rows each. GREATEST keeps the
+ * newest value when several nodes flush the same user out of order. updated_at is left alone
+ * on purpose: a login is not a change to the account.
+ *
+ * At most maxPending users wait in memory; a flush that fails puts its rows back for the next
+ * one, and whatever is pending is flushed on shutdown. A crash loses at most one interval.
+ *
+ * Pending logins are kept per users shard and each shard gets its own UPDATEs; during a
+ * shard split a login is also written to the user's shadow owner.
+ */
+@Slf4j
+@Service
+public class LastLoginWriteBehind {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskScheduler taskScheduler;
+    private final LastLoginProperties props;
+    private final UserShards userShards;
+
+    private final Map<Integer, ConcurrentHashMap<Long, Long>> pending = new TreeMap<>();   // per shard, fixed key set
+    private final AtomicLong oldestPendingAt = new AtomicLong();   // epoch ms of the oldest unflushed login, 0 = none
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+
+    private final DistributionSummary flushSize;
+    private final Timer flushLag;
+    private final Timer flushTime;
+    private final Counter flushFailures;
+    private final Counter dropped;
+
+    public LastLoginWriteBehind(JdbcTemplate jdbcTemplate,
+                                TaskScheduler taskScheduler,
+                                LastLoginProperties props,
+                                UserShards userShards,
+                                MeterRegistry registry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.taskScheduler = taskScheduler;
+        this.props = props;
+        this.userShards = userShards;
+        for (int shard : userShards.shards()) {
+            pending.put(shard, new ConcurrentHashMap<>());
+        }
+
+        Gauge.builder("users.last_login.pending", this, LastLoginWriteBehind::pendingCount)
+                .description("Users whose last login is not in the DB yet")
+                .register(registry);
+        this.flushSize = DistributionSummary.builder("users.last_login.flush.size")
+                .description("Rows written per flush")
+                .register(registry);
+        this.flushLag = Timer.builder("users.last_login.flush.lag")
+                .description("Age of the oldest login a flush wrote")
+                .register(registry);
+        this.flushTime = registry.timer("users.last_login.flush");
+        this.flushFailures = registry.counter("users.last_login.flush.failures");
+        this.dropped = registry.counter("users.last_login.dropped");
+    }
+
+    @PostConstruct
+    void start() {
+        taskScheduler.scheduleWithFixedDelay(this::flush,
+                Instant.now().plus(props.getFlushInterval()), props.getFlushInterval());
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+    }
+
+    public void record(long userId, String normalizedEmail) {
+        long now = System.currentTimeMillis();
+        ConcurrentHashMap<Long, Long> shardPending = pending.get(userShards.shardOf(normalizedEmail));
+
+        if (pendingCount() >= props.getMaxPending()) {
+            requestEarlyFlush();
+            if (!shardPending.containsKey(userId)) {
+                dropped.increment();
+                return;
+            }
+        }
+        shardPending.merge(userId, now, Math::max);
+        userShards.shadowShardOf(normalizedEmail)
+                .ifPresent(shadow -> pending.get(shadow).merge(userId, now, Math::max));
+        oldestPendingAt.compareAndSet(0, now);
+    }
+
+    void flush() {
+        earlyFlushScheduled.set(false);
+        if (pendingCount() == 0) {
+            return;
+        }
+
+        long oldest = oldestPendingAt.getAndSet(0);
+        Timer.Sample sample = Timer.start();
+        int written = 0;
+        try {
+            for (Map.Entry<Integer, ConcurrentHashMap<Long, Long>> shard : pending.entrySet()) {
+                written += flushShard(shard.getKey(), shard.getValue(), oldest);
+            }
+        } finally {
+            sample.stop(flushTime);
+        }
+
+        if (written > 0) {
+            flushSize.record(written);
+            if (oldest > 0) {
+                flushLag.record(Duration.ofMillis(System.currentTimeMillis() - oldest));
+            }
+            log.debug("Last-login flush wrote {} users", written);
+        }
+    }
+
+    private int flushShard(int shard, ConcurrentHashMap<Long, Long> shardPending, long oldest) {
+        // 1) Drain: a login racing with this lands in the map again and goes out next time
+        Map<Long, Long> batch = new HashMap<>();
+        for (Long userId : shardPending.keySet()) {
+            Long at = shardPending.remove(userId);
+            if (at != null) {
+                batch.put(userId, at);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // 2) One UPDATE per batchSize users, on this shard
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(batch.entrySet());
+        int written = 0;
+        try {
+            for (int from = 0; from < rows.size(); from += props.getBatchSize()) {
+                List<Map.Entry<Long, Long>> chunk = rows.subList(from, Math.min(rows.size(), from + props.getBatchSize()));
+                ShardContext.on(shard, () -> jdbcTemplate.update(updateSql(chunk.size()), parameters(chunk)));
+                written += chunk.size();
+            }
+        } catch (DataAccessException e) {
+            // 3) Put the unwritten rows back (newer logins win) and retry with the next flush
+            flushFailures.increment();
+            rows.subList(written, rows.size()).forEach(row -> shardPending.merge(row.getKey(), row.getValue(), Math::max));
+            oldestPendingAt.accumulateAndGet(oldest, (a, b) -> a == 0 ? b : Math.min(a, b));
+            log.warn("✗ Last-login flush failed on shard {} after {} of {} users, retrying later: {}",
+                    shard, written, rows.size(), e.getMessage());
+        }
+        return written;
+    }
+
+    private int pendingCount() {
+        int count = 0;
+        for (ConcurrentHashMap<Long, Long> shardPending : pending.values()) {
+            count += shardPending.size();
+        }
+        return count;
+    }
+
+    private void requestEarlyFlush() {
+        if (earlyFlushScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::flush, Instant.now());
+        }
+    }
+
+    // UPDATE users SET last_login = GREATEST(COALESCE(last_login, ?), CASE id WHEN ? THEN ? ... END) WHERE id IN (?, ...)
+    private static String updateSql(int rows) {
+        StringBuilder sql = new StringBuilder(64 + rows * 24)
+                .append("UPDATE users SET last_login = GREATEST(COALESCE(last_login, ?), CASE id");
+        for (int i = 0; i < rows; i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END) WHERE id IN (");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private static Object[] parameters(List<Map.Entry<Long, Long>> chunk) {
+        Object[] params = new Object[1 + chunk.size() * 3];
+        params[0] = new Timestamp(0);
+        int i = 1;
+        for (Map.Entry<Long, Long> row : chunk) {
+            params[i++] = row.getKey();
+            params[i++] = new Timestamp(row.getValue());
+        }
+        for (Map.Entry<Long, Long> row : chunk) {
+            params[i++] = row.getKey();
+        }
+        return params;
+    }
+}
@@ -0,0 +1,177 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.OtpResilienceProperties;
+import com.portfolio.auth.identity_service.config.OtpStoreProperties;
+import com.portfolio.auth.identity_service.util.TimingWheel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This node's in-memory stand-in for the Redis OTP hash, used only while Redis is unavailable
+ * (otp.resilience.local-fallback). Same rules as the scripts: one entry per email with purpose,
+ * code, failed attempts, verified flag and last used code; each operation is one atomic
+ * compute() on the entry.
+ *
+ * Bounded by maxEntries (a full store answers 503). Expiry runs on a timing wheel advanced
+ * once per tick, so there is no timer per entry; lookups also check the deadline themselves.
+ */
+@Component
+public class LocalOtpStore {
+
+    private static final int WHEEL_SLOTS = 1024;
+
+    private final OtpResilienceProperties.LocalFallback props;
+    private final int maxAttempts;
+    private final TaskScheduler taskScheduler;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final TimingWheel<String> expiry;
+
+    public LocalOtpStore(OtpResilienceProperties resilienceProperties,
+                         OtpStoreProperties storeProperties,
+                         TaskScheduler taskScheduler,
+                         MeterRegistry registry) {
+        this.props = resilienceProperties.getLocalFallback();
+        this.maxAttempts = storeProperties.getMaxAttempts();
+        this.taskScheduler = taskScheduler;
+        this.expiry = new TimingWheel<>(props.getTick(), WHEEL_SLOTS, System.currentTimeMillis());
+
+        Gauge.builder("otp.store.local.entries", entries, Map::size)
+                .description("OTPs held in this node's memory because Redis was unavailable")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (props.isEnabled()) {
+            taskScheduler.scheduleAtFixedRate(() -> expiry.advance(System.currentTimeMillis(), this::expire), props.getTick());
+        }
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    // Cheap check before falling back to this store for a code Redis doesn't know
+    public boolean holds(String normalizedEmail) {
+        return !entries.isEmpty() && entries.containsKey(normalizedEmail);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void issue(String normalizedEmail, OtpPurpose purpose, String code, Duration ttl) {
+        if (entries.size() >= props.getMaxEntries() && !entries.containsKey(normalizedEmail)) {
+            throw new DataAccessResourceFailureException("OTP store temporarily unavailable");
+        }
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        entries.put(normalizedEmail, new Entry(purpose, code, 0, false, null, expiresAt));
+        expiry.schedule(normalizedEmail, expiresAt);
+    }
+
+    public OtpVerificationOutcome verify(String normalizedEmail, OtpPurpose purpose, String code, Duration verifiedTtl) {
+        long now = System.currentTimeMillis();
+        OtpVerificationOutcome[] outcome = {OtpVerificationOutcome.EXPIRED};
+
+        entries.computeIfPresent(normalizedEmail, (email, entry) -> {
+            if (entry.expiresAt() <= now) {
+                return null;
+            }
+            if (entry.purpose() != purpose) {
+                return entry;
+            }
+            if (entry.code() == null) {
+                outcome[0] = entry.attempts() >= maxAttempts ? OtpVerificationOutcome.LOCKED
+                        : code.equals(entry.usedCode()) ? OtpVerificationOutcome.REUSED
+                        : OtpVerificationOutcome.EXPIRED;
+                return entry;
+            }
+            if (!entry.code().equals(code)) {
+                int attempts = entry.attempts() + 1;
+                if (attempts >= maxAttempts) {
+                    outcome[0] = OtpVerificationOutcome.LOCKED;
+                    return new Entry(purpose, null, attempts, entry.verified(), entry.usedCode(), entry.expiresAt());
+                }
+                outcome[0] = OtpVerificationOutcome.MISMATCH;
+                return new Entry(purpose, entry.code(), attempts, entry.verified(), entry.usedCode(), entry.expiresAt());
+            }
+
+            outcome[0] = OtpVerificationOutcome.VERIFIED;
+            boolean flag = !verifiedTtl.isZero();
+            long expiresAt = flag ? now + verifiedTtl.toMillis() : entry.expiresAt();
+            if (expiresAt != entry.expiresAt()) {
+                expiry.schedule(email, expiresAt);
+            }
+            return new Entry(purpose, null, entry.attempts(), flag || entry.verified(), code, expiresAt);
+        });
+        return outcome[0];
+    }
+
+    // True for exactly one caller per verified code
+    public boolean consumeVerified(String normalizedEmail, OtpPurpose purpose) {
+        long now = System.currentTimeMillis();
+        boolean[] taken = {false};
+
+        entries.computeIfPresent(normalizedEmail, (email, entry) -> {
+            if (entry.expiresAt() <= now) {
+                return null;
+            }
+            if (entry.purpose() != purpose || !entry.verified()) {
+                return entry;
+            }
+            taken[0] = true;
+            return new Entry(purpose, entry.code(), entry.attempts(), false, entry.usedCode(), entry.expiresAt());
+        });
+        return taken[0];
+    }
+
+    // Undoes consumeVerified; false if the entry expired or a new code was issued since
+    public boolean restoreVerified(String normalizedEmail, OtpPurpose purpose) {
+        long now = System.currentTimeMillis();
+        boolean[] restored = {false};
+
+        entries.computeIfPresent(normalizedEmail, (email, entry) -> {
+            if (entry.expiresAt() <= now) {
+                return null;
+            }
+            if (entry.purpose() != purpose || entry.code() != null) {
+                return entry;
+            }
+            restored[0] = true;
+            return new Entry(purpose, null, entry.attempts(), true, entry.usedCode(), entry.expiresAt());
+        });
+        return restored[0];
+    }
+
+    // Redis has the identity's current state again
+    public void remove(String normalizedEmail) {
+        if (!entries.isEmpty()) {
+            entries.remove(normalizedEmail);
+        }
+    }
+
+    // Called by the wheel; an entry whose deadline moved (verified flag) goes back on the wheel
+    private void expire(String normalizedEmail) {
+        long now = System.currentTimeMillis();
+        entries.computeIfPresent(normalizedEmail, (email, entry) -> {
+            if (entry.expiresAt() <= now) {
+                return null;
+            }
+            expiry.schedule(email, entry.expiresAt());
+            return entry;
+        });
+    }
+
+    private record Entry(OtpPurpose purpose, String code, int attempts, boolean verified, String usedCode,
+                         long expiresAt) {
+    }
+}
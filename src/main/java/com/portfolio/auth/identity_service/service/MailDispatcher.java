@@ -0,0 +1,243 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.MailDispatchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded mail pipeline: callers enqueue, a fixed set of workers drain the queue
+ * and send in batches so one SMTP connection/handshake is shared by the whole batch
+ * (JavaMailSender.send(MimeMessage...) opens a single Transport per call).
+ *
+ * Concurrent SMTP sessions are capped by a semaphore rather than by the worker count,
+ * so the cap also holds for CALLER_RUNS sends and when the workers are virtual threads
+ * (spring.threads.virtual.enabled).
+ */
+@Slf4j
+@Service
+public class MailDispatcher {
+
+    private final JavaMailSender mailSender;
+    private final MailDispatchProperties props;
+    private final BlockingQueue<MimeMessage> queue;
+    private final Semaphore smtpPermits;
+    private final ThreadFactory workerFactory;
+
+    private final Timer sendTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public MailDispatcher(JavaMailSender mailSender, MailDispatchProperties props, MeterRegistry registry,
+                          Environment environment) {
+        this.mailSender = mailSender;
+        this.props = props;
+        this.queue = new ArrayBlockingQueue<>(props.getQueueCapacity());
+        this.smtpPermits = new Semaphore(props.getMaxConcurrentSends(), true);
+        this.workerFactory = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("mail-dispatch-").getVirtualThreadFactory()
+                : this::platformWorker;
+
+        Gauge.builder("mail.dispatch.queue.depth", queue, BlockingQueue::size)
+                .description("Messages waiting for a mail worker")
+                .register(registry);
+        Gauge.builder("mail.dispatch.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .register(registry);
+
+        this.sendTimer = Timer.builder("mail.dispatch.send")
+                .description("Time to deliver one batch over SMTP")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("mail.dispatch.batch.size")
+                .register(registry);
+        this.sentCounter = registry.counter("mail.dispatch.messages", "outcome", "sent");
+        this.failedCounter = registry.counter("mail.dispatch.messages", "outcome", "failed");
+        this.rejectedCounter = registry.counter("mail.dispatch.messages", "outcome", "rejected");
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < props.getWorkers(); i++) {
+            Thread worker = workerFactory.newThread(this::workerLoop);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    private Thread platformWorker(Runnable task) {
+        Thread worker = new Thread(task, "mail-dispatch-" + workers.size());
+        worker.setDaemon(true);
+        return worker;
+    }
+
+    public void submit(MimeMessage message) {
+        if (running && queue.offer(message)) {
+            return;
+        }
+
+        switch (props.getRejectionPolicy()) {
+            case CALLER_RUNS -> sendBatch(List.of(message));
+            case BLOCK -> {
+                try {
+                    if (running && queue.offer(message, props.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                reject(message);
+            }
+            case DROP -> reject(message);
+        }
+    }
+
+    // Sends the batch synchronously and returns the messages that could not be delivered
+    public Set<MimeMessage> sendBatch(List<MimeMessage> batch) {
+        if (batch.isEmpty()) {
+            return Set.of();
+        }
+
+        try {
+            smtpPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCounter.increment(batch.size());
+            return new HashSet<>(batch);
+        }
+
+        batchSizes.record(batch.size());
+        Timer.Sample sample = Timer.start();
+        Set<MimeMessage> failed = new HashSet<>();
+
+        try {
+            mailSender.send(batch.toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            e.getFailedMessages().forEach((msg, ex) -> {
+                if (msg instanceof MimeMessage mime) {
+                    failed.add(mime);
+                }
+                log.error("✗ Failed to send mail to {}", recipients(msg), ex);
+            });
+            if (e.getFailedMessages().isEmpty()) {
+                failed.addAll(batch);
+                log.error("✗ Failed to send mail batch of {}", batch.size(), e);
+            }
+        } catch (MailAuthenticationException e) {
+            failed.addAll(batch);
+            log.error("✗ Mail authentication failed, check SMTP username/password and app permissions", e);
+        } catch (MailException e) {
+            failed.addAll(batch);
+            log.error("✗ Unexpected error sending mail batch of {}", batch.size(), e);
+        } finally {
+            sample.stop(sendTimer);
+            smtpPermits.release();
+        }
+
+        sentCounter.increment(batch.size() - failed.size());
+        failedCounter.increment(failed.size());
+        return failed;
+    }
+
+    private void workerLoop() {
+        List<MimeMessage> batch = new ArrayList<>(props.getBatchSize());
+        long lingerNanos = props.getBatchLinger().toNanos();
+
+        while (running || !queue.isEmpty()) {
+            try {
+                MimeMessage first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch, waiting at most batchLinger for stragglers
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < props.getBatchSize()) {
+                    queue.drainTo(batch, props.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= props.getBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    MimeMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("✗ Mail worker error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void reject(MimeMessage message) {
+        rejectedCounter.increment();
+        log.warn("✗ Mail queue full ({}), dropping mail to {}", props.getQueueCapacity(), recipients(message));
+    }
+
+    private static String recipients(Object message) {
+        if (message instanceof MimeMessage mime) {
+            try {
+                Address[] to = mime.getRecipients(Message.RecipientType.TO);
+                if (to != null) {
+                    return InternetAddress.toString(to);
+                }
+            } catch (MessagingException e) {
+                // fall through
+            }
+        }
+        return "unknown";
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + props.getShutdownTimeout().toNanos();
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Mail dispatcher stopped with {} unsent messages", queue.size());
+        }
+    }
+}
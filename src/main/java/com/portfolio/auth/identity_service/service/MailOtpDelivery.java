@@ -0,0 +1,20 @@
+package com.portfolio.auth.identity_service.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Service;
+
+// Default mode: hand the mail straight to the in-process MailDispatcher queue, in the request's language
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "otp.delivery.mode", havingValue = "direct", matchIfMissing = true)
+public class MailOtpDelivery implements OtpDeliveryChannel {
+
+    private final MailService mailService;
+
+    @Override
+    public void deliver(String email, String otpCode, OtpPurpose purpose) {
+        mailService.sendOtpEmail(email, otpCode, purpose, LocaleContextHolder.getLocale());
+    }
+}
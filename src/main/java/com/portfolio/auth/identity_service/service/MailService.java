@@ -1,60 +1,126 @@
 package com.portfolio.auth.identity_service.service;
 
-import lombok.RequiredArgsConstructor;
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.MailAuthenticationException;
-import org.springframework.mail.MailSendException;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Locale;
+
+/**
+ * Builds the OTP mails (multipart/alternative, text + HTML, in the user's language) and hands
+ * them to the MailDispatcher.
+ *
+ * Everything that doesn't depend on the recipient or the code is prepared once: MailTemplates
+ * holds the encoded subject and the complete encoded body per purpose and language, the From
+ * address is parsed here. A message is then a few header strings plus the rendered body bytes;
+ * sending writes those bytes as they are instead of re-encoding MIME parts. Message ids come
+ * from TimeOrderedIds instead of a local host lookup per message.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class MailService {
 
-    private final JavaMailSender mailSender;
+    private final MailDispatcher mailDispatcher;
+    private final MailTemplates templates;
+    private final Session session;
+    private final String from;
+    private final String messageIdDomain;
 
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    public MailService(MailDispatcher mailDispatcher,
+                       MailTemplates templates,
+                       JavaMailSender mailSender,
+                       @Value("${spring.mail.username}") String fromEmail) {
+        this.mailDispatcher = mailDispatcher;
+        this.templates = templates;
+        this.session = mailSender.createMimeMessage().getSession();
+        try {
+            this.from = new InternetAddress(fromEmail, true).toString();
+        } catch (AddressException e) {
+            throw new IllegalStateException("spring.mail.username is not a valid sender address: " + fromEmail, e);
+        }
+        this.messageIdDomain = fromEmail.substring(fromEmail.indexOf('@') + 1);
+    }
 
-    @Async
-    public void sendOtpEmail(String toEmail, String otpCode) {
-        String subject = "Your OTP Verification Code";
+    // Non-blocking: the message is queued and sent in a batch by the MailDispatcher workers
+    public void sendOtpEmail(String toEmail, String otpCode, OtpPurpose purpose, Locale locale) {
+        mailDispatcher.submit(buildOtpMessage(toEmail, otpCode, purpose, locale));
+        log.debug("Queued {} OTP email to {}", purpose, toEmail);
+    }
 
-        String text = """
-                Hello,
+    public MimeMessage buildOtpMessage(String toEmail, String otpCode, OtpPurpose purpose, Locale locale) {
+        MailTemplates.OtpMail mail = templates.otp(purpose, locale);
 
-                Your OTP verification code is: %s
+        try {
+            return new PreparedMimeMessage(session, messageIdDomain,
+                    mail.render(otpCode).getBytes(StandardCharsets.US_ASCII),
+                    from, new InternetAddress(toEmail).toString(), mail);
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Could not build OTP mail to " + toEmail, e);
+        }
+    }
 
-                This code will expire in 10 minutes.
+    // Headers and raw, already encoded content; saveChanges() only adds the Message-ID and the
+    // Date (required by RFC 5322) and writeTo() writes both out as they are (MimeBodyPart.writeTo
+    // would look up a StreamProvider per call)
+    private static final class PreparedMimeMessage extends MimeMessage {
 
-                If you did not request this, you can ignore this email.
-                """.formatted(otpCode);
+        private static final byte[] CRLF = {'\r', '\n'};
 
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(fromEmail);
-        message.setTo(toEmail);
-        message.setSubject(subject);
-        message.setText(text);
+        private final String messageIdDomain;
 
-        try {
-            log.info("Attempting to send email from {} to {}", fromEmail, toEmail);
-            log.info("Email subject: {}", subject);
-
-            mailSender.send(message);
-            log.info("✓ OTP email sent successfully to {}", toEmail);
-
-        } catch (MailAuthenticationException e) {
-            log.error("✗ Mail authentication failed for {}", fromEmail, e);
-            log.error("Check SMTP username/password and app permissions");
-        } catch (MailSendException e) {
-            log.error("✗ Failed to send mail to {}", toEmail, e);
-            log.error("Check recipient email format and SMTP configuration");
-        } catch (Exception e) {
-            log.error("✗ Unexpected error sending email to {}", toEmail, e);
+        private PreparedMimeMessage(Session session, String messageIdDomain, byte[] body,
+                                    String from, String to, MailTemplates.OtpMail mail) throws MessagingException {
+            super(session);
+            this.messageIdDomain = messageIdDomain;
+            this.content = body;
+            setHeader("From", from);
+            setHeader("To", to);
+            setHeader("Subject", mail.encodedSubject());
+            setHeader("MIME-Version", "1.0");
+            setHeader("Content-Language", mail.language());
+            setHeader("Content-Type", mail.contentType());
+            setHeader("Content-Transfer-Encoding", "7bit");
+        }
+
+        @Override
+        protected void updateHeaders() throws MessagingException {
+            updateMessageID();
+            if (getHeader("Date") == null) {
+                setSentDate(new Date());
+            }
+        }
+
+        @Override
+        protected void updateMessageID() throws MessagingException {
+            setHeader("Message-ID", "<" + Long.toString(TimeOrderedIds.next(), 36) + "@" + messageIdDomain + ">");
+        }
+
+        @Override
+        public void writeTo(OutputStream os, String[] ignoreList) throws IOException, MessagingException {
+            if (!saved) {
+                saveChanges();
+            }
+            Enumeration<String> lines = getNonMatchingHeaderLines(ignoreList);
+            while (lines.hasMoreElements()) {
+                os.write(lines.nextElement().getBytes(StandardCharsets.UTF_8));
+                os.write(CRLF);
+            }
+            os.write(CRLF);
+            os.write(content);
+            os.flush();
         }
     }
-}
\ No newline at end of file
+}
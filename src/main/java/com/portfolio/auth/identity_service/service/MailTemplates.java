@@ -0,0 +1,202 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.MailTemplateProperties;
+import com.portfolio.auth.identity_service.util.CompiledTemplate;
+import jakarta.mail.internet.MimeUtility;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * The OTP mail templates, one text + HTML pair per purpose and language, read and compiled once
+ * at startup (a missing or broken template fails the boot, not a send).
+ *
+ * A .txt template starts with a "Subject: ..." line and a blank line, then the body; the .html
+ * file is the HTML body. {{expiryMinutes}} is filled in here, {{code}} per message.
+ *
+ * Compiling produces the complete multipart/alternative body, both parts already
+ * quoted-printable encoded with their part headers and boundaries, plus the RFC 2047 subject.
+ * Sending one is then a single render of that body: no MIME objects, no per-message encoding.
+ * This relies on the code being a few ASCII digits, which need no escaping in either part.
+ */
+@Slf4j
+@Component
+public class MailTemplates {
+
+    private static final String SUBJECT_PREFIX = "Subject:";
+    private static final String CODE = "code";
+    private static final String CODE_PLACEHOLDER = CompiledTemplate.OPEN + CODE + CompiledTemplate.CLOSE;
+    private static final String CRLF = "\r\n";
+    private static final int QP_LINE_LENGTH = 76;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Map<OtpPurpose, Map<String, OtpMail>> otpMails = new EnumMap<>(OtpPurpose.class);
+    private final String defaultLanguage;
+
+    public MailTemplates(MailTemplateProperties props) {
+        this.defaultLanguage = props.getDefaultLocale().getLanguage();
+        Map<String, String> constants = Map.of("expiryMinutes", String.valueOf(OtpServiceImpl.OTP_EXPIRY_MINUTES));
+
+        for (OtpPurpose purpose : OtpPurpose.values()) {
+            String name = "otp-" + purpose.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            Map<String, OtpMail> byLanguage = new HashMap<>();
+            for (Locale locale : props.getLocales()) {
+                String language = locale.getLanguage();
+                String base = props.getLocation() + name + "_" + language;
+                byLanguage.put(language, compile(name + "_" + language, language,
+                        read(base + ".txt"), read(base + ".html"), constants));
+            }
+            if (!byLanguage.containsKey(defaultLanguage)) {
+                throw new IllegalStateException("No " + defaultLanguage + " mail template for " + purpose
+                        + "; mail.templates.locales must include mail.templates.default-locale");
+            }
+            otpMails.put(purpose, Map.copyOf(byLanguage));
+        }
+        log.info("✓ Compiled OTP mail templates for {}", props.getLocales());
+    }
+
+    // Falls back to the default language; never null
+    public OtpMail otp(OtpPurpose purpose, Locale locale) {
+        Map<String, OtpMail> byLanguage = otpMails.get(purpose);
+        OtpMail mail = locale == null ? null : byLanguage.get(locale.getLanguage());
+        return mail != null ? mail : byLanguage.get(defaultLanguage);
+    }
+
+    private static OtpMail compile(String name, String language, String text, String html,
+                                   Map<String, String> constants) {
+        if (!text.startsWith(SUBJECT_PREFIX)) {
+            throw new IllegalStateException("Mail template " + name + " must start with '" + SUBJECT_PREFIX + "'");
+        }
+        int endOfSubject = text.indexOf('\n');
+        String subject = substitute(text.substring(SUBJECT_PREFIX.length(), endOfSubject).strip(), constants,
+                UnaryOperator.identity());
+        String textBody = substitute(text.substring(endOfSubject + 1).stripLeading(), constants, UnaryOperator.identity());
+        String htmlBody = substitute(html, constants, MailTemplates::escapeHtml);
+
+        // "=_" can't occur in quoted-printable output, so the boundary can't clash with the content
+        String boundary = "=_" + name;
+        String body = part(boundary, "text/plain; charset=UTF-8", textBody)
+                + part(boundary, "text/html; charset=UTF-8", htmlBody)
+                + "--" + boundary + "--" + CRLF;
+
+        try {
+            String encodedSubject = MimeUtility.fold(SUBJECT_PREFIX.length() + 1,
+                    MimeUtility.encodeText(subject, StandardCharsets.UTF_8.name(), "Q"));
+            return new OtpMail(language, encodedSubject, "multipart/alternative; boundary=\"" + boundary + "\"",
+                    CompiledTemplate.compile(body, List.of(CODE)));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 not available", e);
+        }
+    }
+
+    private static String part(String boundary, String contentType, String content) {
+        return "--" + boundary + CRLF
+                + "Content-Type: " + contentType + CRLF
+                + "Content-Transfer-Encoding: quoted-printable" + CRLF
+                + CRLF
+                + quotedPrintable(content) + CRLF;
+    }
+
+    private static String substitute(String source, Map<String, String> constants, UnaryOperator<String> escaper) {
+        String result = source;
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            result = result.replace(CompiledTemplate.OPEN + constant.getKey() + CompiledTemplate.CLOSE,
+                    escaper.apply(constant.getValue()));
+        }
+        return result;
+    }
+
+    // RFC 2045 quoted-printable of the UTF-8 text with CRLF line breaks; placeholders are kept whole
+    static String quotedPrintable(String text) {
+        StringBuilder out = new StringBuilder(text.length() + text.length() / 8);
+        String[] lines = text.split("\n", -1);
+        for (int l = 0; l < lines.length; l++) {
+            if (l > 0) {
+                out.append(CRLF);
+            }
+            String line = lines[l];
+            int column = 0;
+            int i = 0;
+            while (i < line.length()) {
+                String token;
+                int close = line.startsWith(CompiledTemplate.OPEN, i) ? line.indexOf(CompiledTemplate.CLOSE, i) : -1;
+                if (close > 0) {
+                    token = line.substring(i, close + CompiledTemplate.CLOSE.length());
+                    i = close + CompiledTemplate.CLOSE.length();
+                } else {
+                    int codePoint = line.codePointAt(i);
+                    i += Character.charCount(codePoint);
+                    token = encode(codePoint, i == line.length());
+                }
+                if (column + token.length() > QP_LINE_LENGTH - 1) {
+                    out.append('=').append(CRLF);   // soft line break
+                    column = 0;
+                }
+                out.append(token);
+                column += token.length();
+            }
+        }
+        return out.toString();
+    }
+
+    private static String encode(int codePoint, boolean endOfLine) {
+        boolean printable = codePoint >= 33 && codePoint <= 126 && codePoint != '=';
+        boolean innerSpace = (codePoint == ' ' || codePoint == '\t') && !endOfLine;
+        if (printable || innerSpace) {
+            return String.valueOf((char) codePoint);
+        }
+        StringBuilder encoded = new StringBuilder(12);
+        for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+            encoded.append('=').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+        return encoded.toString();
+    }
+
+    private static String escapeHtml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String read(String path) {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read mail template " + path, e);
+        }
+    }
+
+    /**
+     * Immutable skeleton of one OTP mail: header values ready to set as they are, and the
+     * compiled, already encoded multipart body (7bit-safe ASCII once rendered).
+     */
+    public record OtpMail(String language, String encodedSubject, String contentType, CompiledTemplate body) {
+
+        public String render(String code) {
+            // Must stay QP- and HTML-safe and no wider than the placeholder, so no line grows past 76
+            if (code.isEmpty() || code.length() > CODE_PLACEHOLDER.length() || !digitsOnly(code)) {
+                throw new IllegalArgumentException("OTP code must be 1-" + CODE_PLACEHOLDER.length() + " digits");
+            }
+            return body.render(code);
+        }
+
+        private static boolean digitsOnly(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.portfolio.auth.identity_service.service;
+
+// How a freshly issued OTP reaches the user (selected with otp.delivery.mode)
+public interface OtpDeliveryChannel {
+
+    void deliver(String email, String otpCode, OtpPurpose purpose);
+}
@@ -0,0 +1,9 @@
+package com.portfolio.auth.identity_service.service;
+
+// Source of numeric OTP codes (see OtpGeneratorConfig for the available implementations)
+public interface OtpGenerator {
+
+    int DIGITS = 6;
+
+    String nextCode();
+}
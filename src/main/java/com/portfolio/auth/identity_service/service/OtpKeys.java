@@ -0,0 +1,49 @@
+package com.portfolio.auth.identity_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Redis key layout of OTP state; emails are expected already normalized.
+ *
+ *   otph:<id>   hash: p purpose, c code, a failed attempts, v verified flag, t issued at, u last used code
+ *
+ * <id> is the first 12 bytes of SHA-256(email), base64url: 16 characters whatever the address,
+ * and no address in the keyspace. The per-purpose string keys are the previous layout, still read
+ * while otp.store.legacy-fallback is on.
+ */
+public final class OtpKeys {
+
+    public static final String IDENTITY_PREFIX = "otph:";
+    public static final String LEGACY_CODE_PREFIX = "otp:";
+    public static final String LEGACY_VERIFIED_PREFIX = "otp_verified:";
+
+    private static final int IDENTITY_BYTES = 12;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private OtpKeys() {
+    }
+
+    public static String identity(String normalizedEmail) {
+        return IDENTITY_PREFIX + ENCODER.encodeToString(Arrays.copyOf(sha256(normalizedEmail), IDENTITY_BYTES));
+    }
+
+    public static String legacyCode(String normalizedEmail, OtpPurpose purpose) {
+        return LEGACY_CODE_PREFIX + purpose.name() + ":" + normalizedEmail;
+    }
+
+    public static String legacyVerified(String normalizedEmail, OtpPurpose purpose) {
+        return LEGACY_VERIFIED_PREFIX + purpose.name() + ":" + normalizedEmail;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.OtpStoreProperties;
+import com.portfolio.auth.identity_service.dto.OtpKeyspaceReport;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Key counts and estimated memory of the OTP keyspace, new and legacy layout, per purpose.
+ *
+ * Walks the keys with SCAN (never KEYS), in batches of SCAN_BATCH keys with one pipeline per
+ * batch. MEMORY USAGE and OBJECT ENCODING are only asked for the first reportSampleSize keys
+ * of each layout / purpose, so a report over millions of keys stays a few thousand cheap calls
+ * beyond the scan itself. Meant for an admin now and then, not for a dashboard poll.
+ */
+@Service
+@RequiredArgsConstructor
+public class OtpKeyspaceReporter {
+
+    private static final int SCAN_BATCH = 500;
+    private static final Duration REPLY_TIMEOUT = Duration.ofSeconds(10);
+
+    private final StringRedisTemplate redisTemplate;
+    private final OtpStoreProperties props;
+
+    public OtpKeyspaceReport report() {
+        List<OtpKeyspaceReport.Entry> entries = new ArrayList<>(
+                tally("hash", OtpKeys.IDENTITY_PREFIX + "*", this::purposesOf));
+        for (OtpPurpose purpose : OtpPurpose.values()) {
+            Function<List<String>, List<String>> fixed = keys -> Collections.nCopies(keys.size(), purpose.name());
+            entries.addAll(tally("legacy_code", OtpKeys.LEGACY_CODE_PREFIX + purpose.name() + ":*", fixed));
+            entries.addAll(tally("legacy_verified", OtpKeys.LEGACY_VERIFIED_PREFIX + purpose.name() + ":*", fixed));
+        }
+
+        return OtpKeyspaceReport.builder()
+                .generatedAt(Instant.now())
+                .sampleSize(props.getReportSampleSize())
+                .entries(entries)
+                .build();
+    }
+
+    // purposesOf maps a batch of keys to their purposes (null = key gone since the scan)
+    private List<OtpKeyspaceReport.Entry> tally(String layout, String pattern,
+                                                Function<List<String>, List<String>> purposesOf) {
+        Map<String, Tally> byPurpose = new TreeMap<>();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(1000).build();
+
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(SCAN_BATCH);
+            while (keys.hasNext()) {
+                batch.add(keys.next());
+                if (batch.size() == SCAN_BATCH || !keys.hasNext()) {
+                    count(batch, purposesOf.apply(batch), byPurpose);
+                    batch.clear();
+                }
+            }
+        }
+
+        List<OtpKeyspaceReport.Entry> entries = new ArrayList<>();
+        byPurpose.forEach((purpose, tally) -> {
+            long avg = tally.sampled == 0 ? 0 : tally.sampledBytes / tally.sampled;
+            entries.add(OtpKeyspaceReport.Entry.builder()
+                    .layout(layout)
+                    .purpose(purpose)
+                    .keys(tally.keys)
+                    .sampledKeys(tally.sampled)
+                    .avgBytes(avg)
+                    .estimatedBytes(avg * tally.keys)
+                    .encodings(tally.encodings)
+                    .build());
+        });
+        return entries;
+    }
+
+    private void count(List<String> keys, List<String> purposes, Map<String, Tally> byPurpose) {
+        // 1) Count every key; pick the ones still inside their purpose's sample
+        List<String> sample = new ArrayList<>();
+        List<Tally> sampleTallies = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (purposes.get(i) == null) {
+                continue;
+            }
+            Tally tally = byPurpose.computeIfAbsent(purposes.get(i), p -> new Tally());
+            tally.keys++;
+            if (tally.picked < props.getReportSampleSize()) {
+                tally.picked++;
+                sample.add(keys.get(i));
+                sampleTallies.add(tally);
+            }
+        }
+        if (sample.isEmpty()) {
+            return;
+        }
+
+        // 2) Size and encoding of the sample: Spring Data has no MEMORY USAGE, so Lettuce's async
+        //    API directly; all commands are written before the first reply is awaited
+        List<Object> results = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            @SuppressWarnings("unchecked")
+            RedisClusterAsyncCommands<byte[], byte[]> redis =
+                    (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+            List<RedisFuture<?>> futures = new ArrayList<>(sample.size() * 2);
+            for (String key : sample) {
+                byte[] raw = key.getBytes(StandardCharsets.UTF_8);
+                futures.add(redis.memoryUsage(raw));
+                futures.add(redis.objectEncoding(raw));
+            }
+            List<Object> replies = new ArrayList<>(futures.size());
+            for (RedisFuture<?> future : futures) {
+                replies.add(await(future));
+            }
+            return replies;
+        });
+
+        for (int i = 0; i < sample.size(); i++) {
+            Object bytes = results.get(2 * i);
+            Object encoding = results.get(2 * i + 1);
+            if (!(bytes instanceof Number size)) {
+                continue;   // expired in between
+            }
+            Tally tally = sampleTallies.get(i);
+            tally.sampled++;
+            tally.sampledBytes += size.longValue();
+            tally.encodings.merge(String.valueOf(encoding), 1L, Long::sum);
+        }
+    }
+
+    private static Object await(RedisFuture<?> future) {
+        try {
+            return future.get(REPLY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RedisSystemException("Interrupted while sizing OTP keys", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new RedisSystemException("Sizing OTP keys failed", e);
+        }
+    }
+
+    private List<String> purposesOf(List<String> keys) {
+        List<Object> purposes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (String key : keys) {
+                redis.hGet(key, "p");
+            }
+            return null;
+        });
+        List<String> result = new ArrayList<>(purposes.size());
+        for (Object purpose : purposes) {
+            result.add((String) purpose);
+        }
+        return result;
+    }
+
+    private static final class Tally {
+        long keys;
+        long picked;        // chosen for the sample; sampled = those that still existed
+        long sampled;
+        long sampledBytes;
+        final Map<String, Long> encodings = new TreeMap<>();
+    }
+}
@@ -0,0 +1,324 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.OtpOutboxProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static com.portfolio.auth.identity_service.service.RedisStreamOtpOutbox.FIELD_CODE;
+import static com.portfolio.auth.identity_service.service.RedisStreamOtpOutbox.FIELD_EMAIL;
+import static com.portfolio.auth.identity_service.service.RedisStreamOtpOutbox.FIELD_ISSUED_AT;
+import static com.portfolio.auth.identity_service.service.RedisStreamOtpOutbox.FIELD_LOCALE;
+import static com.portfolio.auth.identity_service.service.RedisStreamOtpOutbox.FIELD_PURPOSE;
+
+/**
+ * Consumer-group worker for the OTP outbox stream.
+ *
+ * Entries are acked (and deleted) only after SMTP accepted them. Failed entries stay
+ * in the group's pending list and are re-claimed after claimIdle by whichever node
+ * gets there first; after maxAttempts deliveries they are moved to the dead-letter stream.
+ *
+ * The code is read from the identity's OTP hash (one pipelined HMGET per batch) when the mail
+ * is built. An entry whose code was used, replaced by one for another purpose or has expired
+ * is acked without sending. Entries that still carry a code (written by an older version) are
+ * sent as they are. During a rolling upgrade, workers still on that version dead-letter the
+ * new entries as malformed; upgrade with otp.delivery.mode=direct or drain the stream first.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "otp.delivery.mode", havingValue = "outbox")
+public class OtpOutboxWorker {
+
+    private final StringRedisTemplate redisTemplate;
+    private final MailService mailService;
+    private final MailDispatcher mailDispatcher;
+    private final OtpOutboxProperties props;
+
+    private final Counter deliveredCounter;
+    private final Counter retriedCounter;
+    private final Counter deadLetteredCounter;
+    private final Counter expiredCounter;
+
+    private final String consumerName = ManagementFactory.getRuntimeMXBean().getName();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public OtpOutboxWorker(StringRedisTemplate redisTemplate,
+                           MailService mailService,
+                           MailDispatcher mailDispatcher,
+                           OtpOutboxProperties props,
+                           MeterRegistry registry) {
+        this.redisTemplate = redisTemplate;
+        this.mailService = mailService;
+        this.mailDispatcher = mailDispatcher;
+        this.props = props;
+
+        this.deliveredCounter = registry.counter("otp.outbox.events", "outcome", "delivered");
+        this.retriedCounter = registry.counter("otp.outbox.events", "outcome", "retried");
+        this.deadLetteredCounter = registry.counter("otp.outbox.events", "outcome", "dead_lettered");
+        this.expiredCounter = registry.counter("otp.outbox.events", "outcome", "expired");
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 0; i < props.getWorkers(); i++) {
+            Thread worker = new Thread(this::workerLoop, "otp-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    private void workerLoop() {
+        Consumer consumer = Consumer.from(props.getConsumerGroup(), consumerName);
+        StreamReadOptions readOptions = StreamReadOptions.empty()
+                .count(props.getBatchSize())
+                .block(props.getBlockTimeout());
+        long nextReclaim = 0;
+        boolean groupReady = false;
+
+        while (running) {
+            try {
+                if (!groupReady) {
+                    ensureGroup();
+                    groupReady = true;
+                }
+
+                if (System.currentTimeMillis() >= nextReclaim) {
+                    reclaimStale();
+                    nextReclaim = System.currentTimeMillis() + props.getClaimInterval().toMillis();
+                }
+
+                List<MapRecord<String, Object, Object>> records = stream().read(
+                        consumer, readOptions,
+                        StreamOffset.create(props.getStreamKey(), ReadOffset.lastConsumed()));
+
+                if (records != null && !records.isEmpty()) {
+                    process(records);
+                }
+            } catch (DataAccessException e) {
+                // Redis down, or stream/group deleted underneath us: back off and recreate
+                groupReady = false;
+                log.warn("OTP outbox read failed: {}", e.getMessage());
+                sleepQuietly(1000);
+            } catch (RuntimeException e) {
+                log.error("✗ OTP outbox worker error", e);
+                sleepQuietly(1000);
+            }
+        }
+    }
+
+    private void process(List<MapRecord<String, Object, Object>> records) {
+        List<RecordId> done = new ArrayList<>();
+        Map<RecordId, MimeMessage> toSend = new HashMap<>();
+        long oldestAllowed = System.currentTimeMillis() - props.getMaxEventAge().toMillis();
+        Map<String, String> currentCodes = currentCodes(records);
+
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> event = record.getValue();
+            Object email = event.get(FIELD_EMAIL);
+            OtpPurpose purpose = parsePurpose(event.get(FIELD_PURPOSE));
+
+            if (email == null || purpose == null) {
+                log.error("✗ Malformed OTP outbox entry {}", record.getId());
+                deadLetter(record, "malformed");
+                continue;
+            }
+            Object code = event.containsKey(FIELD_CODE)
+                    ? event.get(FIELD_CODE)
+                    : currentCodes.get(codeLookupKey(email.toString(), purpose));
+            if (code == null || parseLong(event.get(FIELD_ISSUED_AT)) < oldestAllowed) {
+                expiredCounter.increment();   // nothing left worth sending
+                done.add(record.getId());
+                continue;
+            }
+            Object language = event.get(FIELD_LOCALE);   // absent in entries written before it existed
+            Locale locale = language == null ? null : Locale.forLanguageTag(language.toString());
+            toSend.put(record.getId(), mailService.buildOtpMessage(email.toString(), code.toString(), purpose, locale));
+        }
+
+        if (!toSend.isEmpty()) {
+            Set<MimeMessage> failed = mailDispatcher.sendBatch(new ArrayList<>(toSend.values()));
+            toSend.forEach((id, message) -> {
+                if (failed.contains(message)) {
+                    retriedCounter.increment();   // stays pending, re-claimed after claimIdle
+                } else {
+                    deliveredCounter.increment();
+                    done.add(id);
+                }
+            });
+        }
+
+        acknowledge(done);
+    }
+
+    // (email, purpose) -> the code the identity's OTP hash holds for that purpose right now
+    private Map<String, String> currentCodes(List<MapRecord<String, Object, Object>> records) {
+        List<String> lookups = new ArrayList<>();
+        for (MapRecord<String, Object, Object> record : records) {
+            Object email = record.getValue().get(FIELD_EMAIL);
+            OtpPurpose purpose = parsePurpose(record.getValue().get(FIELD_PURPOSE));
+            if (email != null && purpose != null && !record.getValue().containsKey(FIELD_CODE)) {
+                lookups.add(codeLookupKey(email.toString(), purpose));
+            }
+        }
+        if (lookups.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Object> states = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (String lookup : lookups) {
+                redis.hMGet(OtpKeys.identity(lookup.substring(lookup.indexOf(':') + 1)), "p", "c");
+            }
+            return null;
+        });
+
+        Map<String, String> codes = new HashMap<>();
+        for (int i = 0; i < lookups.size(); i++) {
+            List<?> state = (List<?>) states.get(i);
+            String lookup = lookups.get(i);
+            if (state != null && lookup.startsWith(state.get(0) + ":") && state.get(1) != null) {
+                codes.put(lookup, state.get(1).toString());
+            }
+        }
+        return codes;
+    }
+
+    private static String codeLookupKey(String email, OtpPurpose purpose) {
+        return purpose.name() + ":" + email;
+    }
+
+    private void reclaimStale() {
+        PendingMessages pending = stream().pending(
+                props.getStreamKey(), props.getConsumerGroup(), Range.unbounded(), props.getBatchSize());
+
+        List<RecordId> toClaim = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(props.getClaimIdle()) < 0) {
+                continue;
+            }
+            if (message.getTotalDeliveryCount() >= props.getMaxAttempts()) {
+                List<MapRecord<String, Object, Object>> entry = stream().range(
+                        props.getStreamKey(), Range.closed(message.getIdAsString(), message.getIdAsString()));
+                if (entry.isEmpty()) {
+                    acknowledge(List.of(message.getId()));   // trimmed away, just drop the pending ref
+                } else {
+                    deadLetter(entry.get(0), "max_attempts");
+                }
+            } else {
+                toClaim.add(message.getId());
+            }
+        }
+
+        if (!toClaim.isEmpty()) {
+            List<MapRecord<String, Object, Object>> claimed = stream().claim(
+                    props.getStreamKey(), props.getConsumerGroup(), consumerName,
+                    props.getClaimIdle(), toClaim.toArray(RecordId[]::new));
+            if (!claimed.isEmpty()) {
+                log.info("Re-claimed {} stale OTP outbox entries", claimed.size());
+                process(claimed);
+            }
+        }
+    }
+
+    private void deadLetter(MapRecord<String, Object, Object> record, String reason) {
+        Map<Object, Object> event = new HashMap<>(record.getValue());
+        event.put("source_id", record.getId().getValue());
+        event.put("reason", reason);
+
+        stream().add(
+                MapRecord.create(props.getDeadLetterKey(), event),
+                XAddOptions.maxlen(props.getMaxLength()).approximateTrimming(true));
+        acknowledge(List.of(record.getId()));
+
+        deadLetteredCounter.increment();
+        log.error("✗ OTP outbox entry {} dead-lettered ({})", record.getId(), reason);
+    }
+
+    private void acknowledge(List<RecordId> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        RecordId[] idArray = ids.toArray(RecordId[]::new);
+        stream().acknowledge(props.getStreamKey(), props.getConsumerGroup(), idArray);
+        stream().delete(props.getStreamKey(), idArray);
+    }
+
+    private void ensureGroup() {
+        try {
+            stream().createGroup(props.getStreamKey(), ReadOffset.from("0"), props.getConsumerGroup());
+        } catch (RedisSystemException e) {
+            // BUSYGROUP: already created by us or another node
+            String cause = e.getMostSpecificCause().getMessage();
+            if (cause == null || !cause.contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    private StreamOperations<String, Object, Object> stream() {
+        return redisTemplate.opsForStream();
+    }
+
+    private static long parseLong(Object value) {
+        try {
+            return value == null ? Long.MAX_VALUE : Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static OtpPurpose parsePurpose(Object value) {
+        try {
+            return value == null ? null : OtpPurpose.valueOf(value.toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(props.getBlockTimeout().toMillis() + 1000);
+        }
+    }
+}
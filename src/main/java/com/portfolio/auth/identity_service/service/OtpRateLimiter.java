@@ -0,0 +1,141 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.portfolio.auth.identity_service.config.RateLimitProperties;
+import com.portfolio.auth.identity_service.exception.RateLimitExceededException;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-email and per-IP token buckets for the OTP endpoints.
+ *
+ * Each bucket is checked and consumed by its own Redis script call (the two keys live on
+ * different Redis Cluster slots); the email bucket is only touched once the IP bucket granted
+ * a token. In front of them, an in-process fixed window per key rejects obvious floods
+ * without a round trip: a bucket can grant at most 2 x capacity per period (full burst +
+ * full refill), so once one node alone has seen more than that for a key, the shared
+ * bucket is certainly empty.
+ * Redis errors fail open (the local window still applies); the call shares the OTP path's
+ * deadline and circuit breaker, so an outage costs at most one command timeout per request.
+ * The IP is the request's remote address, which server.forward-headers-strategy resolves to
+ * the client behind the load balancer (see application.yaml).
+ */
+@Slf4j
+@Service
+public class OtpRateLimiter {
+
+    private static final RedisScript<List> RATE_LIMIT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/rate-limit.lua"), List.class);
+
+    private static final String EMAIL = "email";
+    private static final String IP = "ip";
+
+    private final OtpRedis otpRedis;
+    private final RateLimitProperties props;
+    private final MeterRegistry registry;
+    private final Cache<String, LocalWindow> localWindows;
+
+    public OtpRateLimiter(OtpRedis otpRedis, RateLimitProperties props, MeterRegistry registry) {
+        this.otpRedis = otpRedis;
+        this.props = props;
+        this.registry = registry;
+        this.localWindows = Caffeine.newBuilder()
+                .maximumSize(props.getLocalMaxKeys())
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    public void check(RateLimitPolicy policy, OtpPurpose purpose, String emailRaw, String clientIp) {
+        RateLimitProperties.Policy config = props.getPolicies().get(policy.getConfigKey());
+        if (!props.isEnabled() || config == null) {
+            return;
+        }
+
+        String email = emailRaw == null ? "" : EmailNormalizer.normalize(emailRaw);
+        String prefix = "rl:" + policy.getConfigKey() + ":" + purpose.name() + ":";
+        String emailKey = prefix + EMAIL + ":" + email;
+        String ipKey = prefix + IP + ":" + clientIp;
+
+        // 1) Local pre-filter, no Redis round trip
+        rejectIfLocallyExceeded(policy, EMAIL, emailKey, config.getEmail());
+        rejectIfLocallyExceeded(policy, IP, ipKey, config.getIp());
+
+        // 2) Shared token buckets, one script call per key: the email and IP keys hash to different
+        //    cluster slots. IP first, so a client already over its IP limit can't drain the email's bucket
+        long retryAfterMs;
+        String keyClass = IP;
+        try {
+            retryAfterMs = consume(ipKey, config.getIp());
+            if (retryAfterMs <= 0) {
+                keyClass = EMAIL;
+                retryAfterMs = consume(emailKey, config.getEmail());
+            }
+        } catch (DataAccessException e) {
+            count(policy, "any", "fail_open");
+            log.warn("Rate limiter unavailable, allowing request: {}", e.getMessage());
+            return;
+        }
+
+        if (retryAfterMs <= 0) {
+            count(policy, "any", "allowed");
+            return;
+        }
+        count(policy, keyClass, "rejected");
+        throw tooManyRequests(retryAfterMs);
+    }
+
+    // Takes one token from the bucket; returns 0 if granted, otherwise the ms until one is available
+    private long consume(String key, RateLimitProperties.Limit limit) {
+        List<?> result = otpRedis.execute(() -> otpRedis.template().execute(
+                RATE_LIMIT_SCRIPT,
+                List.of(key),
+                String.valueOf(limit.getCapacity()),
+                String.valueOf(limit.getPeriod().toMillis())
+        ));
+        return result == null || result.isEmpty() ? 0 : ((Number) result.get(0)).longValue();
+    }
+
+    private void rejectIfLocallyExceeded(RateLimitPolicy policy, String keyClass, String key, RateLimitProperties.Limit limit) {
+        long periodMs = limit.getPeriod().toMillis();
+        long now = System.currentTimeMillis();
+
+        LocalWindow window = localWindows.asMap().compute(key, (k, current) ->
+                current == null || now - current.startedAt >= periodMs ? new LocalWindow(now) : current);
+
+        if (window.count.incrementAndGet() > 2L * limit.getCapacity()) {
+            count(policy, keyClass, "rejected_local");
+            throw tooManyRequests(window.startedAt + periodMs - now);
+        }
+    }
+
+    private RateLimitExceededException tooManyRequests(long retryAfterMs) {
+        long seconds = Math.max(1, (retryAfterMs + 999) / 1000);
+        return new RateLimitExceededException("Too many requests, please try again later", seconds);
+    }
+
+    private void count(RateLimitPolicy policy, String keyClass, String outcome) {
+        registry.counter("ratelimit.decisions",
+                "policy", policy.getConfigKey(),
+                "key_class", keyClass,
+                "outcome", outcome).increment();
+    }
+
+    private static final class LocalWindow {
+        private final long startedAt;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private LocalWindow(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.OtpResilienceProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Redis access for the OTP path (codes and their rate limits), built to fail fast.
+ *
+ * It has its own Lettuce connection to the same Redis, with a commandTimeout deadline per
+ * command and commands rejected at once while disconnected, instead of the shared
+ * connection's long timeout. Every call goes through the "otpRedis" circuit breaker; once it
+ * opens, calls fail without touching Redis until the probe calls succeed again. Both kinds
+ * of failure surface as DataAccessException (open breaker: DataAccessResourceFailureException,
+ * a 503 with Retry-After), so callers keep their usual Redis error handling.
+ */
+@Slf4j
+@Component
+public class OtpRedis implements DisposableBean {
+
+    public static final String BREAKER = "otpRedis";
+
+    private final LettuceConnectionFactory ownFactory;   // null when the shared factory isn't Lettuce
+    private final StringRedisTemplate template;
+    private final CircuitBreaker breaker;
+
+    public OtpRedis(RedisConnectionFactory sharedFactory,
+                    StringRedisTemplate sharedTemplate,
+                    OtpResilienceProperties props,
+                    MeterRegistry registry) {
+        if (sharedFactory instanceof LettuceConnectionFactory shared) {
+            this.ownFactory = new LettuceConnectionFactory(redisConfiguration(shared), clientConfiguration(shared, props));
+            ownFactory.afterPropertiesSet();
+            ownFactory.start();
+            this.template = new StringRedisTemplate(ownFactory);
+        } else {
+            log.warn("Redis client is not Lettuce, OTP calls use the shared connection and its timeout");
+            this.ownFactory = null;
+            this.template = sharedTemplate;
+        }
+
+        OtpResilienceProperties.Breaker b = props.getBreaker();
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(b.getFailureRateThreshold())
+                .slowCallRateThreshold(b.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(b.getSlowCallDuration())
+                .slidingWindowSize(b.getSlidingWindowSize())
+                .minimumNumberOfCalls(b.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(b.getWaitInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(b.getPermittedCallsInHalfOpenState())
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordExceptions(DataAccessException.class)
+                .build());
+        this.breaker = breakers.circuitBreaker(BREAKER);
+        breaker.getEventPublisher().onStateTransition(event ->
+                log.warn("{} OTP Redis circuit {}", event.getStateTransition().getToState() == CircuitBreaker.State.CLOSED ? "✓" : "✗",
+                        event.getStateTransition()));
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(registry);
+    }
+
+    public <T> T execute(Supplier<T> command) {
+        try {
+            return breaker.executeSupplier(command);
+        } catch (CallNotPermittedException e) {
+            throw new DataAccessResourceFailureException("OTP store temporarily unavailable", e);
+        }
+    }
+
+    public StringRedisTemplate template() {
+        return template;
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    @Override
+    public void destroy() {
+        if (ownFactory != null) {
+            ownFactory.destroy();
+        }
+    }
+
+    private static RedisConfiguration redisConfiguration(LettuceConnectionFactory shared) {
+        if (shared.getClusterConfiguration() != null) {
+            return shared.getClusterConfiguration();
+        }
+        if (shared.getSentinelConfiguration() != null) {
+            return shared.getSentinelConfiguration();
+        }
+        return shared.getStandaloneConfiguration();
+    }
+
+    private static LettuceClientConfiguration clientConfiguration(LettuceConnectionFactory shared,
+                                                                  OtpResilienceProperties props) {
+        LettuceClientConfiguration sharedClient = shared.getClientConfiguration();
+        ClientOptions options = shared.getClusterConfiguration() != null
+                ? ClusterClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build()
+                : ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build();
+
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = LettuceClientConfiguration.builder()
+                .commandTimeout(props.getCommandTimeout())
+                .clientOptions(options)
+                .clientName("otp");
+        sharedClient.getClientResources().ifPresent(builder::clientResources);   // share event loops
+        if (sharedClient.isUseSsl()) {
+            builder.useSsl();
+        }
+        return builder.build();
+    }
+}
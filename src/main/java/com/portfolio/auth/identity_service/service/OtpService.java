@@ -6,13 +6,16 @@ public interface OtpService {
     // Step 1: Create OTP and store in Redis
     void createAndQueueOtpForEmail(String email, OtpPurpose purpose);
 
-    // Step 2: Validate OTP from Redis
+    // Step 2: Validate OTP from Redis and consume it (single atomic script call)
     boolean verifyOtp(String email, String otpCode, OtpPurpose purpose);
 
-    void markOtpVerified(String email, OtpPurpose purpose);
+    // Same as verifyOtp, but also sets the otp_verified flag in the same round trip
+    boolean verifyAndMarkOtp(String email, String otpCode, OtpPurpose purpose);
 
-    boolean isOtpVerified(String email, OtpPurpose purpose);
+    // Clears the otp_verified flag; taken() only for the caller that actually removed it
+    OtpVerifiedFlag consumeOtpVerified(String email, OtpPurpose purpose);
 
-    void clearOtpVerified(String email, OtpPurpose purpose);
+    // Puts a consumed otp_verified flag back, where it was taken from, when the action it was taken for failed
+    void restoreOtpVerified(String email, OtpPurpose purpose, OtpVerifiedFlag taken);
 
 }
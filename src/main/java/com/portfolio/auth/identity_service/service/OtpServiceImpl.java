@@ -1,94 +1,280 @@
 package com.portfolio.auth.identity_service.service;
 
-
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import com.portfolio.auth.identity_service.config.OtpStoreProperties;
+import com.portfolio.auth.identity_service.observability.AuthObservations;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.Random;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.portfolio.auth.identity_service.observability.AuthObservations.Stage.MAIL;
+import static com.portfolio.auth.identity_service.observability.AuthObservations.Stage.REDIS;
 
+/**
+ * OTP state is one small Redis hash per (hashed) email, see OtpKeys: issuing, verifying and
+ * taking the verified flag are one script call each. A code is void after otp.store.max-attempts
+ * wrong guesses. While legacy-fallback is on, codes and flags still sitting in the old
+ * per-purpose string keys are accepted too, so a rollout doesn't invalidate codes in flight,
+ * and new codes, consumed codes and verified flags are written to the old keys as well, so
+ * nodes still on the previous version keep working with codes issued by upgraded ones.
+ * The old keys are not updated atomically with the hash; that is only the migration window.
+ *
+ * Redis calls go through OtpRedis (tight deadline, circuit breaker). When they fail, the
+ * request gets a fast 503, or with otp.resilience.local-fallback the OTP is kept in this
+ * node's LocalOtpStore; codes issued there keep working after Redis is back.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class OtpServiceImpl implements OtpService {
 
-    private final StringRedisTemplate redisTemplate;
-    private final MailService mailService;
+    // SHA1 is computed once; RedisTemplate calls EVALSHA and only falls back to EVAL on NOSCRIPT
+    private static final RedisScript<Long> ISSUE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-issue.lua"), Long.class);
+    private static final RedisScript<Long> VERIFY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-verify.lua"), Long.class);
+    private static final RedisScript<Long> CONSUME_VERIFIED_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-consume-verified.lua"), Long.class);
+    private static final RedisScript<Long> RESTORE_VERIFIED_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-restore-verified.lua"), Long.class);
+    private static final RedisScript<Long> LEGACY_VERIFY_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/otp-verify-legacy.lua"), Long.class);
+
+    private final OtpRedis otpRedis;
+    private final LocalOtpStore localStore;
+    private final OtpDeliveryChannel otpDeliveryChannel;
+    private final OtpGenerator otpGenerator;
+    private final AuthObservations observations;
+    private final OtpStoreProperties props;
+
+    static final int OTP_EXPIRY_MINUTES = 10;
+    private final int OTP_VERIFIED_EXPIRY_MINUTES = 10;
+
+    private final Counter localFallbacks;
 
-    private final int OTP_EXPIRY_MINUTES = 10;
+    // otp.verifications{purpose, outcome}, registered up front so the hot path is an array lookup
+    private final Map<OtpPurpose, Map<OtpVerificationOutcome, Counter>> verifications = new EnumMap<>(OtpPurpose.class);
+
+    public OtpServiceImpl(OtpRedis otpRedis,
+                          LocalOtpStore localStore,
+                          OtpDeliveryChannel otpDeliveryChannel,
+                          OtpGenerator otpGenerator,
+                          AuthObservations observations,
+                          OtpStoreProperties props,
+                          MeterRegistry registry) {
+        this.otpRedis = otpRedis;
+        this.localStore = localStore;
+        this.otpDeliveryChannel = otpDeliveryChannel;
+        this.otpGenerator = otpGenerator;
+        this.observations = observations;
+        this.props = props;
+
+        for (OtpPurpose purpose : OtpPurpose.values()) {
+            Map<OtpVerificationOutcome, Counter> byOutcome = new EnumMap<>(OtpVerificationOutcome.class);
+            for (OtpVerificationOutcome outcome : OtpVerificationOutcome.values()) {
+                byOutcome.put(outcome, registry.counter("otp.verifications",
+                        "purpose", purpose.name().toLowerCase(Locale.ROOT),
+                        "outcome", outcome.name().toLowerCase(Locale.ROOT)));
+            }
+            verifications.put(purpose, byOutcome);
+        }
+        this.localFallbacks = registry.counter("otp.store.local.fallbacks");
+    }
 
     @Override
     public void createAndQueueOtpForEmail(String email, OtpPurpose purpose) {
 
-        String normalizedEmail = email.trim().toLowerCase(Locale.ROOT);
+        String normalizedEmail = EmailNormalizer.normalize(email);
 
         // 1) Generate 6-digit OTP
-        String otp = String.format("%06d", new SecureRandom().nextInt(1_000_000));
-
-        String redisKey = buildRedisKey(normalizedEmail, purpose);
+        String otp = otpGenerator.nextCode();
 
-        // 2) Store OTP in Redis (with TTL)
-        redisTemplate.opsForValue()
-                .set(redisKey, otp, OTP_EXPIRY_MINUTES, TimeUnit.MINUTES);
+        // 2) Store OTP in Redis (with TTL), replacing whatever the identity had;
+        //    while Redis is unavailable, in this node's memory (if enabled)
+        Duration ttl = Duration.ofMinutes(OTP_EXPIRY_MINUTES);
+        withFallback(() -> {
+            issueInRedis(normalizedEmail, purpose, otp, ttl);
+            localStore.remove(normalizedEmail);
+            return null;
+        }, () -> {
+            localStore.issue(normalizedEmail, purpose, otp, ttl);
+            return null;
+        });
 
-        // 3) Send via email (REAL email)
-        mailService.sendOtpEmail(normalizedEmail, otp);
+        // 3) Hand off for delivery (in-process mail queue or Redis Stream outbox); this is the enqueue only
+        observations.stage(MAIL, () -> otpDeliveryChannel.deliver(normalizedEmail, otp, purpose));
 
-        // Still print for debugging (optional)
-        System.out.println("OTP for " + normalizedEmail + " is: " + otp);
+        // Never log the code itself
+        log.debug("{} OTP queued for delivery", purpose);
     }
 
     @Override
     public boolean verifyOtp(String email, String otpCode, OtpPurpose purpose) {
+        return verify(email, otpCode, purpose, Duration.ZERO);
+    }
 
-        String normalizedEmail = email.trim().toLowerCase(Locale.ROOT);
-        String redisKey = buildRedisKey(normalizedEmail, purpose);
+    @Override
+    public boolean verifyAndMarkOtp(String email, String otpCode, OtpPurpose purpose) {
+        return verify(email, otpCode, purpose, Duration.ofMinutes(OTP_VERIFIED_EXPIRY_MINUTES));
+    }
 
-        String storedOtp = redisTemplate.opsForValue().get(redisKey);
+    @Override
+    public OtpVerifiedFlag consumeOtpVerified(String email, OtpPurpose purpose) {
+        String normalizedEmail = EmailNormalizer.normalize(email);
 
-        if (storedOtp == null) {
-            return false;
+        OtpVerifiedFlag taken = withFallback(
+                () -> consumeVerifiedInRedis(normalizedEmail, purpose),
+                () -> localStore.consumeVerified(normalizedEmail, purpose) ? OtpVerifiedFlag.LOCAL : OtpVerifiedFlag.NONE);
+        if (!taken.taken() && localStore.holds(normalizedEmail) && localStore.consumeVerified(normalizedEmail, purpose)) {
+            return OtpVerifiedFlag.LOCAL;
         }
+        return taken;
+    }
 
-        boolean match = storedOtp.equals(otpCode);
+    // No fallback: a flag taken from Redis can only go back to Redis
+    @Override
+    public void restoreOtpVerified(String email, OtpPurpose purpose, OtpVerifiedFlag taken) {
+        String normalizedEmail = EmailNormalizer.normalize(email);
 
-        if (match) {
-            redisTemplate.delete(redisKey);
+        switch (taken) {
+            case NONE -> {
+            }
+            case LOCAL -> localStore.restoreVerified(normalizedEmail, purpose);
+            default -> observations.stage(REDIS, () -> otpRedis.execute(() -> {
+                restoreVerifiedInRedis(normalizedEmail, purpose, taken);
+                return null;
+            }));
         }
-
-        return match;
     }
 
-    @Override
-    public void markOtpVerified(String email, OtpPurpose purpose) {
-        String normalizedEmail = email.trim().toLowerCase(Locale.ROOT);
+    private boolean verify(String email, String otpCode, OtpPurpose purpose, Duration verifiedFlagTtl) {
+        if (otpCode == null) {
+            return false;
+        }
+
+        String normalizedEmail = EmailNormalizer.normalize(email);
 
-        String key = "otp_verified:" + purpose.name() + ":" + normalizedEmail;
+        OtpVerificationOutcome outcome = withFallback(
+                () -> verifyInRedis(normalizedEmail, otpCode, purpose, verifiedFlagTtl),
+                () -> localStore.verify(normalizedEmail, purpose, otpCode, verifiedFlagTtl));
+
+        // Unknown to Redis: may have been issued by this node during an outage
+        if (outcome == OtpVerificationOutcome.EXPIRED && localStore.holds(normalizedEmail)) {
+            outcome = localStore.verify(normalizedEmail, purpose, otpCode, verifiedFlagTtl);
+        }
 
-        redisTemplate.opsForValue().set(key, "true", 10, TimeUnit.MINUTES);
+        verifications.get(purpose).get(outcome).increment();
+        return outcome == OtpVerificationOutcome.VERIFIED;
     }
 
-    @Override
-    public boolean isOtpVerified(String email, OtpPurpose purpose) {
-        String normalizedEmail = email.trim().toLowerCase(Locale.ROOT);
+    // Redis first; on a Redis failure the local store if enabled, else a fast 503
+    private <T> T withFallback(Supplier<T> redis, Supplier<T> local) {
+        try {
+            return observations.stage(REDIS, () -> otpRedis.execute(redis));
+        } catch (DataAccessException e) {
+            if (!localStore.isEnabled()) {
+                throw e instanceof DataAccessResourceFailureException unavailable
+                        ? unavailable
+                        : new DataAccessResourceFailureException("OTP store temporarily unavailable", e);
+            }
+            localFallbacks.increment();
+            log.debug("OTP Redis unavailable, using the local store: {}", e.getMessage());
+            return local.get();
+        }
+    }
 
-        String key = "otp_verified:" + purpose.name() + ":" + normalizedEmail;
+    private void issueInRedis(String normalizedEmail, OtpPurpose purpose, String otp, Duration ttl) {
+        otpRedis.template().execute(
+                ISSUE_SCRIPT,
+                List.of(OtpKeys.identity(normalizedEmail)),
+                otp,
+                purpose.name(),
+                String.valueOf(Instant.now().getEpochSecond()),
+                String.valueOf(ttl.toSeconds()));
 
-        return "true".equals(redisTemplate.opsForValue().get(key));
+        // During the migration the old layout gets the code too: nodes of a rolling deploy that
+        // are still on the previous version only read that one
+        if (props.isLegacyFallback()) {
+            otpRedis.template().opsForValue().set(OtpKeys.legacyCode(normalizedEmail, purpose), otp, ttl);
+        }
     }
 
-    @Override
-    public void clearOtpVerified(String email, OtpPurpose purpose) {
-        String normalizedEmail = email.trim().toLowerCase(Locale.ROOT);
-        String key = "otp_verified:" + purpose.name() + ":" + normalizedEmail;
+    private OtpVerificationOutcome verifyInRedis(String normalizedEmail, String otpCode, OtpPurpose purpose,
+                                                 Duration verifiedFlagTtl) {
+        Long result = otpRedis.template().execute(
+                VERIFY_SCRIPT,
+                List.of(OtpKeys.identity(normalizedEmail)),
+                purpose.name(),
+                otpCode,
+                String.valueOf(verifiedFlagTtl.toSeconds()),
+                String.valueOf(props.getMaxAttempts())
+        );
 
-        redisTemplate.delete(key);
+        if (props.isLegacyFallback()) {
+            if (result != null && result == -1L) {
+                // No code in the new layout: it may still be in the old one (issued before the rollout)
+                result = otpRedis.template().execute(
+                        LEGACY_VERIFY_SCRIPT,
+                        List.of(OtpKeys.legacyCode(normalizedEmail, purpose), OtpKeys.legacyVerified(normalizedEmail, purpose)),
+                        otpCode,
+                        String.valueOf(verifiedFlagTtl.toSeconds()));
+            } else if (result != null && (result == 1L || result == -3L)) {
+                // Mirror the outcome into the old layout: the code is gone there too, and a node
+                // still on the previous version can take the verified flag
+                mirrorToLegacy(normalizedEmail, purpose, result == 1L ? verifiedFlagTtl : Duration.ZERO);
+            }
+        }
+        return OtpVerificationOutcome.fromScriptResult(result);
     }
 
+    // HDEL / DEL are atomic: of two concurrent resets only one sees "deleted"
+    private OtpVerifiedFlag consumeVerifiedInRedis(String normalizedEmail, OtpPurpose purpose) {
+        Long taken = otpRedis.template().execute(
+                CONSUME_VERIFIED_SCRIPT, List.of(OtpKeys.identity(normalizedEmail)), purpose.name());
+        boolean hashTaken = taken != null && taken == 1L;
+        if (!props.isLegacyFallback()) {
+            return hashTaken ? OtpVerifiedFlag.HASH : OtpVerifiedFlag.NONE;
+        }
+        // Old-layout flag: set by an old node, or mirrored by verifyInRedis; either way it goes now
+        boolean legacyTaken = Boolean.TRUE.equals(otpRedis.template().delete(OtpKeys.legacyVerified(normalizedEmail, purpose)));
+        if (hashTaken) {
+            return legacyTaken ? OtpVerifiedFlag.HASH_AND_LEGACY : OtpVerifiedFlag.HASH;
+        }
+        return legacyTaken ? OtpVerifiedFlag.LEGACY : OtpVerifiedFlag.NONE;
+    }
 
-    private String buildRedisKey(String email, OtpPurpose purpose) {
-        return "otp:" + purpose.name() + ":" + email;
+    // The hash flag only comes back if its state is still the one it was taken from (the script
+    // checks); the old key only if that is where the flag was, or it mirrored a restored hash flag
+    private void restoreVerifiedInRedis(String normalizedEmail, OtpPurpose purpose, OtpVerifiedFlag taken) {
+        boolean restoreLegacy = taken == OtpVerifiedFlag.LEGACY;
+        if (taken == OtpVerifiedFlag.HASH || taken == OtpVerifiedFlag.HASH_AND_LEGACY) {
+            Long restored = otpRedis.template().execute(
+                    RESTORE_VERIFIED_SCRIPT, List.of(OtpKeys.identity(normalizedEmail)), purpose.name());
+            restoreLegacy = taken == OtpVerifiedFlag.HASH_AND_LEGACY && restored != null && restored == 1L;
+        }
+        if (restoreLegacy) {
+            otpRedis.template().opsForValue().set(OtpKeys.legacyVerified(normalizedEmail, purpose), "true",
+                    Duration.ofMinutes(OTP_VERIFIED_EXPIRY_MINUTES));
+        }
+    }
+
+    private void mirrorToLegacy(String normalizedEmail, OtpPurpose purpose, Duration verifiedFlagTtl) {
+        otpRedis.template().delete(OtpKeys.legacyCode(normalizedEmail, purpose));
+        if (!verifiedFlagTtl.isZero()) {
+            otpRedis.template().opsForValue().set(OtpKeys.legacyVerified(normalizedEmail, purpose), "true", verifiedFlagTtl);
+        }
     }
 }
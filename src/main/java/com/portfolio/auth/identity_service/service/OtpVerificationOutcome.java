@@ -0,0 +1,23 @@
+package com.portfolio.auth.identity_service.service;
+
+// Result codes of scripts/otp-verify.lua; only VERIFIED consumes the code
+public enum OtpVerificationOutcome {
+    VERIFIED,
+    MISMATCH,
+    EXPIRED,    // no code stored: TTL ran out, or none was ever sent
+    REUSED,     // no code stored, and the submitted one is the code consumed last
+    LOCKED;     // code voided after too many wrong guesses
+
+    static OtpVerificationOutcome fromScriptResult(Long result) {
+        if (result == null) {
+            return EXPIRED;
+        }
+        return switch (result.intValue()) {
+            case 1 -> VERIFIED;
+            case 0 -> MISMATCH;
+            case -2 -> REUSED;
+            case -3 -> LOCKED;
+            default -> EXPIRED;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.portfolio.auth.identity_service.service;
+
+// Where consumeOtpVerified took the otp_verified flag from; restoreOtpVerified puts back only that one
+public enum OtpVerifiedFlag {
+    NONE,               // there was no flag: not verified
+    HASH,               // the identity's OTP hash
+    HASH_AND_LEGACY,    // the hash, and its mirror in the old per-purpose key
+    LEGACY,             // only the old per-purpose key (set by a node on the previous version)
+    LOCAL;              // this node's LocalOtpStore
+
+    public boolean taken() {
+        return this != NONE;
+    }
+}
@@ -0,0 +1,148 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.PasswordHashingProperties;
+import com.portfolio.auth.identity_service.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a dedicated, core-sized pool with a bounded queue.
+ *
+ * Caps the CPU spent on hashing regardless of how many request threads arrive at once,
+ * and sheds load (503 + Retry-After) once the queue is full instead of letting hashing
+ * starve the Tomcat and JDBC pools. Callers must not hold a DB transaction while waiting.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingProperties props;
+    private final ThreadPoolExecutor executor;
+    private final String dummyHash;
+
+    private final Timer hashTimer;
+    private final Timer matchTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  PasswordHashingProperties props,
+                                  MeterRegistry registry) {
+        this.passwordEncoder = passwordEncoder;
+        this.props = props;
+
+        int threads = props.getPoolSize() > 0 ? props.getPoolSize() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(props.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIds.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTimer = Timer.builder("password.hashing").tag("op", "encode").register(registry);
+        this.matchTimer = Timer.builder("password.hashing").tag("op", "matches").register(registry);
+        this.rejectedCounter = registry.counter("password.hashing.rejected");
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size()).register(registry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+
+        // Same cost as real hashes, so checking an unknown account takes as long as a known one
+        this.dummyHash = passwordEncoder.encode("not-a-real-password");
+    }
+
+    public String hash(String rawPassword) {
+        return await(hashAsync(rawPassword));
+    }
+
+    // For bulk callers that want to keep several hashes in flight
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        return submit(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String storedHash) {
+        return await(submit(() -> matchTimer.record(() -> passwordEncoder.matches(rawPassword, storedHash))));
+    }
+
+    /**
+     * Checks the password and, if it matches but the stored hash uses a lower cost than the
+     * current one, returns a fresh hash the caller should persist (rehash-on-login).
+     * A null storedHash (unknown account) still costs one BCrypt and never matches.
+     */
+    public PasswordVerification verify(String rawPassword, String storedHash) {
+        if (storedHash == null) {
+            return await(submit(() -> {
+                matchTimer.record(() -> passwordEncoder.matches(rawPassword, dummyHash));
+                return new PasswordVerification(false, null);
+            }));
+        }
+        return await(submit(() -> {
+            boolean matched = matchTimer.record(() -> passwordEncoder.matches(rawPassword, storedHash));
+            if (!matched || !passwordEncoder.upgradeEncoding(storedHash)) {
+                return new PasswordVerification(matched, null);
+            }
+            return new PasswordVerification(true, hashTimer.record(() -> passwordEncoder.encode(rawPassword)));
+        }));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw overloaded();
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(props.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw overloaded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private ServiceOverloadedException overloaded() {
+        return new ServiceOverloadedException("Server is busy, please retry shortly", props.getRetryAfterSeconds());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public record PasswordVerification(boolean matched, String upgradedHash) {
+
+        public boolean needsRehash() {
+            return upgradedHash != null;
+        }
+    }
+}
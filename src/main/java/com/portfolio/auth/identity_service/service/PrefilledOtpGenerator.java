@@ -0,0 +1,76 @@
+package com.portfolio.auth.identity_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free ring of pre-generated codes in front of another generator.
+ *
+ * Request threads claim a slot with a single getAndSet (so a code is handed out at most
+ * once) and fall back to the delegate when the slot is empty. A single background thread
+ * refills empty slots, woken early when a request finds the ring drained.
+ */
+@Slf4j
+public class PrefilledOtpGenerator implements OtpGenerator, AutoCloseable {
+
+    private final OtpGenerator delegate;
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final long refillIntervalNanos;
+    private final Thread refiller;
+    private volatile boolean running = true;
+
+    public PrefilledOtpGenerator(OtpGenerator delegate, int capacity, Duration refillInterval) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;   // next power of two
+        this.delegate = delegate;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.refillIntervalNanos = refillInterval.toNanos();
+
+        fill();
+        this.refiller = new Thread(this::refillLoop, "otp-prefill");
+        this.refiller.setDaemon(true);
+        this.refiller.start();
+    }
+
+    @Override
+    public String nextCode() {
+        int index = (int) (head.getAndIncrement() & mask);
+        String code = slots.getAndSet(index, null);
+        if (code != null) {
+            return code;
+        }
+        LockSupport.unpark(refiller);
+        return delegate.nextCode();
+    }
+
+    private void refillLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, refillIntervalNanos);
+            try {
+                fill();
+            } catch (RuntimeException e) {
+                log.error("✗ OTP prefill failed", e);
+            }
+        }
+    }
+
+    private void fill() {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) == null) {
+                slots.compareAndSet(i, null, delegate.nextCode());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(refiller);
+    }
+}
@@ -0,0 +1,13 @@
+package com.portfolio.auth.identity_service.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum RateLimitPolicy {
+    OTP_SEND("otp-send"),       // anything that makes us send an OTP email
+    OTP_VERIFY("otp-verify");   // OTP guesses
+
+    private final String configKey;
+}
@@ -0,0 +1,80 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.portfolio.auth.identity_service.config.DataSourceRoutingProperties;
+import com.portfolio.auth.identity_service.datasource.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes on top of replica routing: after a write to a user (by normalized email)
+ * that user's lookups go to the primary for readYourWritesWindow, on every node.
+ *
+ * The mark is a short-TTL Redis key, mirrored in a local cache so the writing node doesn't
+ * ask Redis. Everyone else's reads keep going to the replicas. If Redis can't say, the read
+ * goes to the primary. A no-op when routing is disabled.
+ */
+@Slf4j
+@Service
+public class ReadYourWrites {
+
+    private final StringRedisTemplate redisTemplate;
+    private final DataSourceRoutingProperties props;
+    private final Cache<String, Boolean> recentWrites;
+
+    private final Counter stickyReads;
+
+    public ReadYourWrites(StringRedisTemplate redisTemplate, DataSourceRoutingProperties props, MeterRegistry registry) {
+        this.redisTemplate = redisTemplate;
+        this.props = props;
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(props.getReadYourWritesWindow())
+                .build();
+        this.stickyReads = registry.counter("datasource.routing.sticky.reads");
+    }
+
+    public void markWritten(String normalizedEmail) {
+        if (!props.isEnabled()) {
+            return;
+        }
+        recentWrites.put(normalizedEmail, Boolean.TRUE);
+        try {
+            redisTemplate.opsForValue().set(key(normalizedEmail), "1", props.getReadYourWritesWindow());
+        } catch (DataAccessException e) {
+            // Other nodes may read this user from a lagging replica for a moment
+            log.warn("Read-your-writes mark for {} not stored: {}", normalizedEmail, e.getMessage());
+        }
+    }
+
+    // Runs a read-only lookup for the user, on the primary if they wrote recently
+    public <T> T read(String normalizedEmail, Supplier<T> lookup) {
+        if (!props.isEnabled() || !recentlyWritten(normalizedEmail)) {
+            return lookup.get();
+        }
+        stickyReads.increment();
+        return ReadWriteRoutingDataSource.onPrimary(lookup);
+    }
+
+    private boolean recentlyWritten(String normalizedEmail) {
+        if (recentWrites.getIfPresent(normalizedEmail) != null) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(key(normalizedEmail)));
+        } catch (DataAccessException e) {
+            return true;
+        }
+    }
+
+    private String key(String normalizedEmail) {
+        return props.getReadYourWritesKeyPrefix() + normalizedEmail;
+    }
+}
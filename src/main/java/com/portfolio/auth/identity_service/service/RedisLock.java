@@ -0,0 +1,63 @@
+package com.portfolio.auth.identity_service.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps a background job on one node: one Redis key whose value is the holder's token.
+ *
+ * The lock expires after ttl unless renewed, so a crashed holder doesn't block the job forever.
+ * Renew and release compare the token first: a holder whose lock expired during a slow step,
+ * and was taken by another node meanwhile, never extends or deletes that node's lock. Renewing
+ * a lost lock throws PessimisticLockingFailureException, so the job stops its pass.
+ * Not thread-safe: one instance per job thread.
+ */
+final class RedisLock {
+
+    private static final RedisScript<Long> RENEW_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/lock-renew.lua"), Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/lock-release.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String key;
+    private final Duration ttl;
+    private String token;   // null = not held
+
+    RedisLock(StringRedisTemplate redisTemplate, String key, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.ttl = ttl;
+    }
+
+    boolean tryAcquire() {
+        String candidate = UUID.randomUUID().toString();
+        if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, candidate, ttl))) {
+            token = candidate;
+            return true;
+        }
+        return false;
+    }
+
+    void renew() {
+        Long renewed = token == null ? null
+                : redisTemplate.execute(RENEW_SCRIPT, List.of(key), token, String.valueOf(ttl.toMillis()));
+        if (renewed == null || renewed != 1L) {
+            token = null;
+            throw new PessimisticLockingFailureException("Lock " + key + " expired and may be held by another node");
+        }
+    }
+
+    void release() {
+        if (token != null) {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(key), token);
+            token = null;
+        }
+    }
+}
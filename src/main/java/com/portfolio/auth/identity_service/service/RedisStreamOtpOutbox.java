@@ -0,0 +1,45 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.OtpOutboxProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+// Outbox mode: a single XADD on the request path, OtpOutboxWorker does the actual sending.
+// The entry names the identity, purpose and mail language only; the code stays in the OTP
+// hash and the worker reads it from there at send time, so it never sits in the stream.
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "otp.delivery.mode", havingValue = "outbox")
+public class RedisStreamOtpOutbox implements OtpDeliveryChannel {
+
+    static final String FIELD_EMAIL = "email";
+    static final String FIELD_PURPOSE = "purpose";
+    static final String FIELD_CODE = "code";      // only in entries written before codes left the stream
+    static final String FIELD_ISSUED_AT = "ts";
+    static final String FIELD_LOCALE = "lang";   // the request's language; the worker has no request
+
+    private final StringRedisTemplate redisTemplate;
+    private final OtpOutboxProperties props;
+
+    @Override
+    public void deliver(String email, String otpCode, OtpPurpose purpose) {
+        Map<String, String> event = Map.of(
+                FIELD_EMAIL, email,
+                FIELD_PURPOSE, purpose.name(),
+                FIELD_ISSUED_AT, String.valueOf(System.currentTimeMillis()),
+                FIELD_LOCALE, LocaleContextHolder.getLocale().toLanguageTag()
+        );
+
+        redisTemplate.opsForStream().add(
+                MapRecord.create(props.getStreamKey(), event),
+                XAddOptions.maxlen(props.getMaxLength()).approximateTrimming(true)
+        );
+    }
+}
@@ -0,0 +1,166 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.JwtProperties;
+import com.portfolio.auth.identity_service.dto.UserSnapshot;
+import com.portfolio.auth.identity_service.exception.InvalidTokenException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Opaque, rotating refresh tokens stored in Redis.
+ *
+ * A token is "<family>.<secret>". Every login (session) starts a new family; each refresh replaces
+ * the family's current token (one Lua call) and leaves the old one as a tombstone, so a
+ * replayed old token is detected and kills the family. Only SHA-256 digests of tokens are
+ * stored, and all keys of a family share the {<family>} hash tag: the rotation script deletes
+ * the family's current token key, which it reads from the family key instead of getting it in
+ * KEYS, and the tag keeps that key in the same Redis Cluster slot. Keep the tag in every
+ * family key.
+ */
+@Slf4j
+@Service
+public class RefreshTokenService {
+
+    private static final RedisScript<List> ROTATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/refresh-rotate.lua"), List.class);
+
+    private static final Base64.Encoder TOKEN_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final int SECRET_BYTES = 32;
+
+    private final StringRedisTemplate redisTemplate;
+    private final long ttlSeconds;
+    private final SecureRandom random;
+
+    public RefreshTokenService(StringRedisTemplate redisTemplate, JwtProperties props) {
+        this.redisTemplate = redisTemplate;
+        this.ttlSeconds = props.getRefreshTokenExpirationMs() / 1000;
+        this.random = createDrbg();
+    }
+
+    // Starts the token family of a new session (family id = session id) and returns its first token
+    public String issue(UserSnapshot user, String family) {
+        String token = family + "." + randomToken(SECRET_BYTES);
+        String tokenKey = tokenKey(family, token);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            redis.hMSet(tokenKey, Map.of(
+                    "uid", String.valueOf(user.getId()),
+                    "email", user.getEmail(),
+                    "iat", String.valueOf(Instant.now().getEpochSecond())));
+            redis.expire(tokenKey, ttlSeconds);
+            redis.setEx(familyKey(family), ttlSeconds, tokenKey);
+            return null;
+        });
+        return token;
+    }
+
+    public Rotation rotate(String presented) {
+        String family = familyOf(presented);
+        String replacement = family + "." + randomToken(SECRET_BYTES);
+
+        List<?> result = redisTemplate.execute(
+                ROTATE_SCRIPT,
+                List.of(tokenKey(family, presented), tokenKey(family, replacement), familyKey(family)),
+                String.valueOf(ttlSeconds));
+
+        String status = result == null || result.isEmpty() ? "UNKNOWN" : (String) result.get(0);
+        switch (status) {
+            case "OK" -> {
+                return new Rotation(replacement, family, Long.parseLong((String) result.get(1)),
+                        (String) result.get(2), Long.parseLong((String) result.get(3)));
+            }
+            case "REUSED" -> {
+                log.warn("✗ Refresh token reuse detected, token family {} revoked", family);
+                throw new InvalidTokenException("Refresh token has already been used; please log in again");
+            }
+            default -> throw new InvalidTokenException("Invalid or expired refresh token");
+        }
+    }
+
+    // Ends the token's family; unknown or malformed tokens are ignored (logout is idempotent).
+    // The family id is the session id, which is no secret: only a stored token may end it.
+    public Optional<Family> revoke(String presented) {
+        String family;
+        try {
+            family = familyOf(presented);
+        } catch (InvalidTokenException e) {
+            return Optional.empty();
+        }
+        Object uid = redisTemplate.opsForHash().get(tokenKey(family, presented), "uid");
+        if (uid == null) {
+            return Optional.empty();
+        }
+        revokeFamily(family);
+        return Optional.of(new Family(family, Long.parseLong(uid.toString())));
+    }
+
+    public void revokeFamily(String family) {
+        String current = redisTemplate.opsForValue().getAndDelete(familyKey(family));
+        if (current != null) {
+            redisTemplate.delete(current);
+        }
+    }
+
+    private static String familyOf(String token) {
+        int dot = token == null ? -1 : token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            throw new InvalidTokenException("Invalid or expired refresh token");
+        }
+        return token.substring(0, dot);
+    }
+
+    private static String tokenKey(String family, String token) {
+        return "rt:{" + family + "}:" + sha256(token);
+    }
+
+    private static String familyKey(String family) {
+        return "rt_fam:{" + family + "}";
+    }
+
+    private String randomToken(int bytes) {
+        byte[] buffer = new byte[bytes];
+        random.nextBytes(buffer);
+        return TOKEN_ENCODER.encodeToString(buffer);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static SecureRandom createDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    // familyId is the session id; familyIssuedAt the epoch second of the login that started it
+    public record Rotation(String refreshToken, String familyId, long userId, String email, long familyIssuedAt) {
+    }
+
+    public record Family(String id, long userId) {
+    }
+}
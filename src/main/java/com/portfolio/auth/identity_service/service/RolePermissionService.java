@@ -0,0 +1,138 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.RbacProperties;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.security.Permission;
+import com.portfolio.auth.identity_service.security.RolePermissions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Role -> permission grants for request authorization.
+ *
+ * The table is an immutable RolePermissions (one bitmask per role) held in a volatile field,
+ * so isGranted() is an array read and an AND: no DB, no Redis, no locking on the request path.
+ * Overrides live in one Redis hash; the table is loaded at startup, rebuilt on a pub/sub
+ * reload notice after update(), and every reloadInterval. A role missing from the hash keeps
+ * its built-in defaults; if Redis is unreachable the last loaded table stays in force.
+ */
+@Slf4j
+@Service
+public class RolePermissionService implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final TaskScheduler taskScheduler;
+    private final RbacProperties props;
+
+    private volatile RolePermissions current = RolePermissions.defaults();
+
+    private final Counter reloads;
+    private final Counter reloadFailures;
+
+    public RolePermissionService(StringRedisTemplate redisTemplate,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 TaskScheduler taskScheduler,
+                                 RbacProperties props,
+                                 MeterRegistry registry) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.taskScheduler = taskScheduler;
+        this.props = props;
+
+        this.reloads = registry.counter("rbac.reloads", "result", "ok");
+        this.reloadFailures = registry.counter("rbac.reloads", "result", "error");
+    }
+
+    @PostConstruct
+    void start() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(props.getReloadChannel()));
+        reload();
+        taskScheduler.scheduleWithFixedDelay(this::reload,
+                Instant.now().plus(props.getReloadInterval()), props.getReloadInterval());
+    }
+
+    public boolean isGranted(User.Role role, Permission permission) {
+        return current.has(role, permission);
+    }
+
+    public RolePermissions snapshot() {
+        return current;
+    }
+
+    // Replaces one role's grants cluster-wide
+    public RolePermissions update(User.Role role, Set<Permission> permissions) {
+        String value = permissions.stream().map(Permission::name).sorted().collect(Collectors.joining(","));
+        redisTemplate.opsForHash().put(props.getRedisKey(), role.name(), value);
+        reload();
+
+        try {
+            redisTemplate.convertAndSend(props.getReloadChannel(), role.name());
+        } catch (DataAccessException e) {
+            // Other nodes pick it up with their next periodic reload
+            log.warn("RBAC reload notice not propagated: {}", e.getMessage());
+        }
+        log.info("✓ Permissions of role {} set to [{}]", role, value);
+        return current;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        reload();
+    }
+
+    void reload() {
+        Map<Object, Object> stored;
+        try {
+            stored = redisTemplate.opsForHash().entries(props.getRedisKey());
+        } catch (DataAccessException e) {
+            reloadFailures.increment();
+            log.warn("RBAC reload failed, keeping the current grants: {}", e.getMessage());
+            return;
+        }
+
+        RolePermissions defaults = RolePermissions.defaults();
+        Map<User.Role, Set<Permission>> grants = new EnumMap<>(User.Role.class);
+        for (User.Role role : User.Role.values()) {
+            Object value = stored.get(role.name());
+            grants.put(role, value == null ? defaults.permissionsOf(role) : parse(role, value.toString()));
+        }
+
+        current = RolePermissions.of(grants);
+        reloads.increment();
+    }
+
+    // Unknown names are skipped (e.g. written by a newer version), never fatal
+    private static Set<Permission> parse(User.Role role, String value) {
+        Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            try {
+                permissions.add(Permission.valueOf(trimmed));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring unknown permission {} for role {}", trimmed, role);
+            }
+        }
+        return permissions;
+    }
+}
@@ -0,0 +1,47 @@
+package com.portfolio.auth.identity_service.service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * One shared, seeded-once DRBG for all threads (DRBG is thread-safe), instead of a
+ * new SecureRandom per OTP which may go back to the OS entropy source every time.
+ */
+public class SecureRandomOtpGenerator implements OtpGenerator {
+
+    private static final int BOUND = 1_000_000;
+
+    private final SecureRandom random;
+
+    public SecureRandomOtpGenerator() {
+        this(createDrbg());
+    }
+
+    public SecureRandomOtpGenerator(SecureRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public String nextCode() {
+        return format(random.nextInt(BOUND));
+    }
+
+    // Zero-padded digits without String.format; the scratch array does not escape and is
+    // normally scalar-replaced by the JIT, leaving the result String as the only allocation
+    static String format(int value) {
+        char[] digits = new char[DIGITS];
+        for (int i = DIGITS - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static SecureRandom createDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
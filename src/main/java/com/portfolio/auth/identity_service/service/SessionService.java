@@ -0,0 +1,247 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.portfolio.auth.identity_service.config.SessionProperties;
+import com.portfolio.auth.identity_service.dto.SessionInfo;
+import com.portfolio.auth.identity_service.dto.UserSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Server-side sessions in Redis, one per login, keyed by an opaque session id (which is
+ * also the refresh-token family id and the access token's "sid" claim).
+ *
+ *   sess:{uid}:<sid>   hash with uid, email, created, lastSeen, ip, ua; TTL = idle timeout
+ *   user_sess:{uid}    zset of the user's sids by creation time, for listing / ending all
+ *
+ * Both keys share the {uid} hash tag, so they sit in one Redis Cluster slot: session-create.lua
+ * builds the user's other session keys from the sids in the index, and the tag is what keeps
+ * those in the slot of the keys it is given. Expiry slides lazily: a node pushes it to Redis at
+ * most once per touchInterval per session and otherwise answers from a local cache, so a
+ * busy session costs one small script call per minute instead of an EXPIRE per request.
+ * Per session that is a few hundred bytes of Redis memory and no global structures, which
+ * keeps millions of concurrent sessions practical.
+ */
+@Slf4j
+@Service
+public class SessionService {
+
+    private static final RedisScript<List> CREATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session-create.lua"), List.class);
+    private static final RedisScript<Long> TOUCH_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/session-touch.lua"), Long.class);
+
+    private static final Base64.Encoder ID_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final int ID_BYTES = 16;
+    private static final int USER_AGENT_MAX = 200;
+
+    private final StringRedisTemplate redisTemplate;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService revocationService;
+    private final SessionProperties props;
+    private final SecureRandom random;
+
+    // sid -> alive? as last seen by this node; entries expire after touchInterval
+    private final Cache<String, Boolean> recentlyTouched;
+
+    private final Counter touchesLocal;
+    private final Counter touchesRedis;
+    private final Counter evictions;
+
+    public SessionService(StringRedisTemplate redisTemplate,
+                          RefreshTokenService refreshTokenService,
+                          TokenRevocationService revocationService,
+                          SessionProperties props,
+                          MeterRegistry registry) {
+        this.redisTemplate = redisTemplate;
+        this.refreshTokenService = refreshTokenService;
+        this.revocationService = revocationService;
+        this.props = props;
+        this.random = createDrbg();
+        this.recentlyTouched = Caffeine.newBuilder()
+                .maximumSize(props.getLocalMaxEntries())
+                .expireAfterWrite(props.getTouchInterval())
+                .build();
+
+        this.touchesLocal = registry.counter("sessions.touch", "source", "local");
+        this.touchesRedis = registry.counter("sessions.touch", "source", "redis");
+        this.evictions = registry.counter("sessions.evicted", "reason", "max_per_user");
+    }
+
+    // Starts a session for a successful login and returns its id
+    public String create(UserSnapshot user, String ip, String userAgent) {
+        String sessionId = newId();
+        long now = System.currentTimeMillis();
+
+        List<?> evicted = redisTemplate.execute(
+                CREATE_SCRIPT,
+                List.of(sessionKey(user.getId(), sessionId), userIndexKey(user.getId())),
+                sessionId,
+                String.valueOf(now),
+                String.valueOf(props.getIdleTimeout().toSeconds()),
+                String.valueOf(props.getMaxPerUser()),
+                user.getEmail(),
+                ip == null ? "" : ip,
+                truncate(userAgent),
+                String.valueOf(user.getId()));
+
+        if (evicted != null) {
+            for (Object sid : evicted) {
+                refreshTokenService.revokeFamily((String) sid);
+                recentlyTouched.put((String) sid, false);
+                evictions.increment();
+            }
+        }
+
+        recentlyTouched.put(sessionId, true);
+        return sessionId;
+    }
+
+    /**
+     * True if the session is still alive, sliding its expiry if this node hasn't done so
+     * within touchInterval. Redis errors keep the session alive (fail open): the access
+     * token itself was already verified.
+     */
+    public boolean touch(long userId, String sessionId) {
+        Boolean alive = recentlyTouched.getIfPresent(sessionId);
+        if (alive != null) {
+            touchesLocal.increment();
+            return alive;
+        }
+
+        touchesRedis.increment();
+        try {
+            Long result = redisTemplate.execute(
+                    TOUCH_SCRIPT,
+                    List.of(sessionKey(userId, sessionId), userIndexKey(userId)),
+                    String.valueOf(System.currentTimeMillis()),
+                    String.valueOf(props.getIdleTimeout().toSeconds()));
+            alive = result != null && result == 1L;
+        } catch (DataAccessException e) {
+            log.warn("Session touch for {} failed, keeping it alive: {}", sessionId, e.getMessage());
+            return true;
+        }
+
+        recentlyTouched.put(sessionId, alive);
+        return alive;
+    }
+
+    // The user's live sessions, newest first: one ZRANGE, then all hashes in one pipeline
+    public List<SessionInfo> list(long userId, String currentSessionId) {
+        Set<String> sessionIds = redisTemplate.opsForZSet().reverseRange(userIndexKey(userId), 0, -1);
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return List.of();
+        }
+        List<String> ids = new ArrayList<>(sessionIds);
+
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (String sid : ids) {
+                redis.hGetAll(sessionKey(userId, sid));
+            }
+            return null;
+        });
+
+        List<SessionInfo> sessions = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> fields = (Map<String, String>) hashes.get(i);
+            if (fields == null || fields.isEmpty()) {
+                continue;   // expired; the index entry is pruned on the next login
+            }
+            sessions.add(SessionInfo.builder()
+                    .id(ids.get(i))
+                    .createdAt(Instant.ofEpochMilli(Long.parseLong(fields.get("created"))))
+                    .lastSeenAt(Instant.ofEpochMilli(Long.parseLong(fields.get("lastSeen"))))
+                    .ip(fields.get("ip"))
+                    .userAgent(fields.get("ua"))
+                    .current(ids.get(i).equals(currentSessionId))
+                    .build());
+        }
+        return sessions;
+    }
+
+    /**
+     * Ends one of the user's sessions; false if the user has no session with that id. Only the
+     * ZREM from the user's own index proves the session is theirs, so nothing else (refresh
+     * family included) is touched unless it removed one. Other nodes may accept the session's
+     * access tokens for up to touchInterval.
+     */
+    public boolean end(long userId, String sessionId) {
+        Long removed = redisTemplate.opsForZSet().remove(userIndexKey(userId), sessionId);
+        if (removed == null || removed == 0) {
+            return false;
+        }
+        redisTemplate.delete(sessionKey(userId, sessionId));
+        refreshTokenService.revokeFamily(sessionId);
+        recentlyTouched.put(sessionId, false);
+        return true;
+    }
+
+    // Ends every session and, through the per-user cut-off, every outstanding token at once
+    public void endAll(long userId) {
+        Set<String> sessionIds = redisTemplate.opsForZSet().range(userIndexKey(userId), 0, -1);
+        List<String> ids = sessionIds == null ? List.of() : new ArrayList<>(sessionIds);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (String sid : ids) {
+                redis.del(sessionKey(userId, sid));
+            }
+            redis.del(userIndexKey(userId));
+            return null;
+        });
+        for (String sid : ids) {
+            refreshTokenService.revokeFamily(sid);
+            recentlyTouched.put(sid, false);
+        }
+        revocationService.revokeAllForUser(userId);
+    }
+
+    private static String sessionKey(long userId, String sessionId) {
+        return "sess:{" + userId + "}:" + sessionId;
+    }
+
+    private static String userIndexKey(long userId) {
+        return "user_sess:{" + userId + "}";
+    }
+
+    private String newId() {
+        byte[] buffer = new byte[ID_BYTES];
+        random.nextBytes(buffer);
+        return ID_ENCODER.encodeToString(buffer);
+    }
+
+    private static String truncate(String userAgent) {
+        if (userAgent == null) {
+            return "";
+        }
+        return userAgent.length() <= USER_AGENT_MAX ? userAgent : userAgent.substring(0, USER_AGENT_MAX);
+    }
+
+    private static SecureRandom createDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.ShardingProperties;
+import com.portfolio.auth.identity_service.util.SqlErrors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Moves users between shards while the ring changes, with every node online (see
+ * ShardingProperties for the three rollout steps).
+ *
+ * Dual-write: after a write commits, the user's row is copied from their owner to their
+ * shadow owner. Copies go through a deduplicating queue and one worker thread; the copy
+ * re-reads the row, so it always carries the latest committed state, and an older copy never
+ * overwrites a newer row (the UPDATE is guarded by updated_at). A full queue makes the
+ * writer copy inline instead of dropping anything.
+ *
+ * Backfill: one node (RedisLock) walks every shard in id order and inserts the rows whose
+ * shadow owner is elsewhere, unless the shadow owner already has them, so it never
+ * overwrites a dual-written copy. The per-shard cursor is checkpointed in Redis and a
+ * restart resumes from it.
+ *
+ * Cleanup (step 3): deletes the rows a shard no longer owns, chunk by chunk, and only the
+ * ones their owner is confirmed to have.
+ *
+ * Works on the shards' own pools, never in the caller's transaction. Assumes the
+ * email_normalized backfill is done: rows without one are left where they are (counted).
+ */
+@Slf4j
+@Service
+public class ShardSplit {
+
+    private static final String COLUMNS =
+            "id, name, email, email_normalized, password_hash, phone_number, role, enabled, created_at, updated_at, last_login";
+    private static final String SELECT_SQL = "SELECT " + COLUMNS + " FROM users ";
+    private static final String INSERT_SQL =
+            "INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = """
+            UPDATE users SET name = ?, email = ?, email_normalized = ?, password_hash = ?, phone_number = ?,
+                             role = ?, enabled = ?, updated_at = ?,
+                             last_login = CASE WHEN last_login IS NULL OR last_login < ? THEN ? ELSE last_login END
+            WHERE id = ? AND (updated_at IS NULL OR updated_at <= ?)
+            """;
+    private static final Timestamp NEVER = new Timestamp(0);
+
+    private static final String LOCK_KEY = "migration:shard-split:lock";
+    private static final String CHECKPOINT_PREFIX = "migration:shard-split:";
+    private static final String COPY_THREAD = "shard-split-copier";
+
+    private final UserShards userShards;
+    private final StringRedisTemplate redisTemplate;
+    private final ShardingProperties.Split props;
+    private final Map<Integer, JdbcTemplate> jdbc = new HashMap<>();
+    private final Map<Integer, NamedParameterJdbcTemplate> namedJdbc = new HashMap<>();
+    private final String splitKey;
+    private final RedisLock lock;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<String> copyQueue = new LinkedBlockingQueue<>();
+    private volatile Thread copier;
+    private volatile boolean backfillComplete;
+
+    private final Counter writeCopies;
+    private final Counter backfillCopies;
+    private final Counter conflicts;
+    private final Counter unnormalized;
+    private final Counter deleted;
+
+    public ShardSplit(UserShards userShards,
+                      StringRedisTemplate redisTemplate,
+                      ShardingProperties sharding,
+                      MeterRegistry registry) {
+        this.userShards = userShards;
+        this.redisTemplate = redisTemplate;
+        this.props = sharding.getSplit();
+        for (int shard : userShards.shards()) {
+            jdbc.put(shard, new JdbcTemplate(userShards.dataSource(shard)));
+            namedJdbc.put(shard, new NamedParameterJdbcTemplate(jdbc.get(shard)));
+        }
+        // Checkpoints belong to one particular ring change
+        this.splitKey = CHECKPOINT_PREFIX + sharding.getMembers() + "->" + sharding.getShadowMembers();
+        this.lock = new RedisLock(redisTemplate, LOCK_KEY, Duration.ofMinutes(5));
+
+        Gauge.builder("sharding.split.pending", pending, Set::size)
+                .description("Users whose last write is not copied to the shadow owner yet")
+                .register(registry);
+        Gauge.builder("sharding.split.backfill.complete", this, split -> split.backfillComplete ? 1 : 0)
+                .register(registry);
+        this.writeCopies = registry.counter("sharding.split.copies", "source", "write");
+        this.backfillCopies = registry.counter("sharding.split.copies", "source", "backfill");
+        this.conflicts = registry.counter("sharding.split.conflicts");
+        this.unnormalized = registry.counter("sharding.split.skipped.unnormalized");
+        this.deleted = registry.counter("sharding.split.cleanup.deleted");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInBackground() {
+        if (userShards.isSplitting()) {
+            copier = start(COPY_THREAD, this::copyLoop);
+            start("shard-split-backfill", this::backfill);
+        } else if (userShards.isSharded() && props.isCleanup()) {
+            start("shard-split-cleanup", this::cleanup);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread worker = copier;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        // Whatever is still queued goes out now; the backfill can't repair a lost update
+        String email;
+        while ((email = copyQueue.poll()) != null) {
+            pending.remove(email);
+            copyQuietly(email);
+        }
+    }
+
+    public boolean isBackfillComplete() {
+        return backfillComplete;
+    }
+
+    // Call after every write to a user's row; copies it to the shadow owner once it has committed
+    public void afterWrite(String normalizedEmail) {
+        if (userShards.shadowShardOf(normalizedEmail).isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(normalizedEmail);
+                }
+            });
+        } else {
+            enqueue(normalizedEmail);
+        }
+    }
+
+    private void enqueue(String normalizedEmail) {
+        if (!pending.add(normalizedEmail)) {
+            return;   // already queued: the copy will read the row after this write anyway
+        }
+        if (pending.size() > props.getMaxPendingCopies() || copier == null) {
+            pending.remove(normalizedEmail);
+            copyQuietly(normalizedEmail);
+            return;
+        }
+        copyQueue.add(normalizedEmail);
+    }
+
+    private void copyLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                String email = copyQueue.take();
+                pending.remove(email);   // before reading the row: a later write queues it again
+                copyQuietly(email);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void copyQuietly(String normalizedEmail) {
+        try {
+            copy(normalizedEmail);
+        } catch (DataAccessException e) {
+            // Left for the backfill if the row is new there; an update is lost, so say so loudly
+            log.error("✗ Shard copy of {} failed: {}", normalizedEmail, e.getMessage());
+        }
+    }
+
+    void copy(String normalizedEmail) {
+        int owner = userShards.shardOf(normalizedEmail);
+        OptionalInt shadow = userShards.shadowShardOf(normalizedEmail);
+        if (shadow.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> rows = jdbc.get(owner).queryForList(
+                SELECT_SQL + "WHERE email_normalized = ?", normalizedEmail);
+        for (Map<String, Object> row : rows) {
+            upsert(shadow.getAsInt(), row);
+            writeCopies.increment();
+        }
+    }
+
+    /**
+     * 1) newer-or-equal UPDATE, 2) INSERT if there was no row. A duplicate on the INSERT is
+     * either the backfill inserting its (possibly older) snapshot in between, then the UPDATE
+     * runs again and applies unless the shadow row is the newer one, or the email under
+     * another id, a conflict. Loops only if the row vanished again in the meantime.
+     */
+    private void upsert(int shard, Map<String, Object> row) {
+        long id = ((Number) row.get("id")).longValue();
+        while (true) {
+            if (updateIfNotOlder(shard, row) > 0) {
+                return;
+            }
+            try {
+                jdbc.get(shard).update(INSERT_SQL, insertArgs(row));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (!SqlErrors.isDuplicateKey(e)) {
+                    throw e;
+                }
+                List<Long> holders = jdbc.get(shard).queryForList(
+                        "SELECT id FROM users WHERE id = ? OR email_normalized = ?", Long.class, id, row.get("email_normalized"));
+                if (holders.contains(id)) {
+                    updateIfNotOlder(shard, row);   // 0 rows: the shadow row is newer, nothing to do
+                    return;
+                }
+                if (!holders.isEmpty()) {
+                    reportConflict(shard, row, holders.get(0));
+                    return;
+                }
+            }
+        }
+    }
+
+    private int updateIfNotOlder(int shard, Map<String, Object> row) {
+        // Passed through as the driver returned it: Connector/J gives LocalDateTime for DATETIME
+        Object updatedAt = row.get("updated_at") != null ? row.get("updated_at") : NEVER;
+        Object lastLogin = row.get("last_login");
+        return jdbc.get(shard).update(UPDATE_SQL,
+                row.get("name"), row.get("email"), row.get("email_normalized"), row.get("password_hash"),
+                row.get("phone_number"), row.get("role"), row.get("enabled"), row.get("updated_at"),
+                lastLogin, lastLogin,
+                row.get("id"), updatedAt);
+    }
+
+    // Insert-if-absent for a chunk: existing rows (dual-written ones included) are left alone
+    private void insertMissing(int shard, List<Map<String, Object>> rows) {
+        Set<Long> existing = new HashSet<>(namedJdbc.get(shard).queryForList(
+                "SELECT id FROM users WHERE id IN (:ids)", Map.of("ids", ids(rows)), Long.class));
+        List<Map<String, Object>> missing = rows.stream()
+                .filter(row -> !existing.contains(((Number) row.get("id")).longValue()))
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbc.get(shard).batchUpdate(INSERT_SQL, missing.stream().map(ShardSplit::insertArgs).toList());
+            backfillCopies.increment(missing.size());
+        } catch (DataIntegrityViolationException batchFailure) {
+            // A dual-write got there since the check above: row by row
+            for (Map<String, Object> row : missing) {
+                try {
+                    jdbc.get(shard).update(INSERT_SQL, insertArgs(row));
+                    backfillCopies.increment();
+                } catch (DataIntegrityViolationException e) {
+                    checkConflict(shard, row);
+                }
+            }
+        }
+    }
+
+    // Same id already there is fine; the email under another id means two registrations raced a rollout
+    private void checkConflict(int shard, Map<String, Object> row) {
+        List<Long> ids = jdbc.get(shard).queryForList(
+                "SELECT id FROM users WHERE email_normalized = ?", Long.class, row.get("email_normalized"));
+        if (!ids.isEmpty() && !ids.contains(((Number) row.get("id")).longValue())) {
+            reportConflict(shard, row, ids.get(0));
+        }
+    }
+
+    private void reportConflict(int shard, Map<String, Object> row, long otherId) {
+        conflicts.increment();
+        log.error("✗ Shard split conflict: {} is user {} on shard {} but {} on its owner, needs manual review",
+                row.get("email_normalized"), otherId, shard, row.get("id"));
+    }
+
+    void backfill() {
+        while (!backfillComplete) {
+            try {
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(splitKey + ":done"))) {
+                    backfillComplete = true;
+                } else if (lock.tryAcquire()) {
+                    try {
+                        for (int shard : userShards.shards()) {
+                            backfillShard(shard);
+                        }
+                        redisTemplate.opsForValue().set(splitKey + ":done", "1");
+                        backfillComplete = true;
+                    } finally {
+                        lock.release();
+                    }
+                } else {
+                    Thread.sleep(30_000);   // another node is on it, just re-check later
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (DataAccessException e) {
+                log.warn("Shard split backfill paused: {}", e.getMessage());
+                sleepQuietly(30_000);
+            }
+        }
+        log.info("✓ Shard split backfill complete; members and shadow-members can be swapped");
+    }
+
+    private void backfillShard(int shard) throws InterruptedException {
+        String cursorKey = splitKey + ":cursor:" + shard;
+        String saved = redisTemplate.opsForValue().get(cursorKey);
+        long lastId = saved == null ? Long.MIN_VALUE : Long.parseLong(saved);
+
+        while (true) {
+            List<Map<String, Object>> rows = chunk(shard, lastId);
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            // Rows this shard owns whose shadow owner is another shard, grouped by that shard
+            Map<Integer, List<Map<String, Object>>> byTarget = new HashMap<>();
+            for (Map<String, Object> row : rows) {
+                String email = (String) row.get("email_normalized");
+                if (email == null) {
+                    unnormalized.increment();
+                } else if (userShards.owns(shard, email)) {
+                    userShards.shadowShardOf(email).ifPresent(target ->
+                            byTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(row));
+                }
+            }
+            byTarget.forEach(this::insertMissing);
+
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+            redisTemplate.opsForValue().set(cursorKey, String.valueOf(lastId));
+            lock.renew();   // lost it during a slow chunk: stop, the new holder resumes from the cursor
+            log.debug("Shard split backfill: shard {} at id {}", shard, lastId);
+            Thread.sleep(props.getPause().toMillis());
+        }
+    }
+
+    void cleanup() {
+        long total = 0;
+        try {
+            for (int shard : userShards.shards()) {
+                total += cleanupShard(shard);
+            }
+            log.info("✓ Shard cleanup removed {} rows owned by other shards", total);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            // Nothing to resume: the next start walks the shards again
+            log.warn("✗ Shard cleanup stopped after {} rows: {}", total, e.getMessage());
+        }
+    }
+
+    private long cleanupShard(int shard) throws InterruptedException {
+        long lastId = Long.MIN_VALUE;
+        long removed = 0;
+
+        while (true) {
+            List<Map<String, Object>> rows = chunk(shard, lastId);
+            if (rows.isEmpty()) {
+                return removed;
+            }
+            lastId = ((Number) rows.get(rows.size() - 1).get("id")).longValue();
+
+            // 1) Rows owned elsewhere, by owner
+            Map<Integer, List<Map<String, Object>>> byOwner = new HashMap<>();
+            for (Map<String, Object> row : rows) {
+                String email = (String) row.get("email_normalized");
+                if (email != null && !userShards.owns(shard, email)) {
+                    byOwner.computeIfAbsent(userShards.shardOf(email), o -> new ArrayList<>()).add(row);
+                }
+            }
+
+            // 2) Delete only what the owner has
+            for (Map.Entry<Integer, List<Map<String, Object>>> entry : byOwner.entrySet()) {
+                List<Long> atOwner = namedJdbc.get(entry.getKey()).queryForList(
+                        "SELECT id FROM users WHERE id IN (:ids)", Map.of("ids", ids(entry.getValue())), Long.class);
+                if (atOwner.size() < entry.getValue().size()) {
+                    log.warn("✗ Shard {}: {} rows owned by shard {} are missing there, kept",
+                            shard, entry.getValue().size() - atOwner.size(), entry.getKey());
+                }
+                if (!atOwner.isEmpty()) {
+                    int count = namedJdbc.get(shard).update("DELETE FROM users WHERE id IN (:ids)", Map.of("ids", atOwner));
+                    removed += count;
+                    deleted.increment(count);
+                }
+            }
+            Thread.sleep(props.getPause().toMillis());
+        }
+    }
+
+    private List<Map<String, Object>> chunk(int shard, long afterId) {
+        return jdbc.get(shard).queryForList(SELECT_SQL + "WHERE id > ? ORDER BY id LIMIT ?", afterId, props.getChunkSize());
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> ((Number) row.get("id")).longValue()).toList();
+    }
+
+    private static Object[] insertArgs(Map<String, Object> row) {
+        return new Object[]{
+                row.get("id"), row.get("name"), row.get("email"), row.get("email_normalized"), row.get("password_hash"),
+                row.get("phone_number"), row.get("role"), row.get("enabled"), row.get("created_at"),
+                row.get("updated_at"), row.get("last_login")
+        };
+    }
+
+    private static Thread start(String name, Runnable work) {
+        Thread worker = new Thread(work, name);
+        worker.setDaemon(true);
+        worker.start();
+        return worker;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
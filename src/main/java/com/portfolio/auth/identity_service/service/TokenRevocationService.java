@@ -0,0 +1,216 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.JwtProperties;
+import com.portfolio.auth.identity_service.config.TokenRevocationProperties;
+import com.portfolio.auth.identity_service.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Revocation of access tokens (by jti) and of everything a user holds (per-user not-before).
+ *
+ * Redis is the source of truth: revoked:jti:<jti> until the token would have expired, and
+ * revoked:user:<id> = epoch second before which that user's tokens are void. Each node
+ * keeps a Bloom filter of those entries, fed by pub/sub deltas and rebuilt from a SCAN
+ * every rebuildInterval (which also drops expired entries). A request only reaches Redis
+ * when the filter says "maybe"; a miss is definitive. Until the first snapshot has loaded,
+ * and when Redis can't confirm a hit, tokens are treated as revoked (fail closed).
+ */
+@Slf4j
+@Service
+public class TokenRevocationService implements MessageListener {
+
+    private static final String JTI_KEY_PREFIX = "revoked:jti:";
+    private static final String USER_KEY_PREFIX = "revoked:user:";
+    private static final String JTI_ENTRY = "j:";
+    private static final String USER_ENTRY = "u:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final TaskScheduler taskScheduler;
+    private final TokenRevocationProperties props;
+    private final Duration userRevocationTtl;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;   // also receives deltas while a snapshot is being read
+    private final Object swapLock = new Object();   // a delta lands before the swap (both filters) or after it
+    private volatile boolean loaded;
+
+    private final Counter filterMisses;
+    private final Counter confirmedRevoked;
+    private final Counter falsePositives;
+    private final Counter redisErrors;
+
+    public TokenRevocationService(StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer,
+                                  TaskScheduler taskScheduler,
+                                  TokenRevocationProperties props,
+                                  JwtProperties jwtProperties,
+                                  MeterRegistry registry) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.taskScheduler = taskScheduler;
+        this.props = props;
+        // Per-user cut-offs must outlive the longest-lived token they void (refresh tokens)
+        this.userRevocationTtl = Duration.ofMillis(jwtProperties.getRefreshTokenExpirationMs());
+        this.filter = newFilter();
+
+        Gauge.builder("token.revocation.filter.entries", this, s -> s.filter.approximateElementCount())
+                .register(registry);
+        Gauge.builder("token.revocation.filter.bits", this, s -> s.filter.bitSize())
+                .baseUnit("bits")
+                .register(registry);
+        Gauge.builder("token.revocation.filter.fpp", this, s -> s.filter.expectedFalsePositiveRate())
+                .description("Current false-positive probability of the local revocation filter")
+                .register(registry);
+
+        this.filterMisses = registry.counter("token.revocation.checks", "result", "filter_miss");
+        this.confirmedRevoked = registry.counter("token.revocation.checks", "result", "revoked");
+        this.falsePositives = registry.counter("token.revocation.checks", "result", "false_positive");
+        this.redisErrors = registry.counter("token.revocation.checks", "result", "redis_error");
+    }
+
+    @PostConstruct
+    void start() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(props.getChannel()));
+        taskScheduler.scheduleWithFixedDelay(this::rebuild, Instant.now(), props.getRebuildInterval());
+    }
+
+    public void revokeToken(String jti, Instant expiresAt) {
+        Duration remaining = Duration.between(Instant.now(), expiresAt);
+        if (jti == null || remaining.isNegative() || remaining.isZero()) {
+            return;   // already expired, nothing to revoke
+        }
+        redisTemplate.opsForValue().set(JTI_KEY_PREFIX + jti, "1", remaining);
+        publish(JTI_ENTRY + jti);
+    }
+
+    // Voids every access and refresh token of the user issued before now
+    public void revokeAllForUser(long userId) {
+        String notBefore = String.valueOf(Instant.now().getEpochSecond());
+        redisTemplate.opsForValue().set(USER_KEY_PREFIX + userId, notBefore, userRevocationTtl);
+        publish(USER_ENTRY + userId);
+    }
+
+    public boolean isRevoked(JwtService.AccessTokenClaims claims) {
+        return isRevoked(claims.jti(), claims.userId(), claims.issuedAt().getEpochSecond());
+    }
+
+    public boolean isRevokedForUser(long userId, long issuedAtEpochSecond) {
+        return isRevoked(null, userId, issuedAtEpochSecond);
+    }
+
+    private boolean isRevoked(String jti, long userId, long issuedAtEpochSecond) {
+        // 1) Local filter: a miss is definitive, no Redis round trip
+        BloomFilter current = filter;
+        boolean ready = loaded;
+        boolean jtiHit = jti != null && (!ready || current.mightContain(JTI_ENTRY + jti));
+        boolean userHit = !ready || current.mightContain(USER_ENTRY + userId);
+        if (!jtiHit && !userHit) {
+            filterMisses.increment();
+            return false;
+        }
+
+        // 2) Maybe revoked: confirm both entries in one round trip
+        List<String> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(List.of(
+                    JTI_KEY_PREFIX + (jti == null ? "" : jti),
+                    USER_KEY_PREFIX + userId));
+        } catch (DataAccessException e) {
+            redisErrors.increment();
+            log.warn("✗ Revocation check for user {} could not reach Redis, rejecting token: {}", userId, e.getMessage());
+            return true;
+        }
+
+        String revokedJti = values == null ? null : values.get(0);
+        String notBefore = values == null ? null : values.get(1);
+        boolean revoked = (jti != null && revokedJti != null)
+                || (notBefore != null && issuedAtEpochSecond < Long.parseLong(notBefore));
+
+        (revoked ? confirmedRevoked : falsePositives).increment();
+        return revoked;
+    }
+
+    private void publish(String entry) {
+        addLocal(entry);
+        try {
+            redisTemplate.convertAndSend(props.getChannel(), entry);
+        } catch (DataAccessException e) {
+            // Other nodes pick it up with their next snapshot
+            log.warn("Revocation delta {} not propagated: {}", entry, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        addLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void addLocal(String entry) {
+        synchronized (swapLock) {
+            filter.put(entry);
+            BloomFilter next = rebuilding;
+            if (next != null) {
+                next.put(entry);
+            }
+        }
+    }
+
+    void rebuild() {
+        BloomFilter fresh = newFilter();
+        rebuilding = fresh;   // deltas from here on go into both filters, SCAN sees everything older
+        long entries = 0;
+
+        ScanOptions options = ScanOptions.scanOptions().match("revoked:*").count(1000).build();
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (key.startsWith(JTI_KEY_PREFIX)) {
+                    fresh.put(JTI_ENTRY + key.substring(JTI_KEY_PREFIX.length()));
+                } else if (key.startsWith(USER_KEY_PREFIX)) {
+                    fresh.put(USER_ENTRY + key.substring(USER_KEY_PREFIX.length()));
+                }
+                entries++;
+            }
+        } catch (DataAccessException e) {
+            rebuilding = null;
+            log.warn("Revocation snapshot failed, keeping the current filter: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (swapLock) {
+            filter = fresh;
+            rebuilding = null;
+        }
+        loaded = true;
+
+        if (entries > props.getExpectedEntries()) {
+            log.warn("Revocation filter holds {} entries (sized for {}), false-positive rate is degrading",
+                    entries, props.getExpectedEntries());
+        }
+        log.debug("Revocation filter rebuilt with {} entries", entries);
+    }
+
+    private BloomFilter newFilter() {
+        return BloomFilter.create(props.getExpectedEntries(), props.getFalsePositiveRate());
+    }
+}
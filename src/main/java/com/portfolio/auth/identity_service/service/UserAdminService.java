@@ -0,0 +1,306 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.portfolio.auth.identity_service.config.AdminUserQueryProperties;
+import com.portfolio.auth.identity_service.datasource.ReadWriteRoutingDataSource;
+import com.portfolio.auth.identity_service.datasource.ShardContext;
+import com.portfolio.auth.identity_service.dto.UserPage;
+import com.portfolio.auth.identity_service.dto.UserSummary;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.exception.ResourceNotFoundException;
+import com.portfolio.auth.identity_service.repository.UserRepository;
+import com.portfolio.auth.identity_service.util.EmailNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+public class UserAdminService {
+
+    private static final String EXPORT_SQL = """
+            SELECT id, name, email, email_normalized, phone_number, role, enabled, created_at, last_login
+            FROM users
+            """;
+
+    // MySQL Connector/J streams a result set row by row only with this fetch size; other drivers reject it
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final ShardSplit shardSplit;
+    private final UserCache userCache;
+    private final TokenRevocationService revocationService;
+    private final ObjectMapper objectMapper;
+    private final AdminUserQueryProperties props;
+    private final DataSource dataSource;
+
+    // Own templates (one per shard, made on first use): the fetch size must not leak into other queries
+    private final Map<Integer, JdbcTemplate> exportJdbcTemplates = new ConcurrentHashMap<>();
+
+    public UserAdminService(UserRepository userRepository,
+                            UserShards userShards,
+                            ShardSplit shardSplit,
+                            UserCache userCache,
+                            TokenRevocationService revocationService,
+                            ObjectMapper objectMapper,
+                            DataSource dataSource,
+                            AdminUserQueryProperties props) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.shardSplit = shardSplit;
+        this.userCache = userCache;
+        this.revocationService = revocationService;
+        this.objectMapper = objectMapper;
+        this.props = props;
+        this.dataSource = dataSource;
+    }
+
+    // Keyset page: cost is independent of how deep the caller has scrolled, and no COUNT(*)
+    @Transactional(readOnly = true)
+    public UserPage list(User.Role role, Boolean enabled, Long after, int size) {
+        int pageSize = Math.max(1, Math.min(size, props.getMaxPageSize()));
+        long from = after == null ? Long.MIN_VALUE : after;
+        Limit limit = Limit.of(pageSize);
+
+        // 1) The same keyset query on every shard at once (inline when there is just one)
+        List<List<UserSummary>> perShard = userShards.scatter(shard -> page(role, enabled, from, limit));
+        if (perShard.size() == 1) {
+            List<UserSummary> items = perShard.get(0);
+            Long nextAfter = items.size() < pageSize ? null : items.get(items.size() - 1).getId();
+            return UserPage.builder().items(items).nextAfter(nextAfter).build();
+        }
+        return merge(perShard, pageSize);
+    }
+
+    /**
+     * k-way merge of the per-shard pages by id. A shard that returned a full page may have more
+     * rows past its last id, so the page must stop there (the cutoff); rows a shard holds only
+     * as a split copy are dropped, the owner lists them. Either can make a page short while
+     * nextAfter is still set: only a null nextAfter means the end.
+     */
+    private UserPage merge(List<List<UserSummary>> perShard, int pageSize) {
+        int[] shards = userShards.shards();
+        long cutoff = Long.MAX_VALUE;
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<>();
+        for (int i = 0; i < perShard.size(); i++) {
+            List<UserSummary> rows = perShard.get(i);
+            if (rows.size() == pageSize) {
+                cutoff = Math.min(cutoff, rows.get(rows.size() - 1).getId());
+            }
+            if (!rows.isEmpty()) {
+                heads.add(new ShardCursor(shards[i], rows));
+            }
+        }
+
+        List<UserSummary> items = new ArrayList<>(pageSize);
+        while (!heads.isEmpty() && items.size() < pageSize) {
+            ShardCursor head = heads.poll();
+            UserSummary row = head.current();
+            if (row.getId() > cutoff) {
+                break;
+            }
+            if (userShards.owns(head.shard, EmailNormalizer.normalize(row.getEmail()))) {
+                items.add(row);
+            }
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+
+        Long nextAfter;
+        if (items.size() == pageSize) {
+            nextAfter = items.get(items.size() - 1).getId();
+        } else {
+            nextAfter = cutoff == Long.MAX_VALUE ? null : cutoff;
+        }
+        return UserPage.builder().items(items).nextAfter(nextAfter).build();
+    }
+
+    private List<UserSummary> page(User.Role role, Boolean enabled, long from, Limit limit) {
+        if (role != null && enabled != null) {
+            return userRepository.findByRoleAndEnabledAndIdGreaterThanOrderByIdAsc(role, enabled, from, limit);
+        } else if (role != null) {
+            return userRepository.findByRoleAndIdGreaterThanOrderByIdAsc(role, from, limit);
+        } else if (enabled != null) {
+            return userRepository.findByEnabledAndIdGreaterThanOrderByIdAsc(enabled, from, limit);
+        }
+        return userRepository.findByIdGreaterThanOrderByIdAsc(from, limit);
+    }
+
+    /**
+     * Writes every matching user as one JSON object per line, straight from a forward-only,
+     * read-only JDBC cursor to the output. Rows are never collected, so memory stays flat
+     * whatever the table size; the connection is held for the duration of the export.
+     * Read-only, so with replica routing it runs on a replica. Sharded, the shards are exported
+     * one after the other (id order within each), each from its own pool.
+     */
+    @Transactional(readOnly = true)
+    public long export(User.Role role, Boolean enabled, OutputStream out) throws IOException {
+        // 1) Build the filter (same columns the listing indexes serve)
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> args = new ArrayList<>(2);
+        if (role != null) {
+            sql.append(args.isEmpty() ? "WHERE " : "AND ").append("role = ? ");
+            args.add(role.name());
+        }
+        if (enabled != null) {
+            sql.append(args.isEmpty() ? "WHERE " : "AND ").append("enabled = ? ");
+            args.add(enabled);
+        }
+        sql.append("ORDER BY id");
+
+        // 2) Stream rows into the generator; it writes through to the response buffer
+        long[] rows = {0};
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(null);   // rows end in '\n' themselves; the default would add a space
+            for (int shard : userShards.shards()) {
+                exportJdbcTemplates.computeIfAbsent(shard, this::exportTemplate).query(sql.toString(), resultSet -> {
+                    // A row the shard only holds as a split copy is exported by its owner
+                    if (userShards.isSharded() && !ownedBy(shard, resultSet)) {
+                        return;
+                    }
+                    try {
+                        writeRow(json, resultSet);
+                        if (++rows[0] % props.getExportFlushEvery() == 0) {
+                            json.flush();
+                        }
+                    } catch (IOException e) {
+                        // Client went away; unwinding closes the cursor and frees the connection
+                        throw new UncheckedIOException(e);
+                    }
+                }, args.toArray());
+            }
+        } catch (UncheckedIOException e) {
+            log.info("User export aborted after {} rows: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+
+        log.info("✓ Exported {} users", rows[0]);
+        return rows[0];
+    }
+
+    // Not one transaction: the lookup may have to visit several shards before the update
+    public void changeRole(long userId, User.Role role) {
+        // 1) Locate the user (the email is needed for cache eviction and picks the shard to update)
+        User user = findOnAnyShard(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        if (user.getRole() == role) {
+            return;
+        }
+        String email = EmailNormalizer.normalize(user.getEmail());
+
+        // 2) Single-column UPDATE on the owner's shard, copied on if a split is running
+        userShards.onShardOf(email, () -> userRepository.updateRole(userId, role));
+        shardSplit.afterWrite(email);
+
+        // 3) Drop cached snapshots
+        userCache.evict(email);
+
+        // 4) The role is a token claim: void outstanding tokens so the next login carries the new one
+        revocationService.revokeAllForUser(userId);
+
+        log.info("✓ Role of user {} changed {} -> {}", userId, user.getRole(), role);
+    }
+
+    // The shard in the id first; the others only if a split has moved the user since
+    private Optional<User> findOnAnyShard(long userId) {
+        int home = userShards.homeShardOf(userId);
+        List<Integer> candidates = new ArrayList<>();
+        candidates.add(home);
+        for (int shard : userShards.shards()) {
+            if (shard != home) {
+                candidates.add(shard);
+            }
+        }
+        for (int shard : candidates) {
+            Optional<User> user = ShardContext.on(shard,
+                    () -> ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findById(userId)));
+            if (user.isPresent()) {
+                return user;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Unsharded: the shared DataSource, so the export keeps following its transaction (replica routing)
+    private JdbcTemplate exportTemplate(int shard) {
+        JdbcTemplate template = new JdbcTemplate(userShards.isSharded() ? userShards.dataSource(shard) : dataSource);
+        String product;
+        try {
+            product = JdbcUtils.extractDatabaseMetaData(template.getDataSource(), DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException e) {
+            throw new DataAccessResourceFailureException("Could not determine the database of shard " + shard, e);
+        }
+        template.setFetchSize("MySQL".equalsIgnoreCase(product) ? MYSQL_STREAMING_FETCH_SIZE : props.getExportFetchSize());
+        return template;
+    }
+
+    private boolean ownedBy(int shard, ResultSet rs) throws SQLException {
+        String normalized = rs.getString("email_normalized");
+        return userShards.owns(shard, normalized != null ? normalized : EmailNormalizer.normalize(rs.getString("email")));
+    }
+
+    private static final class ShardCursor implements Comparable<ShardCursor> {
+        private final int shard;
+        private final List<UserSummary> rows;
+        private int index;
+
+        private ShardCursor(int shard, List<UserSummary> rows) {
+            this.shard = shard;
+            this.rows = rows;
+        }
+
+        private UserSummary current() {
+            return rows.get(index);
+        }
+
+        private boolean advance() {
+            return ++index < rows.size();
+        }
+
+        @Override
+        public int compareTo(ShardCursor other) {
+            return Long.compare(current().getId(), other.current().getId());
+        }
+    }
+
+    private static void writeRow(JsonGenerator json, ResultSet rs) throws IOException, SQLException {
+        json.writeStartObject();
+        json.writeStringField("id", Long.toString(rs.getLong("id")));   // above 2^53, see UserResponse
+        json.writeStringField("name", rs.getString("name"));
+        json.writeStringField("email", rs.getString("email"));
+        json.writeStringField("phoneNumber", rs.getString("phone_number"));
+        json.writeStringField("role", rs.getString("role"));
+        json.writeBooleanField("enabled", rs.getBoolean("enabled"));
+        json.writeStringField("createdAt", isoOrNull(rs.getTimestamp("created_at")));
+        json.writeStringField("lastLogin", isoOrNull(rs.getTimestamp("last_login")));
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static String isoOrNull(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().toString();
+    }
+}
@@ -0,0 +1,217 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.portfolio.auth.identity_service.config.UserCacheProperties;
+import com.portfolio.auth.identity_service.dto.UserSnapshot;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Two-level cache of UserSnapshot keyed by normalized email: Caffeine per node (L1),
+ * Redis shared by all nodes (L2), the database only on a miss in both.
+ *
+ * Writers call evict(); it drops L2 and publishes the email so every node drops its L1
+ * copy. When called inside a transaction this happens after commit, so a concurrent
+ * reader can't re-cache the pre-commit row. Eviction also bumps a per-email version and a
+ * fill only lands if the version is the one read before its DB load, so a reader that loaded
+ * the old row before the eviction can't put it back afterwards. Redis problems degrade to DB reads.
+ */
+@Slf4j
+@Service
+public class UserCache implements MessageListener {
+
+    private static final RedisScript<Long> FILL_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/user-cache-fill.lua"), Long.class);
+    private static final RedisScript<Long> EVICT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/user-cache-evict.lua"), Long.class);
+
+    private final UserRepository userRepository;
+    private final UserShards userShards;
+    private final EmailNormalizationBackfill emailBackfill;
+    private final ReadYourWrites readYourWrites;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final UserCacheProperties props;
+    private final Cache<String, UserSnapshot> local;
+
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter dbLoads;
+    private final Counter invalidations;
+
+    public UserCache(UserRepository userRepository,
+                     UserShards userShards,
+                     EmailNormalizationBackfill emailBackfill,
+                     ReadYourWrites readYourWrites,
+                     StringRedisTemplate redisTemplate,
+                     RedisMessageListenerContainer listenerContainer,
+                     ObjectMapper objectMapper,
+                     UserCacheProperties props,
+                     MeterRegistry registry) {
+        this.userRepository = userRepository;
+        this.userShards = userShards;
+        this.emailBackfill = emailBackfill;
+        this.readYourWrites = readYourWrites;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.props = props;
+
+        this.local = Caffeine.newBuilder()
+                .maximumSize(props.getLocalMaxSize())
+                .expireAfterWrite(props.getLocalTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, local, "users.local");
+
+        this.redisHits = registry.counter("users.cache.redis", "result", "hit");
+        this.redisMisses = registry.counter("users.cache.redis", "result", "miss");
+        this.dbLoads = registry.counter("users.cache.db.loads");
+        this.invalidations = registry.counter("users.cache.invalidations");
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(props.getInvalidationChannel()));
+    }
+
+    public Optional<UserSnapshot> findByEmail(String normalizedEmail) {
+        if (!props.isEnabled()) {
+            return loadFromDb(normalizedEmail);
+        }
+
+        // 1) L1
+        UserSnapshot cached = local.getIfPresent(normalizedEmail);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // 2) L2, reading the version in the same round trip so the fill below can be guarded
+        String redisKey = redisKey(normalizedEmail);
+        List<String> cachedAndVersion = readRedis(redisKey);
+        UserSnapshot shared = parse(redisKey, cachedAndVersion == null ? null : cachedAndVersion.get(0));
+        if (shared != null) {
+            redisHits.increment();
+            local.put(normalizedEmail, shared);
+            return Optional.of(shared);
+        }
+        redisMisses.increment();
+
+        // 3) DB, then fill both levels unless an eviction happened meanwhile (the row may be stale).
+        //    With Redis down there is no version to guard on and no invalidation reaching other nodes: fill neither
+        Optional<UserSnapshot> loaded = loadFromDb(normalizedEmail);
+        if (cachedAndVersion != null) {
+            String version = cachedAndVersion.get(1) == null ? "" : cachedAndVersion.get(1);
+            loaded.ifPresent(snapshot -> {
+                if (writeRedis(redisKey, version, snapshot)) {
+                    local.put(normalizedEmail, snapshot);
+                }
+            });
+        }
+        return loaded;
+    }
+
+    public void evict(String normalizedEmail) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(normalizedEmail);
+                }
+            });
+        } else {
+            evictNow(normalizedEmail);
+        }
+    }
+
+    private void evictNow(String normalizedEmail) {
+        readYourWrites.markWritten(normalizedEmail);
+        local.invalidate(normalizedEmail);
+        invalidations.increment();
+        try {
+            String redisKey = redisKey(normalizedEmail);
+            redisTemplate.execute(EVICT_SCRIPT, List.of(redisKey, redisKey + ":v"),
+                    String.valueOf(props.getRedisTtl().toMillis()));
+            redisTemplate.convertAndSend(props.getInvalidationChannel(), normalizedEmail);
+        } catch (DataAccessException e) {
+            log.warn("User cache invalidation for {} not propagated: {}", normalizedEmail, e.getMessage());
+        }
+    }
+
+    // Invalidation from any node (including our own publish, which is harmless)
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        local.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    // Read-only repository calls on the user's shard, so a replica serves them unless the user just wrote
+    private Optional<UserSnapshot> loadFromDb(String normalizedEmail) {
+        dbLoads.increment();
+        return userShards.onShardOf(normalizedEmail, () -> readYourWrites.read(normalizedEmail, () -> {
+            Optional<User> user = userRepository.findByEmailNormalized(normalizedEmail);
+            if (user.isEmpty() && !emailBackfill.isComplete()) {
+                user = userRepository.findByEmailIgnoreCase(normalizedEmail);   // row not backfilled yet, or left NULL by a conflict
+            }
+            return user.map(UserSnapshot::from);
+        }));
+    }
+
+    // Snapshot and version share a hash tag so the scripts stay on one slot in Redis Cluster
+    private String redisKey(String normalizedEmail) {
+        return props.getRedisKeyPrefix() + "{" + normalizedEmail + "}";
+    }
+
+    // [snapshot JSON, version], either may be null; null if Redis is unavailable
+    private List<String> readRedis(String redisKey) {
+        try {
+            return redisTemplate.opsForValue().multiGet(List.of(redisKey, redisKey + ":v"));
+        } catch (DataAccessException e) {
+            log.warn("User cache read failed for {}: {}", redisKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private UserSnapshot parse(String redisKey, String json) {
+        try {
+            return json == null ? null : objectMapper.readValue(json, UserSnapshot.class);
+        } catch (JsonProcessingException e) {
+            log.warn("User cache entry unreadable for {}: {}", redisKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean writeRedis(String redisKey, String version, UserSnapshot snapshot) {
+        try {
+            Long filled = redisTemplate.execute(FILL_SCRIPT, List.of(redisKey, redisKey + ":v"),
+                    version, objectMapper.writeValueAsString(snapshot), String.valueOf(props.getRedisTtl().toMillis()));
+            return filled != null && filled == 1;
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("User cache write failed for {}: {}", redisKey, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.ShardingProperties;
+import com.portfolio.auth.identity_service.datasource.ShardContext;
+import com.portfolio.auth.identity_service.datasource.ShardRoutingDataSource;
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import com.portfolio.auth.identity_service.util.ShardRing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Where a user's row lives: the owner of their normalized email on the consistent-hash ring.
+ *
+ * Everything that touches the users table goes through here. A lookup or write for one
+ * email runs on that email's shard only (onShardOf); listings ask every shard in parallel
+ * (scatter). A user id also carries the shard it was created on (homeShardOf), which stays
+ * right until a split moves the user. During a split the shadow ring names the shard a
+ * write is copied to as well (see ShardSplit).
+ *
+ * With sharding off there is one shard, 0, and all of this runs inline on the caller's thread.
+ */
+@Slf4j
+@Component
+public class UserShards {
+
+    private final boolean sharded;
+    private final ShardRing ring;
+    private final ShardRing shadowRing;          // null = no split in progress
+    private final int[] shards;                  // every configured shard, ascending
+    private final Map<Integer, DataSource> dataSources;
+    private final ExecutorService scatterPool;   // null when there is only one shard
+    private final long scatterTimeoutMillis;
+    private final Timer scatterTime;
+
+    public UserShards(ShardingProperties props,
+                      ObjectProvider<ShardRoutingDataSource> shardRouting,
+                      DataSource dataSource,
+                      MeterRegistry registry) {
+        this.sharded = props.isEnabled();
+        this.dataSources = sharded
+                ? shardRouting.getObject().shards()
+                : Map.of(ShardContext.DEFAULT_SHARD, dataSource);
+        this.shards = dataSources.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+
+        // 1) Rings: only over configured shards, and every shard must fit in the id bits
+        List<Integer> members = sharded && !props.getMembers().isEmpty()
+                ? props.getMembers()
+                : List.of(ShardContext.DEFAULT_SHARD);
+        this.ring = ring(members, props);
+        this.shadowRing = sharded && !props.getShadowMembers().isEmpty() ? ring(props.getShadowMembers(), props) : null;
+        for (ShardRing configured : shadowRing == null ? List.of(ring) : List.of(ring, shadowRing)) {
+            for (int member : configured.shards()) {
+                if (!dataSources.containsKey(member)) {
+                    throw new IllegalStateException("Ring member " + member + " is not a configured shard");
+                }
+            }
+        }
+        if (sharded && shards[shards.length - 1] >= 1 << props.getIdShardBits()) {
+            throw new IllegalStateException("Shard " + shards[shards.length - 1] + " does not fit in "
+                    + props.getIdShardBits() + " id bits (sharding.id-shard-bits)");
+        }
+
+        // 2) Scatter pool: fixed size, so a wide listing can't take every connection at once
+        this.scatterTimeoutMillis = props.getScatterTimeout().toMillis();
+        this.scatterTime = registry.timer("users.shard.scatter");
+        if (shards.length > 1) {
+            AtomicInteger threadNo = new AtomicInteger();
+            this.scatterPool = new ThreadPoolExecutor(props.getScatterThreads(), props.getScatterThreads(),
+                    0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "shard-scatter-" + threadNo.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        } else {
+            this.scatterPool = null;
+        }
+
+        if (sharded) {
+            log.info("✓ Users ring {} over shards {}{}", ring, Arrays.toString(shards),
+                    shadowRing == null ? "" : ", splitting to " + shadowRing);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scatterPool != null) {
+            scatterPool.shutdownNow();
+        }
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public boolean isSplitting() {
+        return shadowRing != null;
+    }
+
+    public int shardOf(String normalizedEmail) {
+        return ring.shardFor(normalizedEmail);
+    }
+
+    public boolean owns(int shard, String normalizedEmail) {
+        return ring.shardFor(normalizedEmail) == shard;
+    }
+
+    // The other shard a write to this user must reach while a split is in progress
+    public OptionalInt shadowShardOf(String normalizedEmail) {
+        if (shadowRing == null) {
+            return OptionalInt.empty();
+        }
+        int shadow = shadowRing.shardFor(normalizedEmail);
+        return shadow == ring.shardFor(normalizedEmail) ? OptionalInt.empty() : OptionalInt.of(shadow);
+    }
+
+    // Where the user was created; a split may have moved them since
+    public int homeShardOf(long userId) {
+        return TimeOrderedIds.shardOf(userId);
+    }
+
+    public int[] shards() {
+        return shards.clone();
+    }
+
+    // The shard's own pool, outside whatever transaction the caller has open
+    public DataSource dataSource(int shard) {
+        DataSource dataSource = dataSources.get(shard);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        }
+        return dataSource;
+    }
+
+    public <T> T onShardOf(String normalizedEmail, Supplier<T> work) {
+        return ShardContext.on(shardOf(normalizedEmail), work);
+    }
+
+    public void onShardOf(String normalizedEmail, Runnable work) {
+        ShardContext.on(shardOf(normalizedEmail), work);
+    }
+
+    /**
+     * Runs perShard on every shard at once, each in ShardContext on a scatter thread (so in its
+     * own transaction), and returns the results in shards() order. Fails as a whole: a shard
+     * that errors or misses scatterTimeout fails the call, a partial answer is never returned.
+     */
+    public <T> List<T> scatter(IntFunction<T> perShard) {
+        if (scatterPool == null) {
+            return Collections.singletonList(ShardContext.on(shards[0], () -> perShard.apply(shards[0])));
+        }
+
+        Timer.Sample sample = Timer.start();
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int shard : shards) {
+            futures.add(scatterPool.submit(() -> ShardContext.on(shard, () -> perShard.apply(shard))));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(scatterTimeoutMillis);
+        List<T> results = new ArrayList<>(shards.length);
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    throw new QueryTimeoutException("Shard " + shards[i] + " did not answer within " + scatterTimeoutMillis + "ms");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    throw new IllegalStateException("Query on shard " + shards[i] + " failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for the shards");
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+            sample.stop(scatterTime);
+        }
+        return results;
+    }
+
+    private static ShardRing ring(List<Integer> members, ShardingProperties props) {
+        return new ShardRing(members, props.getVirtualNodes());
+    }
+}
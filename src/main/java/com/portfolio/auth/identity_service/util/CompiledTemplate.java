@@ -0,0 +1,87 @@
+package com.portfolio.auth.identity_service.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A text template parsed once into literal segments and variable slots.
+ *
+ * Placeholders are {{name}}. render() sizes its buffer exactly from the precomputed literal
+ * length and appends literal, value, literal, ... No parsing, no format specifiers and no
+ * regex on the render path. An unknown placeholder fails the compile, i.e. startup, not a send.
+ * Values are spliced in as they are; escaping them is the caller's business.
+ */
+public final class CompiledTemplate {
+
+    public static final String OPEN = "{{";
+    public static final String CLOSE = "}}";
+
+    private final String[] literals;     // literals.length == slots.length + 1
+    private final int[] slots;           // index into render()'s values, per gap between literals
+    private final int variableCount;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, int[] slots, int variableCount) {
+        this.literals = literals;
+        this.slots = slots;
+        this.variableCount = variableCount;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static CompiledTemplate compile(String source, List<String> variables) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int at = 0;
+        while (true) {
+            int open = source.indexOf(OPEN, at);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            String name = source.substring(open + OPEN.length(), close).strip();
+            int slot = variables.indexOf(name);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Unknown placeholder {{" + name + "}}");
+            }
+            literals.add(source.substring(at, open));
+            slots.add(slot);
+            at = close + CLOSE.length();
+        }
+        literals.add(source.substring(at));
+
+        return new CompiledTemplate(
+                literals.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                variables.size());
+    }
+
+    // values in the order of the variables given to compile()
+    public String render(String... values) {
+        if (values.length != variableCount) {
+            throw new IllegalArgumentException("Expected " + variableCount + " values, got " + values.length);
+        }
+
+        int length = literalLength;
+        for (int slot : slots) {
+            length += values[slot].length();
+        }
+
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]).append(values[slots[i]]);
+        }
+        return out.append(literals[slots.length]).toString();
+    }
+
+    public int literalLength() {
+        return literalLength;
+    }
+}
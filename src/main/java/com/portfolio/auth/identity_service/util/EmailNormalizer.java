@@ -0,0 +1,14 @@
+package com.portfolio.auth.identity_service.util;
+
+import java.util.Locale;
+
+// The one place that defines how emails are compared (users.email_normalized, cache and Redis keys)
+public final class EmailNormalizer {
+
+    private EmailNormalizer() {
+    }
+
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
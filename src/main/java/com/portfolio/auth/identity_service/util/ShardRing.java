@@ -0,0 +1,106 @@
+package com.portfolio.auth.identity_service.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Consistent-hash ring that maps a key (the normalized email) to a shard number.
+ *
+ * Every shard owns virtualNodes points on a 64-bit ring; a key belongs to the first point at
+ * or after its hash, wrapping around. With ~100+ points per shard the keys spread evenly, and
+ * adding a shard only moves keys onto the new shard (about 1/n of them), never between the
+ * existing ones. Lookups are a binary search over a sorted array.
+ *
+ * The hash (FNV-1a over the chars with a 64-bit avalanche) decides where every stored row
+ * lives, so it must never change; neither may the point labels "shard-<n>#<i>".
+ */
+public final class ShardRing {
+
+    private final int[] shards;       // members, ascending
+    private final int virtualNodes;
+    private final long[] points;      // ascending
+    private final int[] owners;       // owners[i] owns points[i]
+
+    public ShardRing(Collection<Integer> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one shard");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        this.shards = new TreeSet<>(members).stream().mapToInt(Integer::intValue).toArray();
+        this.virtualNodes = virtualNodes;
+
+        // Sort (point, shard) pairs together; ties go to the lower shard so the order is total
+        int size = shards.length * virtualNodes;
+        long[][] pairs = new long[size][];
+        int i = 0;
+        for (int shard : shards) {
+            for (int v = 0; v < virtualNodes; v++) {
+                pairs[i++] = new long[]{hash("shard-" + shard + "#" + v), shard};
+            }
+        }
+        Arrays.sort(pairs, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int p = 0; p < size; p++) {
+            points[p] = pairs[p][0];
+            owners[p] = (int) pairs[p][1];
+        }
+    }
+
+    public int shardFor(String key) {
+        long h = hash(key);
+        int at = Arrays.binarySearch(points, h);
+        if (at < 0) {
+            at = -at - 1;             // insertion point = first point above the hash
+        }
+        return owners[at == points.length ? 0 : at];
+    }
+
+    public int[] shards() {
+        return shards.clone();
+    }
+
+    public boolean contains(int shard) {
+        return Arrays.binarySearch(shards, shard) >= 0;
+    }
+
+    public int virtualNodes() {
+        return virtualNodes;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ShardRing ring
+                && virtualNodes == ring.virtualNodes
+                && Arrays.equals(shards, ring.shards);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(shards) + virtualNodes;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(shards) + "x" + virtualNodes;
+    }
+
+    // FNV-1a over the chars, finished with a 64-bit avalanche
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
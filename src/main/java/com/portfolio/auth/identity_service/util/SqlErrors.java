@@ -0,0 +1,23 @@
+package com.portfolio.auth.identity_service.util;
+
+import java.sql.SQLException;
+
+public final class SqlErrors {
+
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final String SQLSTATE_UNIQUE_VIOLATION = "23505";   // H2 / PostgreSQL
+
+    private SqlErrors() {
+    }
+
+    // True if anywhere in the cause chain the driver reported a unique-key violation
+    public static boolean isDuplicateKey(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql
+                    && (sql.getErrorCode() == MYSQL_DUPLICATE_ENTRY || SQLSTATE_UNIQUE_VIOLATION.equals(sql.getSQLState()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
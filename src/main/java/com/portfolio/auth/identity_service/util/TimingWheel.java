@@ -0,0 +1,61 @@
+package com.portfolio.auth.identity_service.util;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for expiring keys without a timer per key.
+ *
+ * A ring of slots, one per tick; schedule() drops the key into the slot of its deadline tick
+ * (O(1)), and advance() empties the slots of the ticks that have passed and hands their keys
+ * to the caller. Deadlines further out than one turn of the wheel land in an earlier lap's
+ * slot, and keys are only ever handed out late, never early: the caller checks the real
+ * deadline and re-schedules a key that isn't due yet. A key scheduled twice is handed out
+ * twice, which callers treat the same way. Safe for concurrent schedule(); advance() is meant
+ * for a single thread.
+ */
+public final class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final Queue<K>[] slots;
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(Duration tick, int slotCount, long nowMillis) {
+        if (tick.toMillis() <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("tick and slotCount must be positive");
+        }
+        this.tickMillis = tick.toMillis();
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public void schedule(K key, long deadlineMillis) {
+        long tick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        slots[(int) (tick % slots.length)].add(key);
+    }
+
+    // Hands out every key whose slot has come up by nowMillis
+    public void advance(long nowMillis, Consumer<K> due) {
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            long tick = currentTick + 1;
+            Queue<K> slot = slots[(int) (tick % slots.length)];
+            currentTick = tick;   // keys scheduled from here on go to a later slot
+
+            // Only what was there: a key re-scheduled one lap out lands in this same slot
+            for (int pending = slot.size(); pending > 0; pending--) {
+                K key = slot.poll();
+                if (key == null) {
+                    break;
+                }
+                due.accept(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- Compare-and-delete: releases a lock only while it still holds this holder's token.
+-- KEYS[1] = lock key
+-- ARGV[1] = holder token
+-- Returns 1 if released, 0 if the lock had expired or another holder has it.
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
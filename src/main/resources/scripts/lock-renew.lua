@@ -0,0 +1,10 @@
+-- Compare-and-expire: extends a lock only while it still holds this holder's token.
+-- KEYS[1] = lock key
+-- ARGV[1] = holder token
+-- ARGV[2] = new TTL (milliseconds)
+-- Returns 1 if extended, 0 if the lock had expired or another holder has it.
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], tonumber(ARGV[2]))
+end
+return 0
@@ -0,0 +1,8 @@
+-- Takes the verified flag: 1 for exactly one caller, 0 for everyone else.
+-- KEYS[1] = otph:<id>
+-- ARGV[1] = purpose
+
+if redis.call('HGET', KEYS[1], 'p') ~= ARGV[1] then
+    return 0
+end
+return redis.call('HDEL', KEYS[1], 'v')
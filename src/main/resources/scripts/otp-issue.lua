@@ -0,0 +1,9 @@
+-- Replaces the identity's OTP state with a fresh code.
+-- KEYS[1] = otph:<id>
+-- ARGV[1] = code, ARGV[2] = purpose, ARGV[3] = issued at (epoch seconds), ARGV[4] = TTL (seconds)
+-- Fields stay short and few, so Redis keeps the hash in its compact (listpack) encoding.
+
+redis.call('DEL', KEYS[1])
+redis.call('HSET', KEYS[1], 'p', ARGV[2], 'c', ARGV[1], 'a', 0, 't', ARGV[3])
+redis.call('EXPIRE', KEYS[1], tonumber(ARGV[4]))
+return 1
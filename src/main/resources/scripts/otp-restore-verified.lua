@@ -0,0 +1,11 @@
+-- Gives a taken verified flag back, because the action it was taken for failed.
+-- KEYS[1] = otph:<id>
+-- ARGV[1] = purpose
+-- Returns 1 if restored, 0 if the state expired or a new code was issued since.
+-- The hash keeps the verified flag's TTL, so a restored flag expires when the original would have.
+
+if redis.call('HGET', KEYS[1], 'p') ~= ARGV[1] or redis.call('HEXISTS', KEYS[1], 'c') == 1 then
+    return 0
+end
+redis.call('HSET', KEYS[1], 'v', '1')
+return 1
@@ -0,0 +1,24 @@
+-- Verify-and-consume against the previous per-purpose string keys, for codes issued before
+-- the otph:<id> layout. Goes away with otp.store.legacy-fallback.
+-- KEYS[1] = otp:<PURPOSE>:<email>
+-- KEYS[2] = otp_verified:<PURPOSE>:<email>
+-- ARGV[1] = submitted code
+-- ARGV[2] = TTL (seconds) of the verified flag to set on success, 0 = don't set it
+-- Returns 1 on match (code consumed), 0 wrong code, -1 no code.
+
+local stored = redis.call('GET', KEYS[1])
+if not stored then
+    return -1
+end
+if stored ~= ARGV[1] then
+    return 0
+end
+
+redis.call('DEL', KEYS[1])
+
+local flagTtl = tonumber(ARGV[2])
+if flagTtl > 0 then
+    redis.call('SET', KEYS[2], 'true', 'EX', flagTtl)
+end
+
+return 1
@@ -0,0 +1,44 @@
+-- Atomic OTP verify-and-consume.
+-- KEYS[1] = otph:<id>
+-- ARGV[1] = purpose
+-- ARGV[2] = submitted code
+-- ARGV[3] = TTL (seconds) of the verified flag to set on success, 0 = don't set it
+-- ARGV[4] = wrong guesses after which the code is void
+-- Returns 1 on match (code consumed), 0 wrong code, -1 no code for this purpose (expired / never sent),
+-- -2 no code but the submitted one was already used, -3 code voided by too many wrong guesses.
+
+local state = redis.call('HMGET', KEYS[1], 'p', 'c', 'a', 'u')
+if state[1] ~= ARGV[1] then
+    return -1
+end
+
+local stored = state[2]
+local maxAttempts = tonumber(ARGV[4])
+if not stored then
+    if tonumber(state[3] or '0') >= maxAttempts then
+        return -3
+    end
+    if state[4] == ARGV[2] then
+        return -2
+    end
+    return -1
+end
+
+if stored ~= ARGV[2] then
+    if redis.call('HINCRBY', KEYS[1], 'a', 1) >= maxAttempts then
+        redis.call('HDEL', KEYS[1], 'c')
+        return -3
+    end
+    return 0
+end
+
+redis.call('HDEL', KEYS[1], 'c')
+redis.call('HSET', KEYS[1], 'u', stored)
+
+local flagTtl = tonumber(ARGV[3])
+if flagTtl > 0 then
+    redis.call('HSET', KEYS[1], 'v', '1')
+    redis.call('EXPIRE', KEYS[1], flagTtl)
+end
+
+return 1
@@ -0,0 +1,48 @@
+-- Multi-key token bucket. All buckets must have a token, otherwise nothing is consumed.
+-- The keys of one call must share a hash slot in Redis Cluster; OtpRateLimiter passes a single key.
+-- KEYS[i]       = bucket key (hash with fields t = tokens, ts = last refill in ms)
+-- ARGV[2i - 1]  = capacity of bucket i
+-- ARGV[2i]      = period (ms) to refill bucket i from empty to full
+-- Returns {0, 0} when allowed, otherwise {retry_after_ms, index of the limiting key}.
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local tokens = {}
+local retryAfter = 0
+local limiting = 0
+
+for i = 1, #KEYS do
+    local capacity = tonumber(ARGV[2 * i - 1])
+    local rate = capacity / tonumber(ARGV[2 * i])
+
+    local bucket = redis.call('HMGET', KEYS[i], 't', 'ts')
+    local t = tonumber(bucket[1])
+    local ts = tonumber(bucket[2])
+    if t == nil or ts == nil then
+        t = capacity
+        ts = now
+    end
+
+    t = math.min(capacity, t + math.max(0, now - ts) * rate)
+    tokens[i] = t
+
+    if t < 1 then
+        local wait = math.ceil((1 - t) / rate)
+        if wait > retryAfter then
+            retryAfter = wait
+            limiting = i
+        end
+    end
+end
+
+if retryAfter > 0 then
+    return {retryAfter, limiting}
+end
+
+for i = 1, #KEYS do
+    redis.call('HSET', KEYS[i], 't', tostring(tokens[i] - 1), 'ts', tostring(now))
+    redis.call('PEXPIRE', KEYS[i], ARGV[2 * i])
+end
+
+return {0, 0}
@@ -0,0 +1,38 @@
+-- Refresh token rotation with reuse detection.
+-- KEYS[1] = rt:{<family>}:<sha256 of presented token>   hash: uid, email, iat[, used]
+-- KEYS[2] = rt:{<family>}:<sha256 of replacement token>
+-- KEYS[3] = rt_fam:{<family>}                           the family's current token key
+-- ARGV[1] = TTL (seconds) of the replacement token
+-- Returns {'OK', uid, email, iat} | {'UNKNOWN'} | {'REUSED'}   (iat = family start, epoch seconds)
+--
+-- A rotated token is kept as a 'used' tombstone until it expires. Presenting it again
+-- means it leaked (or the client raced itself): the whole family is revoked.
+--
+-- Redis Cluster: the family's current token key is only known from KEYS[3], so it is not in
+-- KEYS. Every key of a family carries the {<family>} hash tag and hashes to the slot of
+-- KEYS[1..3]; the script only ever DELs a stored key that has that tag, never another slot.
+
+local uid = redis.call('HGET', KEYS[1], 'uid')
+if not uid then
+    return {'UNKNOWN'}
+end
+
+if redis.call('HGET', KEYS[1], 'used') == '1' or redis.call('GET', KEYS[3]) ~= KEYS[1] then
+    local current = redis.call('GET', KEYS[3])
+    if current and string.find(current, string.match(KEYS[3], '{[^}]*}'), 1, true) then
+        redis.call('DEL', current)
+    end
+    redis.call('DEL', KEYS[3])
+    return {'REUSED'}
+end
+
+local email = redis.call('HGET', KEYS[1], 'email')
+local iat = redis.call('HGET', KEYS[1], 'iat') or '0'
+local ttl = tonumber(ARGV[1])
+
+redis.call('HSET', KEYS[1], 'used', '1')
+redis.call('HSET', KEYS[2], 'uid', uid, 'email', email, 'iat', iat)
+redis.call('EXPIRE', KEYS[2], ttl)
+redis.call('SET', KEYS[3], KEYS[2], 'EX', ttl)
+
+return {'OK', uid, email, iat}
@@ -0,0 +1,40 @@
+-- Create a session and enforce the per-user limit.
+-- KEYS[1] = sess:{<uid>}:<sid>     hash: uid, email, created, lastSeen, ip, ua
+-- KEYS[2] = user_sess:{<uid>}      zset: sid -> created (ms)
+-- ARGV[1] = sid, ARGV[2] = now (ms), ARGV[3] = idle TTL (s), ARGV[4] = max sessions
+-- ARGV[5] = email, ARGV[6] = ip, ARGV[7] = user agent, ARGV[8] = uid
+-- Returns the sids that were ended to make room (oldest first).
+--
+-- Redis Cluster: the other sessions of the user are built here as prefix .. sid, not passed in
+-- KEYS. The prefix is taken from KEYS[1] and ends in the {<uid>} hash tag, so every key this
+-- script touches hashes to the slot of KEYS[1] and KEYS[2]. Callers must keep the tag in both.
+
+local prefix = string.sub(KEYS[1], 1, string.len(KEYS[1]) - string.len(ARGV[1]))
+if not string.find(prefix, '{' .. ARGV[8] .. '}', 1, true) then
+    return redis.error_reply('session key ' .. KEYS[1] .. ' lacks the {uid} hash tag')
+end
+
+-- Drop index entries whose session already expired
+for _, sid in ipairs(redis.call('ZRANGE', KEYS[2], 0, -1)) do
+    if redis.call('EXISTS', prefix .. sid) == 0 then
+        redis.call('ZREM', KEYS[2], sid)
+    end
+end
+
+redis.call('HSET', KEYS[1], 'uid', ARGV[8], 'email', ARGV[5], 'created', ARGV[2], 'lastSeen', ARGV[2],
+        'ip', ARGV[6], 'ua', ARGV[7])
+redis.call('EXPIRE', KEYS[1], ARGV[3])
+redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1])
+
+local evicted = {}
+local excess = redis.call('ZCARD', KEYS[2]) - tonumber(ARGV[4])
+if excess > 0 then
+    evicted = redis.call('ZRANGE', KEYS[2], 0, excess - 1)
+    for _, sid in ipairs(evicted) do
+        redis.call('DEL', prefix .. sid)
+        redis.call('ZREM', KEYS[2], sid)
+    end
+end
+redis.call('EXPIRE', KEYS[2], ARGV[3])
+
+return evicted
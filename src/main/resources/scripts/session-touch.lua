@@ -0,0 +1,11 @@
+-- Slide a session's expiry, without ever re-creating an ended session.
+-- KEYS[1] = sess:{<uid>}:<sid>, KEYS[2] = user_sess:{<uid>}
+-- ARGV[1] = now (ms), ARGV[2] = idle TTL (s)
+-- Returns 1 if the session is alive, 0 otherwise.
+
+if redis.call('EXPIRE', KEYS[1], ARGV[2]) == 0 then
+    return 0
+end
+redis.call('HSET', KEYS[1], 'lastSeen', ARGV[1])
+redis.call('EXPIRE', KEYS[2], ARGV[2])
+return 1
@@ -0,0 +1,9 @@
+-- Drop the cached snapshot and bump its version so in-flight fills are discarded.
+-- KEYS[1] = user:email:{<email>}, KEYS[2] = user:email:{<email>}:v
+-- ARGV[1] = version TTL (ms), longer than any DB load
+-- Returns the new version.
+
+redis.call('DEL', KEYS[1])
+local version = redis.call('INCR', KEYS[2])
+redis.call('PEXPIRE', KEYS[2], tonumber(ARGV[1]))
+return version
@@ -0,0 +1,10 @@
+-- Cache-aside fill that loses to any eviction since the reader's DB load started.
+-- KEYS[1] = user:email:{<email>}, KEYS[2] = user:email:{<email>}:v
+-- ARGV[1] = version read before the load ('' if none), ARGV[2] = snapshot JSON, ARGV[3] = TTL (ms)
+-- Returns 1 if the snapshot was cached, 0 if an eviction got in between.
+
+if (redis.call('GET', KEYS[2]) or '') ~= ARGV[1] then
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[2], 'PX', tonumber(ARGV[3]))
+return 1
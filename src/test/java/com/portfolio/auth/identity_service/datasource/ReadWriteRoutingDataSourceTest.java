@@ -0,0 +1,122 @@
+package com.portfolio.auth.identity_service.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReadWriteRoutingDataSourceTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private ReadWriteRoutingDataSource routing;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate readOnly;
+	private TransactionTemplate readWrite;
+
+	@Test
+	void readOnlyTransactionsGoToAReplicaAndEverythingElseToThePrimary() {
+		wire(database("replica-0"));
+
+		assertEquals("replica-0", inTransaction(readOnly, this::whoAnswers));
+		assertEquals("primary", inTransaction(readWrite, this::whoAnswers));
+		assertEquals("primary", whoAnswers());   // no transaction
+	}
+
+	@Test
+	void onPrimaryWinsOverAReadOnlyTransaction() {
+		wire(database("replica-0"));
+
+		assertEquals("primary", inTransaction(readOnly, () -> ReadWriteRoutingDataSource.onPrimary(this::whoAnswers)));
+		assertEquals("replica-0", inTransaction(readOnly, this::whoAnswers));
+	}
+
+	@Test
+	void readsAreSpreadRoundRobinOverTheReplicas() {
+		wire(database("replica-0"), database("replica-1"));
+
+		List<String> answers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			answers.add(inTransaction(readOnly, this::whoAnswers));
+		}
+
+		assertEquals(2, answers.stream().filter("replica-0"::equals).count());
+		assertEquals(2, answers.stream().filter("replica-1"::equals).count());
+	}
+
+	@Test
+	void failingReplicaFallsBackToThePrimaryUntilItsProbePasses() {
+		Flaky replica = new Flaky(database("replica-0"));
+		wire(replica);
+		replica.down = true;
+
+		assertEquals("primary", inTransaction(readOnly, this::whoAnswers));
+		assertEquals(0.0, registry.get("datasource.routing.replicas.healthy").gauge().value());
+		assertEquals(1.0, registry.counter("datasource.routing.connections", "target", "fallback").count());
+		assertEquals("primary", inTransaction(readOnly, this::whoAnswers));   // out of rotation, not retried
+
+		replica.down = false;
+		new ReplicaHealthChecker(routing, Duration.ofSeconds(1)).run();
+
+		assertEquals("replica-0", inTransaction(readOnly, this::whoAnswers));
+	}
+
+	// Wired as DataSourceRoutingConfig does: lazy proxy in front, transaction manager on the proxy
+	private void wire(DataSource... replicas) {
+		routing = new ReadWriteRoutingDataSource(database("primary"), List.of(replicas), registry);
+		routing.afterPropertiesSet();
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		readOnly.setReadOnly(true);
+	}
+
+	private String whoAnswers() {
+		return jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class);
+	}
+
+	private static <T> T inTransaction(TransactionTemplate transaction, Supplier<T> work) {
+		return transaction.execute(status -> work.get());
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("CREATE TABLE whoami (name VARCHAR(20))");
+		jdbc.update("INSERT INTO whoami VALUES (?)", name);
+		return dataSource;
+	}
+
+	private static final class Flaky extends DelegatingDataSource {
+
+		private volatile boolean down;
+
+		private Flaky(DataSource target) {
+			super(target);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (down) {
+				throw new SQLException("Connection refused");
+			}
+			return super.getConnection();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.portfolio.auth.identity_service.id;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdsTest {
+
+	@AfterEach
+	void reset() {
+		TimeOrderedIds.configure(0, 0);
+	}
+
+	@Test
+	void idsCarryTheirShard() {
+		TimeOrderedIds.configure(5, 4);
+		for (int shard = 0; shard < 16; shard++) {
+			assertEquals(shard, TimeOrderedIds.shardOf(TimeOrderedIds.next(shard)));
+		}
+		assertEquals(16, TimeOrderedIds.maxShards());
+	}
+
+	@Test
+	void shardAndNodeDoNotOverlap() {
+		TimeOrderedIds.configure(63, 4);   // largest node id that leaves 4 bits to the shard
+		long id = TimeOrderedIds.next(15);
+		assertEquals(15, TimeOrderedIds.shardOf(id));
+		assertEquals(63, (id >>> TimeOrderedIds.SEQUENCE_BITS) & 63);
+	}
+
+	@Test
+	void idsIssuedWithoutShardBitsReadAsShardZero() {
+		TimeOrderedIds.configure(7, 0);
+		long before = TimeOrderedIds.next();
+
+		TimeOrderedIds.configure(7, 4);
+		assertEquals(0, TimeOrderedIds.shardOf(before));
+	}
+
+	@Test
+	void staysOrderedAcrossShards() {
+		TimeOrderedIds.configure(1, 2);
+		long previous = TimeOrderedIds.next(3);
+		for (int i = 0; i < 10_000; i++) {
+			long id = TimeOrderedIds.next(i % 4);
+			assertTrue(TimeOrderedIds.timestampOf(id).compareTo(TimeOrderedIds.timestampOf(previous)) >= 0);
+			previous = id;
+		}
+	}
+
+	@Test
+	void rejectsShardsAndNodesThatDoNotFit() {
+		TimeOrderedIds.configure(0, 2);
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedIds.next(4));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedIds.next(-1));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedIds.configure(256, 2));
+		assertThrows(IllegalArgumentException.class, () -> TimeOrderedIds.configure(0, 10));
+	}
+}
@@ -0,0 +1,46 @@
+package com.portfolio.auth.identity_service.security;
+
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.service.JwtService;
+import com.portfolio.auth.identity_service.service.RolePermissionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PermissionAuthorizationManagerTest {
+
+	private final RolePermissionService rolePermissions = mock(RolePermissionService.class);
+	private final PermissionAuthorizationManager manager =
+			new PermissionAuthorizationManager(rolePermissions, Permission.USERS_EXPORT);
+
+	@Test
+	void grantedOnlyWhenTheTokensRoleHoldsThePermission() {
+		when(rolePermissions.isGranted(User.Role.ADMIN, Permission.USERS_EXPORT)).thenReturn(true);
+
+		assertTrue(manager.check(() -> authenticated(User.Role.ADMIN), null).isGranted());
+		assertFalse(manager.check(() -> authenticated(User.Role.USER), null).isGranted());
+	}
+
+	@Test
+	void anythingButAVerifiedAccessTokenIsDenied() {
+		when(rolePermissions.isGranted(User.Role.ADMIN, Permission.USERS_EXPORT)).thenReturn(true);
+
+		assertFalse(manager.check(() -> null, null).isGranted());
+		assertFalse(manager.check(() -> new TestingAuthenticationToken("admin", null, "ROLE_ADMIN"), null).isGranted());
+	}
+
+	private static UsernamePasswordAuthenticationToken authenticated(User.Role role) {
+		Instant now = Instant.now();
+		JwtService.AccessTokenClaims claims = new JwtService.AccessTokenClaims(1, "a@example.com", role, "jti", "sid",
+				now, now.plusSeconds(900));
+		return new UsernamePasswordAuthenticationToken(claims, null, List.of());
+	}
+}
@@ -0,0 +1,118 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.portfolio.auth.identity_service.config.BulkImportProperties;
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkUserImportServiceTest {
+
+	private static final String BCRYPT = "$2a$10$" + "a".repeat(53);
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	private ShardedH2 h2;
+
+	@AfterEach
+	void tearDown() {
+		h2.close();
+	}
+
+	@Test
+	void insertsEveryRowOnItsOwnShardWithAnIdNamingIt() throws Exception {
+		h2 = new ShardedH2(List.of(0, 1), List.of());
+		List<String> onZero = List.of(h2.emailOn(0, null), h2.emailOn(0, null), h2.emailOn(0, null));
+		List<String> onOne = List.of(h2.emailOn(1, null), h2.emailOn(1, null));
+
+		importUsers(concat(onZero, onOne));
+
+		for (int shard : List.of(0, 1)) {
+			List<String> expected = shard == 0 ? onZero : onOne;
+			List<String> emails = h2.jdbc(shard).queryForList("SELECT email_normalized FROM users", String.class);
+			assertEquals(expected.size(), emails.size());
+			assertTrue(emails.containsAll(expected));
+			for (long id : h2.ids(shard)) {
+				assertEquals(shard, TimeOrderedIds.shardOf(id));
+			}
+		}
+	}
+
+	@Test
+	void dedupeAsksTheOwnersShard() throws Exception {
+		h2 = new ShardedH2(List.of(0, 1), List.of());
+		String existing = h2.emailOn(1, null);
+		String fresh = h2.emailOn(0, null);
+		h2.insert(1, 1, existing, Timestamp.valueOf(LocalDateTime.now()));
+
+		importUsers(List.of(existing, fresh));
+
+		assertEquals(List.of(1L), h2.ids(1));
+		assertEquals(1, h2.ids(0).size());
+	}
+
+	@Test
+	void rowsMovingInASplitAreCopiedToTheirShadowOwner() throws Exception {
+		h2 = new ShardedH2(List.of(0), List.of(0, 1));
+		String moving = h2.emailOn(0, 1);
+		String staying = h2.emailOn(0, 0);
+
+		importUsers(List.of(moving, staying));
+
+		assertEquals(2, h2.ids(0).size());
+		List<Long> copied = h2.ids(1);
+		assertEquals(1, copied.size());
+		assertNotNull(h2.row(0, copied.get(0)));
+		assertEquals(moving, h2.row(1, copied.get(0)).get("email_normalized"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void importUsers(List<String> emails) throws Exception {
+		when(redisTemplate.<Object, Object>opsForHash()).thenReturn(mock(HashOperations.class));
+		when(redisTemplate.opsForList()).thenReturn(mock(ListOperations.class));
+
+		// Shared pool and transaction manager, as in the application
+		DataSource dataSource = new LazyConnectionDataSourceProxy(h2.routing);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		BulkUserImportService service = new BulkUserImportService(jdbcTemplate,
+				new NamedParameterJdbcTemplate(jdbcTemplate), new DataSourceTransactionManager(dataSource), redisTemplate,
+				mock(PasswordHashingService.class), mock(OtpService.class), h2.userShards,
+				new ShardSplit(h2.userShards, redisTemplate, h2.props, h2.registry),
+				Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), new BulkImportProperties());
+
+		StringBuilder body = new StringBuilder();
+		for (String email : emails) {
+			body.append("{\"name\":\"Imported\",\"email\":\"").append(email)
+					.append("\",\"passwordHash\":\"").append(BCRYPT).append("\",\"enabled\":true}\n");
+		}
+		service.importUsers("job", new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)),
+				BulkUserImportService.Format.NDJSON, false);
+	}
+
+	private static List<String> concat(List<String> first, List<String> second) {
+		List<String> all = new ArrayList<>(first);
+		all.addAll(second);
+		return all;
+	}
+}
@@ -0,0 +1,71 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.LastLoginProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class LastLoginWriteBehindTest {
+
+	private static final Timestamp CREATED = Timestamp.valueOf(LocalDateTime.now().minusDays(1));
+
+	private ShardedH2 h2;
+
+	@AfterEach
+	void tearDown() {
+		h2.close();
+	}
+
+	@Test
+	void eachShardGetsOnlyItsOwnUsers() {
+		h2 = new ShardedH2(List.of(0, 1), List.of());
+		String onZero = h2.emailOn(0, null);
+		String onOne = h2.emailOn(1, null);
+		h2.insert(0, 1, onZero, CREATED);
+		h2.insert(1, 2, onOne, CREATED);
+		h2.insert(0, 2, onOne, CREATED);   // a copy left on shard 0 by a split
+
+		LastLoginWriteBehind writeBehind = writeBehind();
+		writeBehind.record(1, onZero);
+		writeBehind.record(2, onOne);
+		writeBehind.flush();
+
+		assertNotNull(lastLogin(0, 1));
+		assertNotNull(lastLogin(1, 2));
+		assertNull(lastLogin(0, 2));
+	}
+
+	@Test
+	void duringASplitTheShadowOwnerIsUpdatedToo() {
+		h2 = new ShardedH2(List.of(0), List.of(0, 1));
+		String moving = h2.emailOn(0, 1);
+		h2.insert(0, 1, moving, CREATED);
+		h2.insert(1, 1, moving, CREATED);
+
+		LastLoginWriteBehind writeBehind = writeBehind();
+		writeBehind.record(1, moving);
+		writeBehind.flush();
+
+		assertNotNull(lastLogin(0, 1));
+		assertNotNull(lastLogin(1, 1));
+	}
+
+	// Shared pool as in the application: the shard comes from ShardContext
+	private LastLoginWriteBehind writeBehind() {
+		return new LastLoginWriteBehind(new JdbcTemplate(h2.routing), mock(TaskScheduler.class),
+				new LastLoginProperties(), h2.userShards, h2.registry);
+	}
+
+	private Object lastLogin(int shard, long id) {
+		return h2.row(shard, id).get("last_login");
+	}
+}
@@ -0,0 +1,168 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.MailDispatchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class MailDispatcherTest {
+
+	private final JavaMailSender mailSender = mock(JavaMailSender.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final MailDispatchProperties props = new MailDispatchProperties();
+	private MailDispatcher dispatcher;
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		if (dispatcher != null) {
+			dispatcher.stop();
+		}
+	}
+
+	@Test
+	void dropLosesTheMessageOnceTheQueueIsFull() {
+		dispatcher = withoutWorkers(MailDispatchProperties.RejectionPolicy.DROP);
+
+		dispatcher.submit(mock(MimeMessage.class));
+		dispatcher.submit(mock(MimeMessage.class));
+
+		verify(mailSender, never()).send(any(MimeMessage[].class));
+		assertEquals(1.0, messages("rejected"));
+		assertEquals(1.0, registry.get("mail.dispatch.queue.depth").gauge().value());
+	}
+
+	@Test
+	void callerRunsSendsOnTheCallingThreadOnceTheQueueIsFull() {
+		dispatcher = withoutWorkers(MailDispatchProperties.RejectionPolicy.CALLER_RUNS);
+		MimeMessage overflow = mock(MimeMessage.class);
+
+		dispatcher.submit(mock(MimeMessage.class));
+		dispatcher.submit(overflow);
+
+		verify(mailSender).send(new MimeMessage[]{overflow});
+		assertEquals(1.0, messages("sent"));
+		assertEquals(0.0, messages("rejected"));
+	}
+
+	@Test
+	void blockGivesUpAfterTheOfferTimeout() {
+		props.setOfferTimeout(Duration.ofMillis(100));
+		dispatcher = withoutWorkers(MailDispatchProperties.RejectionPolicy.BLOCK);
+
+		dispatcher.submit(mock(MimeMessage.class));
+		long started = System.nanoTime();
+		dispatcher.submit(mock(MimeMessage.class));
+
+		assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(100));
+		assertEquals(1.0, messages("rejected"));
+	}
+
+	@Test
+	void blockWaitsForAWorkerToFreeASlot() throws InterruptedException {
+		props.setWorkers(1);
+		props.setQueueCapacity(1);
+		props.setBatchSize(1);
+		props.setOfferTimeout(Duration.ofSeconds(5));
+		props.setRejectionPolicy(MailDispatchProperties.RejectionPolicy.BLOCK);
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(call -> {
+			sending.countDown();
+			release.await();
+			return null;
+		}).when(mailSender).send(any(MimeMessage[].class));
+		dispatcher = new MailDispatcher(mailSender, props, registry, new StandardEnvironment());
+		dispatcher.start();
+
+		dispatcher.submit(mock(MimeMessage.class));
+		assertTrue(sending.await(5, TimeUnit.SECONDS));   // the worker holds the first one
+		dispatcher.submit(mock(MimeMessage.class));       // fills the queue
+		new Thread(() -> {
+			sleep(100);
+			release.countDown();
+		}).start();
+		MimeMessage waiting = mock(MimeMessage.class);
+		dispatcher.submit(waiting);
+
+		verify(mailSender, timeout(5_000)).send(new MimeMessage[]{waiting});
+		assertEquals(0.0, messages("rejected"));
+	}
+
+	@Test
+	void concurrentSendsAreCappedByTheSemaphore() throws InterruptedException {
+		props.setMaxConcurrentSends(1);
+		CountDownLatch entered = new CountDownLatch(1);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		doAnswer(call -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			entered.countDown();
+			sleep(200);
+			inFlight.decrementAndGet();
+			return null;
+		}).when(mailSender).send(any(MimeMessage[].class));
+		dispatcher = withoutWorkers(MailDispatchProperties.RejectionPolicy.CALLER_RUNS);
+
+		Thread first = new Thread(() -> dispatcher.sendBatch(List.of(mock(MimeMessage.class))));
+		Thread second = new Thread(() -> dispatcher.sendBatch(List.of(mock(MimeMessage.class))));
+		first.start();
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		second.start();   // has to wait for the permit while the first session is open
+		first.join();
+		second.join();
+
+		assertEquals(1, maxInFlight.get());
+		assertEquals(2.0, messages("sent"));
+	}
+
+	@Test
+	void failedBatchIsReturnedAndCounted() {
+		MimeMessage message = mock(MimeMessage.class);
+		doAnswer(call -> {
+			throw new MailSendException("SMTP down");
+		}).when(mailSender).send(any(MimeMessage[].class));
+		dispatcher = withoutWorkers(MailDispatchProperties.RejectionPolicy.DROP);
+
+		assertEquals(Set.of(message), dispatcher.sendBatch(List.of(message)));
+		assertEquals(1.0, messages("failed"));
+	}
+
+	// Never started: nothing drains the queue, so the second submit always overflows
+	private MailDispatcher withoutWorkers(MailDispatchProperties.RejectionPolicy policy) {
+		props.setQueueCapacity(1);
+		props.setRejectionPolicy(policy);
+		return new MailDispatcher(mailSender, props, registry, new StandardEnvironment());
+	}
+
+	private double messages(String outcome) {
+		return registry.counter("mail.dispatch.messages", "outcome", outcome).count();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
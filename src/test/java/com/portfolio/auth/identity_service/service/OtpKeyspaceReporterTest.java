@@ -0,0 +1,165 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.OtpStoreProperties;
+import com.portfolio.auth.identity_service.dto.OtpKeyspaceReport;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OtpKeyspaceReporterTest {
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	private final OtpStoreProperties props = new OtpStoreProperties();
+
+	// What the fake Redis holds: keys per SCAN pattern, each hash's purpose field, MEMORY USAGE, OBJECT ENCODING
+	private final Map<String, List<String>> keysByPattern = new HashMap<>();
+	private final Map<String, String> purposes = new HashMap<>();
+	private final Map<String, Long> sizes = new HashMap<>();
+	private final Map<String, String> encodings = new HashMap<>();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		when(redisTemplate.scan(any(ScanOptions.class))).thenAnswer(call ->
+				cursor(keysByPattern.getOrDefault(call.<ScanOptions>getArgument(0).getPattern(), List.of())));
+		when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(call -> {
+			List<Object> replies = new ArrayList<>();
+			StringRedisConnection pipeline = mock(StringRedisConnection.class);
+			when(pipeline.hGet(anyString(), eq("p"))).thenAnswer(hGet -> {
+				replies.add(purposes.get(hGet.<String>getArgument(0)));
+				return null;
+			});
+			call.<RedisCallback<?>>getArgument(0).doInRedis(pipeline);
+			return replies;
+		});
+		when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(call ->
+				call.<RedisCallback<?>>getArgument(0).doInRedis(connection()));
+	}
+
+	@Test
+	void countsEveryKeyAndExtrapolatesTheSampledSize() {
+		props.setReportSampleSize(2);
+		hash("otph:a", "REGISTER", 100);
+		hash("otph:b", "REGISTER", 120);
+		hash("otph:c", "REGISTER", 999);   // counted, not sampled
+		hash("otph:d", "FORGOT_PASSWORD", 80);
+
+		Map<String, OtpKeyspaceReport.Entry> hashes = byPurpose(report(), "hash");
+
+		OtpKeyspaceReport.Entry register = hashes.get("REGISTER");
+		assertEquals(3, register.getKeys());
+		assertEquals(2, register.getSampledKeys());
+		assertEquals(110, register.getAvgBytes());
+		assertEquals(330, register.getEstimatedBytes());
+		assertEquals(Map.of("listpack", 2L), register.getEncodings());
+		assertEquals(1, hashes.get("FORGOT_PASSWORD").getKeys());
+	}
+
+	@Test
+	void keysGoneSinceTheScanAreLeftOut() {
+		hash("otph:a", "REGISTER", 100);
+		hash("otph:gone", null, 0);             // no purpose any more
+		hash("otph:expiring", "REGISTER", -1);  // expired before MEMORY USAGE
+
+		OtpKeyspaceReport.Entry register = byPurpose(report(), "hash").get("REGISTER");
+
+		assertEquals(2, register.getKeys());
+		assertEquals(1, register.getSampledKeys());
+		assertEquals(100, register.getAvgBytes());
+	}
+
+	@Test
+	void legacyKeysAreReportedUnderTheirPrefixPurpose() {
+		legacy("otp:REGISTER:*", "otp:REGISTER:a@example.com", 64);
+		legacy("otp_verified:FORGOT_PASSWORD:*", "otp_verified:FORGOT_PASSWORD:a@example.com", 56);
+
+		OtpKeyspaceReport report = report();
+
+		assertEquals(1, byPurpose(report, "legacy_code").get("REGISTER").getKeys());
+		assertEquals(56, byPurpose(report, "legacy_verified").get("FORGOT_PASSWORD").getAvgBytes());
+		assertTrue(byPurpose(report, "hash").isEmpty());
+	}
+
+	private OtpKeyspaceReport report() {
+		return new OtpKeyspaceReporter(redisTemplate, props).report();
+	}
+
+	private void hash(String key, String purpose, long size) {
+		keysByPattern.computeIfAbsent("otph:*", p -> new ArrayList<>()).add(key);
+		purposes.put(key, purpose);
+		if (size >= 0) {
+			sizes.put(key, size);
+			encodings.put(key, "listpack");
+		}
+	}
+
+	private void legacy(String pattern, String key, long size) {
+		keysByPattern.computeIfAbsent(pattern, p -> new ArrayList<>()).add(key);
+		sizes.put(key, size);
+		encodings.put(key, "embstr");
+	}
+
+	private static Map<String, OtpKeyspaceReport.Entry> byPurpose(OtpKeyspaceReport report, String layout) {
+		Map<String, OtpKeyspaceReport.Entry> entries = new HashMap<>();
+		for (OtpKeyspaceReport.Entry entry : report.getEntries()) {
+			if (entry.getLayout().equals(layout)) {
+				entries.put(entry.getPurpose(), entry);
+			}
+		}
+		return entries;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Cursor<String> cursor(List<String> keys) {
+		Iterator<String> iterator = keys.iterator();
+		Cursor<String> cursor = mock(Cursor.class);
+		when(cursor.hasNext()).thenAnswer(call -> iterator.hasNext());
+		when(cursor.next()).thenAnswer(call -> iterator.next());
+		return cursor;
+	}
+
+	// MEMORY USAGE / OBJECT ENCODING through Lettuce's async API, as the reporter calls them
+	@SuppressWarnings("unchecked")
+	private RedisConnection connection() throws Exception {
+		RedisClusterAsyncCommands<byte[], byte[]> commands = mock(RedisClusterAsyncCommands.class);
+		when(commands.memoryUsage(any())).thenAnswer(call -> reply(sizes.get(key(call.getArgument(0)))));
+		when(commands.objectEncoding(any())).thenAnswer(call -> reply(encodings.get(key(call.getArgument(0)))));
+		RedisConnection connection = mock(RedisConnection.class);
+		when(connection.getNativeConnection()).thenReturn(commands);
+		return connection;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static RedisFuture<Object> reply(Object value) throws Exception {
+		RedisFuture<Object> future = mock(RedisFuture.class);
+		when(future.get(anyLong(), any())).thenReturn(value);
+		return future;
+	}
+
+	private static String key(byte[] raw) {
+		return new String(raw, StandardCharsets.UTF_8);
+	}
+}
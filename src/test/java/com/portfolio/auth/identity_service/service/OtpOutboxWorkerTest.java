@@ -0,0 +1,200 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.OtpOutboxProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OtpOutboxWorkerTest {
+
+	private static final String STREAM = "otp:outbox";
+	private static final String GROUP = "otp-mailers";
+	private static final String EMAIL = "a@example.com";
+	private static final RecordId ID = RecordId.of("1-0");
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	private final StreamOperations<String, Object, Object> stream = streamOps();
+	private final MailService mailService = mock(MailService.class);
+	private final MailDispatcher mailDispatcher = mock(MailDispatcher.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final MimeMessage message = mock(MimeMessage.class);
+	private OtpOutboxWorker worker;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		when(redisTemplate.opsForStream()).thenReturn(stream);
+		when(stream.pending(eq(STREAM), eq(GROUP), any(Range.class), anyLong())).thenReturn(new PendingMessages(GROUP, List.of()));
+		when(mailService.buildOtpMessage(eq(EMAIL), anyString(), any(OtpPurpose.class), any())).thenReturn(message);
+		when(mailDispatcher.sendBatch(anyList())).thenReturn(Set.of());
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		if (worker != null) {
+			worker.stop();
+		}
+	}
+
+	@Test
+	void outboxEntryCarriesNoCode() {
+		ArgumentCaptor<MapRecord<String, String, String>> entry = recordCaptor();
+
+		new RedisStreamOtpOutbox(redisTemplate, new OtpOutboxProperties()).deliver(EMAIL, "123456", OtpPurpose.REGISTER);
+
+		verify(stream).add(entry.capture(), any(XAddOptions.class));
+		assertFalse(entry.getValue().getValue().containsKey(RedisStreamOtpOutbox.FIELD_CODE));
+		assertFalse(entry.getValue().getValue().containsValue("123456"));
+	}
+
+	@Test
+	void deliveredEntryIsSentWithTheCodeFromTheHashThenAcked() {
+		hashHolds("REGISTER", "123456");
+		reads(entry(Map.of("email", EMAIL, "purpose", "REGISTER", "ts", now(), "lang", "de")));
+
+		start();
+
+		verify(mailService, timeout(2_000)).buildOtpMessage(EMAIL, "123456", OtpPurpose.REGISTER, Locale.GERMAN);
+		verify(stream, timeout(2_000)).acknowledge(STREAM, GROUP, ID);
+		verify(stream, timeout(2_000)).delete(STREAM, ID);
+		assertEquals(1.0, events("delivered"));
+	}
+
+	@Test
+	void failedSendStaysPendingForARetry() {
+		hashHolds("REGISTER", "123456");
+		when(mailDispatcher.sendBatch(anyList())).thenReturn(Set.of(message));
+		reads(entry(Map.of("email", EMAIL, "purpose", "REGISTER", "ts", now())));
+
+		start();
+
+		verify(mailDispatcher, timeout(2_000)).sendBatch(List.of(message));
+		verify(stream, after(200).never()).acknowledge(anyString(), anyString(), any(RecordId[].class));
+		assertEquals(1.0, events("retried"));
+	}
+
+	@Test
+	void codeReplacedForAnotherPurposeIsAckedWithoutSending() {
+		hashHolds("FORGOT_PASSWORD", "654321");
+		reads(entry(Map.of("email", EMAIL, "purpose", "REGISTER", "ts", now())));
+
+		start();
+
+		verify(stream, timeout(2_000)).acknowledge(STREAM, GROUP, ID);
+		verify(mailDispatcher, never()).sendBatch(anyList());
+		assertEquals(1.0, events("expired"));
+	}
+
+	@Test
+	void malformedEntryIsDeadLettered() {
+		reads(entry(Map.of("email", EMAIL, "purpose", "NOT_A_PURPOSE", "ts", now())));
+
+		start();
+
+		assertDeadLettered("malformed");
+	}
+
+	@Test
+	void entryOutOfAttemptsIsDeadLetteredOnReclaim() {
+		when(stream.pending(eq(STREAM), eq(GROUP), any(Range.class), anyLong())).thenReturn(new PendingMessages(GROUP,
+				List.of(new PendingMessage(ID, Consumer.from(GROUP, "gone"), Duration.ofMinutes(2), 5))));
+		when(stream.range(eq(STREAM), any(Range.class)))
+				.thenReturn(List.of(entry(Map.of("email", EMAIL, "purpose", "REGISTER", "ts", now()))));
+		reads();
+
+		start();
+
+		assertDeadLettered("max_attempts");
+	}
+
+	private void assertDeadLettered(String reason) {
+		ArgumentCaptor<MapRecord<String, String, String>> dead = recordCaptor();
+		verify(stream, timeout(2_000)).add(dead.capture(), any(XAddOptions.class));
+		assertEquals("otp:outbox:dlq", dead.getValue().getStream());
+		assertEquals(reason, dead.getValue().getValue().get("reason"));
+		assertEquals("1-0", dead.getValue().getValue().get("source_id"));
+		verify(stream, timeout(2_000)).acknowledge(STREAM, GROUP, ID);
+		assertEquals(1.0, events("dead_lettered"));
+	}
+
+	private void start() {
+		worker = new OtpOutboxWorker(redisTemplate, mailService, mailDispatcher, new OtpOutboxProperties(), registry);
+		worker.start();
+	}
+
+	// The given records on the first read, nothing after that
+	@SafeVarargs
+	@SuppressWarnings("unchecked")
+	private void reads(MapRecord<String, Object, Object>... records) {
+		when(stream.read(any(Consumer.class), any(StreamReadOptions.class), any(StreamOffset.class)))
+				.thenReturn(List.of(records))
+				.thenAnswer(call -> {
+					Thread.sleep(20);
+					return List.of();
+				});
+	}
+
+	@SuppressWarnings("unchecked")
+	private void hashHolds(String purpose, String code) {
+		when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(Arrays.asList(purpose, code)));
+	}
+
+	private static MapRecord<String, Object, Object> entry(Map<String, String> fields) {
+		return MapRecord.<String, Object, Object>create(STREAM, new HashMap<>(fields)).withId(ID);
+	}
+
+	private static String now() {
+		return String.valueOf(System.currentTimeMillis());
+	}
+
+	private double events(String outcome) {
+		return registry.counter("otp.outbox.events", "outcome", outcome).count();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArgumentCaptor<MapRecord<String, String, String>> recordCaptor() {
+		return ArgumentCaptor.forClass(MapRecord.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static StreamOperations<String, Object, Object> streamOps() {
+		return mock(StreamOperations.class);
+	}
+}
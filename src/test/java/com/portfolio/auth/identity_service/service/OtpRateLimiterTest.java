@@ -0,0 +1,132 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.RateLimitProperties;
+import com.portfolio.auth.identity_service.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OtpRateLimiterTest {
+
+	private static final String IP_KEY = "rl:otp-send:REGISTER:ip:10.0.0.1";
+	private static final String EMAIL_KEY = "rl:otp-send:REGISTER:email:a@example.com";
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final RateLimitProperties props = new RateLimitProperties();
+	private OtpRateLimiter limiter;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		OtpRedis otpRedis = mock(OtpRedis.class);
+		when(otpRedis.execute(any(Supplier.class))).thenAnswer(call -> call.<Supplier<?>>getArgument(0).get());
+		when(otpRedis.template()).thenReturn(redisTemplate);
+
+		RateLimitProperties.Policy policy = new RateLimitProperties.Policy();
+		policy.getEmail().setCapacity(2);
+		policy.getEmail().setPeriod(Duration.ofMillis(200));
+		props.getPolicies().put("otp-send", policy);
+		limiter = new OtpRateLimiter(otpRedis, props, registry);
+	}
+
+	@Test
+	void eachBucketIsItsOwnSingleKeyCall() {
+		bucket(IP_KEY, 0);
+		bucket(EMAIL_KEY, 0);
+
+		check();
+
+		verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(IP_KEY)), anyString(), anyString());
+		verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(EMAIL_KEY)), anyString(), anyString());
+		assertEquals(1.0, decisions("any", "allowed"));
+	}
+
+	@Test
+	void emptyEmailBucketRejectsWithItsRetryAfter() {
+		bucket(IP_KEY, 0);
+		bucket(EMAIL_KEY, 2_500);
+
+		RateLimitExceededException e = assertThrows(RateLimitExceededException.class, this::check);
+
+		assertEquals(3, e.getRetryAfterSeconds());
+		assertEquals(1.0, decisions("email", "rejected"));
+	}
+
+	@Test
+	void requestOverItsIpLimitLeavesTheEmailBucketAlone() {
+		bucket(IP_KEY, 1_000);
+
+		assertThrows(RateLimitExceededException.class, this::check);
+
+		verify(redisTemplate, never()).execute(any(RedisScript.class), eq(List.of(EMAIL_KEY)), anyString(), anyString());
+		assertEquals(1.0, decisions("ip", "rejected"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void redisErrorsFailOpen() {
+		when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString()))
+				.thenThrow(new QueryTimeoutException("timeout"));
+
+		assertDoesNotThrow(this::check);
+		assertEquals(1.0, decisions("any", "fail_open"));
+	}
+
+	@Test
+	void localWindowRejectsAFloodAndRefillsAfterItsPeriod() throws InterruptedException {
+		bucket(IP_KEY, 0);
+		bucket(EMAIL_KEY, 0);
+
+		for (int i = 0; i < 4; i++) {   // 2 x capacity: burst plus one full refill
+			check();
+		}
+		assertThrows(RateLimitExceededException.class, this::check);
+		assertEquals(1.0, decisions("email", "rejected_local"));
+
+		Thread.sleep(250);
+		assertDoesNotThrow(this::check);
+	}
+
+	@Test
+	void disabledLimiterNeverAsksRedis() {
+		props.setEnabled(false);
+
+		check();
+
+		verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), anyString(), anyString());
+	}
+
+	private void check() {
+		limiter.check(RateLimitPolicy.OTP_SEND, OtpPurpose.REGISTER, "A@Example.com", "10.0.0.1");
+	}
+
+	@SuppressWarnings("unchecked")
+	private void bucket(String key, long retryAfterMs) {
+		when(redisTemplate.execute(any(RedisScript.class), eq(List.of(key)), anyString(), anyString()))
+				.thenReturn(List.of(retryAfterMs, retryAfterMs > 0 ? 1L : 0L));
+	}
+
+	private double decisions(String keyClass, String outcome) {
+		return registry.counter("ratelimit.decisions", "policy", "otp-send", "key_class", keyClass, "outcome", outcome).count();
+	}
+}
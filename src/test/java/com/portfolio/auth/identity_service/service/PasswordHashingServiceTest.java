@@ -0,0 +1,102 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.PasswordHashingProperties;
+import com.portfolio.auth.identity_service.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PasswordHashingProperties props = new PasswordHashingProperties();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private PasswordHashingService hashing;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		hashing.shutdown();
+	}
+
+	@Test
+	void fullQueueShedsLoadInsteadOfWaiting() {
+		props.setPoolSize(1);
+		props.setQueueCapacity(1);
+		hashing = new PasswordHashingService(blockingEncoder(), props, registry);
+
+		hashing.hashAsync("running");
+		hashing.hashAsync("queued");
+		ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class, () -> hashing.hash("rejected"));
+
+		assertEquals(2, e.getRetryAfterSeconds());
+		assertEquals(1.0, registry.counter("password.hashing.rejected").count());
+	}
+
+	@Test
+	void callerStopsWaitingAfterTheTimeout() {
+		props.setPoolSize(1);
+		props.setTimeout(Duration.ofMillis(100));
+		hashing = new PasswordHashingService(blockingEncoder(), props, registry);
+
+		assertThrows(ServiceOverloadedException.class, () -> hashing.hash("slow"));
+	}
+
+	@Test
+	void matchingPasswordWithALowerCostHashIsRehashed() {
+		hashing = new PasswordHashingService(new BCryptPasswordEncoder(5), props, registry);
+		String oldHash = new BCryptPasswordEncoder(4).encode("secret");
+
+		PasswordHashingService.PasswordVerification verification = hashing.verify("secret", oldHash);
+
+		assertTrue(verification.matched());
+		assertTrue(verification.needsRehash());
+		assertTrue(verification.upgradedHash().startsWith("$2a$05$"));
+		assertFalse(hashing.verify("wrong", oldHash).needsRehash());
+	}
+
+	@Test
+	void unknownAccountNeverMatches() {
+		hashing = new PasswordHashingService(new BCryptPasswordEncoder(4), props, registry);
+
+		assertFalse(hashing.verify("not-a-real-password", null).matched());
+	}
+
+	// Encodes only once the test lets it, so the pool stays busy
+	private PasswordEncoder blockingEncoder() {
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+		String dummy = bcrypt.encode("not-a-real-password");
+		return new PasswordEncoder() {
+			private boolean constructed;
+
+			@Override
+			public String encode(CharSequence rawPassword) {
+				if (!constructed) {   // the service's own dummy hash
+					constructed = true;
+					return dummy;
+				}
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return bcrypt.encode(rawPassword);
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				return bcrypt.matches(rawPassword, encodedPassword);
+			}
+		};
+	}
+}
@@ -0,0 +1,112 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.DataSourceRoutingProperties;
+import com.portfolio.auth.identity_service.datasource.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadYourWritesTest {
+
+	private static final String EMAIL = "a@example.com";
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	@SuppressWarnings("unchecked")
+	private final ValueOperations<String, String> values = mock(ValueOperations.class);
+	private final DataSourceRoutingProperties props = new DataSourceRoutingProperties();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate readOnly;
+
+	@BeforeEach
+	void setUp() {
+		when(redisTemplate.opsForValue()).thenReturn(values);
+		props.setEnabled(true);
+
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(database("primary"),
+				List.of(database("replica")), registry);
+		routing.afterPropertiesSet();
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		readOnly.setReadOnly(true);
+	}
+
+	@Test
+	void usersWithoutRecentWritesReadFromTheReplica() {
+		assertEquals("replica", lookup(new ReadYourWrites(redisTemplate, props, registry)));
+	}
+
+	@Test
+	void writerReadsItsOwnWriteFromThePrimaryWithoutAskingRedis() {
+		ReadYourWrites readYourWrites = new ReadYourWrites(redisTemplate, props, registry);
+
+		readYourWrites.markWritten(EMAIL);
+
+		assertEquals("primary", lookup(readYourWrites));
+		verify(values).set("ryw:user:" + EMAIL, "1", Duration.ofSeconds(5));
+		verify(redisTemplate, never()).hasKey(anyString());
+		assertEquals(1.0, registry.counter("datasource.routing.sticky.reads").count());
+	}
+
+	@Test
+	void otherNodesSeeTheMarkInRedis() {
+		when(redisTemplate.hasKey("ryw:user:" + EMAIL)).thenReturn(true);
+
+		assertEquals("primary", lookup(new ReadYourWrites(redisTemplate, props, registry)));
+	}
+
+	@Test
+	void redisThatCannotSayMeansThePrimary() {
+		when(redisTemplate.hasKey(anyString())).thenThrow(new QueryTimeoutException("timeout"));
+
+		assertEquals("primary", lookup(new ReadYourWrites(redisTemplate, props, registry)));
+	}
+
+	@Test
+	void disabledRoutingIsANoOp() {
+		props.setEnabled(false);
+		ReadYourWrites readYourWrites = new ReadYourWrites(redisTemplate, props, registry);
+
+		readYourWrites.markWritten(EMAIL);
+
+		assertEquals("replica", lookup(readYourWrites));
+		verify(values, never()).set(anyString(), anyString(), any(Duration.class));
+	}
+
+	// A read-only repository lookup as AuthService and UserCache run it
+	private String lookup(ReadYourWrites readYourWrites) {
+		return readOnly.execute(status -> readYourWrites.read(EMAIL,
+				() -> jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class)));
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("CREATE TABLE whoami (name VARCHAR(20))");
+		jdbc.update("INSERT INTO whoami VALUES (?)", name);
+		return dataSource;
+	}
+}
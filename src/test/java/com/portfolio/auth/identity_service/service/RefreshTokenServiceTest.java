@@ -0,0 +1,101 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.JwtProperties;
+import com.portfolio.auth.identity_service.exception.InvalidTokenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	@SuppressWarnings("unchecked")
+	private final HashOperations<String, Object, Object> hashes = mock(HashOperations.class);
+	@SuppressWarnings("unchecked")
+	private final ValueOperations<String, String> values = mock(ValueOperations.class);
+	private RefreshTokenService tokens;
+
+	@BeforeEach
+	void setUp() {
+		when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashes);
+		when(redisTemplate.opsForValue()).thenReturn(values);
+		tokens = new RefreshTokenService(redisTemplate, new JwtProperties());
+	}
+
+	@Test
+	void forgedTokenForAKnownSessionIdRevokesNothing() {
+		Optional<RefreshTokenService.Family> revoked = tokens.revoke("victim-sid.garbage");
+
+		assertTrue(revoked.isEmpty());
+		verify(values, never()).getAndDelete(anyString());
+	}
+
+	@Test
+	void storedTokenEndsItsFamily() {
+		when(hashes.get(startsWith("rt:{sid}:"), any())).thenReturn("42");
+		when(values.getAndDelete("rt_fam:{sid}")).thenReturn("rt:{sid}:current");
+
+		Optional<RefreshTokenService.Family> revoked = tokens.revoke("sid.secret");
+
+		assertEquals(Optional.of(new RefreshTokenService.Family("sid", 42)), revoked);
+		verify(redisTemplate).delete("rt:{sid}:current");
+	}
+
+	@Test
+	void malformedTokensAreIgnored() {
+		assertTrue(tokens.revoke(null).isEmpty());
+		assertTrue(tokens.revoke("no-dot").isEmpty());
+		assertTrue(tokens.revoke(".secret").isEmpty());
+		verify(values, never()).getAndDelete(anyString());
+	}
+
+	@Test
+	void rotationHandsOutAReplacementInTheSameFamily() {
+		rotateScriptReturns(List.of("OK", "42", "a@example.com", "1700000000"));
+
+		RefreshTokenService.Rotation rotation = tokens.rotate("sid.secret");
+
+		assertTrue(rotation.refreshToken().startsWith("sid."));
+		assertEquals(42, rotation.userId());
+		assertEquals("a@example.com", rotation.email());
+		assertEquals(1_700_000_000L, rotation.familyIssuedAt());
+	}
+
+	@Test
+	void reusedTokenIsRejected() {
+		rotateScriptReturns(List.of("REUSED"));
+
+		assertThrows(InvalidTokenException.class, () -> tokens.rotate("sid.old-secret"));
+	}
+
+	@Test
+	void unknownTokenIsRejected() {
+		rotateScriptReturns(List.of("UNKNOWN"));
+
+		assertThrows(InvalidTokenException.class, () -> tokens.rotate("sid.secret"));
+		assertThrows(InvalidTokenException.class, () -> tokens.rotate("garbage"));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void rotateScriptReturns(List<String> result) {
+		when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(result);
+	}
+}
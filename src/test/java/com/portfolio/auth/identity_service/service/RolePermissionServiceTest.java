@@ -0,0 +1,97 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.RbacProperties;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.security.Permission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RolePermissionServiceTest {
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	@SuppressWarnings("unchecked")
+	private final HashOperations<String, Object, Object> hashes = mock(HashOperations.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private RolePermissionService rbac;
+
+	@BeforeEach
+	void setUp() {
+		when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashes);
+		when(hashes.entries("rbac:role_permissions")).thenReturn(Map.of());
+		rbac = new RolePermissionService(redisTemplate, mock(RedisMessageListenerContainer.class),
+				mock(TaskScheduler.class), new RbacProperties(), registry);
+	}
+
+	@Test
+	void builtInDefaultsApplyUntilOverridden() {
+		rbac.reload();
+
+		assertTrue(rbac.isGranted(User.Role.USER, Permission.PROFILE_READ));
+		assertFalse(rbac.isGranted(User.Role.USER, Permission.USERS_READ));
+		assertTrue(rbac.isGranted(User.Role.MODERATOR, Permission.USERS_READ));
+		for (Permission permission : Permission.values()) {
+			assertTrue(rbac.isGranted(User.Role.ADMIN, permission));
+		}
+	}
+
+	@Test
+	void reloadNoticeSwapsInTheStoredGrants() {
+		when(hashes.entries("rbac:role_permissions"))
+				.thenReturn(Map.of("USER", "PROFILE_READ,USERS_EXPORT", "MODERATOR", ""));
+
+		rbac.onMessage(null, null);
+
+		assertEquals(EnumSet.of(Permission.PROFILE_READ, Permission.USERS_EXPORT), rbac.snapshot().permissionsOf(User.Role.USER));
+		assertTrue(rbac.snapshot().permissionsOf(User.Role.MODERATOR).isEmpty());
+		assertTrue(rbac.isGranted(User.Role.ADMIN, Permission.USERS_MANAGE_ROLES));   // not in the hash: defaults
+		assertEquals(1.0, registry.counter("rbac.reloads", "result", "ok").count());
+	}
+
+	@Test
+	void unknownPermissionNamesAreSkipped() {
+		when(hashes.entries("rbac:role_permissions")).thenReturn(Map.of("USER", "PROFILE_READ, FROM_A_NEWER_VERSION"));
+
+		rbac.reload();
+
+		assertEquals(EnumSet.of(Permission.PROFILE_READ), rbac.snapshot().permissionsOf(User.Role.USER));
+	}
+
+	@Test
+	void redisOutageKeepsTheLastLoadedGrants() {
+		when(hashes.entries("rbac:role_permissions")).thenReturn(Map.of("USER", "USERS_READ"));
+		rbac.reload();
+		when(hashes.entries("rbac:role_permissions")).thenThrow(new QueryTimeoutException("timeout"));
+
+		rbac.reload();
+
+		assertTrue(rbac.isGranted(User.Role.USER, Permission.USERS_READ));
+		assertEquals(1.0, registry.counter("rbac.reloads", "result", "error").count());
+	}
+
+	@Test
+	void updateStoresTheRoleAndTellsTheOtherNodes() {
+		when(hashes.entries("rbac:role_permissions")).thenReturn(Map.of("MODERATOR", "USERS_EXPORT,USERS_READ"));
+
+		rbac.update(User.Role.MODERATOR, EnumSet.of(Permission.USERS_READ, Permission.USERS_EXPORT));
+
+		verify(hashes).put("rbac:role_permissions", "MODERATOR", "USERS_EXPORT,USERS_READ");
+		verify(redisTemplate).convertAndSend("rbac:reload", "MODERATOR");
+		assertTrue(rbac.isGranted(User.Role.MODERATOR, Permission.USERS_EXPORT));
+	}
+}
@@ -0,0 +1,80 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.SessionProperties;
+import com.portfolio.auth.identity_service.dto.UserSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionServiceTest {
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ZSetOperations<String, String> index = zSet();
+	private SessionService sessions;
+
+	@BeforeEach
+	void setUp() {
+		when(redisTemplate.opsForZSet()).thenReturn(index);
+		sessions = new SessionService(redisTemplate, refreshTokenService, mock(TokenRevocationService.class),
+				new SessionProperties(), registry);
+	}
+
+	@Test
+	void endingAnotherUsersSessionTouchesNothing() {
+		when(index.remove("user_sess:{1}", "victim-sid")).thenReturn(0L);
+
+		assertFalse(sessions.end(1, "victim-sid"));
+
+		verify(refreshTokenService, never()).revokeFamily(anyString());
+		verify(redisTemplate, never()).delete(anyString());
+	}
+
+	@Test
+	void endingOwnSessionRevokesItsFamily() {
+		when(index.remove("user_sess:{1}", "sid")).thenReturn(1L);
+
+		assertTrue(sessions.end(1, "sid"));
+
+		verify(redisTemplate).delete("sess:{1}:sid");
+		verify(refreshTokenService).revokeFamily("sid");
+		assertFalse(sessions.touch(1, "sid"));   // dead on this node without asking Redis
+	}
+
+	@Test
+	void sessionsEvictedOverTheCapLoseTheirFamilies() {
+		when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+				.thenReturn(List.of("oldest", "second-oldest"));
+
+		String sid = sessions.create(UserSnapshot.builder().id(1L).email("a@example.com").build(), "10.0.0.1", "curl");
+
+		verify(refreshTokenService).revokeFamily("oldest");
+		verify(refreshTokenService).revokeFamily("second-oldest");
+		verify(refreshTokenService, never()).revokeFamily(sid);
+		assertFalse(sessions.touch(1, "oldest"));
+		assertTrue(sessions.touch(1, sid));
+		assertEquals(2.0, registry.counter("sessions.evicted", "reason", "max_per_user").count());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ZSetOperations<String, String> zSet() {
+		return mock(ZSetOperations.class);
+	}
+}
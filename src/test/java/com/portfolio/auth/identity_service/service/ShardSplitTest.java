@@ -0,0 +1,169 @@
+package com.portfolio.auth.identity_service.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardSplitTest {
+
+	private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+	private static final Timestamp OLDER = Timestamp.valueOf(NOW.minusMinutes(1));
+	private static final Timestamp NEWER = Timestamp.valueOf(NOW);
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	private ShardedH2 h2;
+
+	@AfterEach
+	void tearDown() {
+		h2.close();
+	}
+
+	@Test
+	void copyWritesTheRowToItsShadowOwner() {
+		ShardSplit split = splitting();
+		String email = h2.emailOn(0, 1);
+		h2.insert(0, 7, email, "current", NEWER);
+
+		split.copy(email);
+
+		assertEquals("current", h2.row(1, 7).get("name"));
+		assertEquals(NEWER, h2.row(1, 7).get("updated_at"));
+	}
+
+	@Test
+	void copyNeverOverwritesANewerShadowRow() {
+		ShardSplit split = splitting();
+		String email = h2.emailOn(0, 1);
+		h2.insert(0, 7, email, "stale", OLDER);
+		h2.insert(1, 7, email, "current", NEWER);
+
+		split.copy(email);
+
+		assertEquals("current", h2.row(1, 7).get("name"));
+	}
+
+	@Test
+	void copyRacingTheBackfillInsertStillLandsTheNewerRow() {
+		ShardSplit split = splitting();
+		String email = h2.emailOn(0, 1);
+		h2.insert(0, 7, email, "current", NEWER);
+
+		// The backfill inserts its older snapshot between the copy's UPDATE (no row yet) and INSERT
+		h2.beforeNextInsert(1, () -> h2.insert(1, 7, email, "snapshot", OLDER));
+		split.copy(email);
+
+		assertEquals("current", h2.row(1, 7).get("name"));
+		assertEquals(0.0, h2.registry.counter("sharding.split.conflicts").count());
+	}
+
+	@Test
+	void copyReportsTheEmailUnderAnotherIdAsAConflict() {
+		ShardSplit split = splitting();
+		String email = h2.emailOn(0, 1);
+		h2.insert(0, 7, email, "owner's", NEWER);
+		h2.insert(1, 8, email, "other registration", NEWER);
+
+		split.copy(email);
+
+		assertNull(h2.row(1, 7));
+		assertEquals(1.0, h2.registry.counter("sharding.split.conflicts").count());
+	}
+
+	@Test
+	void backfillInsertsMissingRowsAndLeavesDualWrittenOnesAlone() {
+		ShardSplit split = splitting();
+		lockAlwaysGranted();
+		String moving = h2.emailOn(0, 1);
+		String dualWritten = h2.emailOn(0, 1);
+		String staying = h2.emailOn(0, 0);
+		h2.insert(0, 1, moving, "moving", OLDER);
+		h2.insert(0, 2, dualWritten, "backfill snapshot", OLDER);
+		h2.insert(0, 3, staying, "staying", OLDER);
+		h2.insert(1, 2, dualWritten, "dual-written", NEWER);
+		h2.jdbc(0).update("""
+				INSERT INTO users (id, name, email, password_hash, role, enabled) VALUES (4, 'legacy', 'Legacy@Example.com', 'x', 'USER', TRUE)
+				""");
+
+		split.backfill();
+
+		assertEquals(List.of(1L, 2L), h2.ids(1));
+		assertEquals("moving", h2.row(1, 1).get("name"));
+		assertEquals("dual-written", h2.row(1, 2).get("name"));
+		assertEquals(List.of(1L, 2L, 3L, 4L), h2.ids(0));
+		assertEquals(1.0, h2.registry.counter("sharding.split.skipped.unnormalized").count());
+		assertTrue(split.isBackfillComplete());
+		verify(redisTemplate.opsForValue()).set(endsWith(":done"), eq("1"));
+	}
+
+	@Test
+	void backfillRacingADualWriteKeepsTheDualWrittenRow() {
+		ShardSplit split = splitting();
+		lockAlwaysGranted();
+		String first = h2.emailOn(0, 1);
+		String raced = h2.emailOn(0, 1);
+		h2.insert(0, 1, first, "first", OLDER);
+		h2.insert(0, 2, raced, "backfill snapshot", OLDER);
+
+		// A dual-write lands between the backfill's existence check and its batch INSERT
+		h2.beforeNextInsert(1, () -> h2.insert(1, 2, raced, "dual-written", NEWER));
+		split.backfill();
+
+		assertEquals(List.of(1L, 2L), h2.ids(1));
+		assertEquals("first", h2.row(1, 1).get("name"));
+		assertEquals("dual-written", h2.row(1, 2).get("name"));
+		assertEquals(0.0, h2.registry.counter("sharding.split.conflicts").count());
+	}
+
+	@Test
+	void cleanupDeletesOnlyRowsTheirOwnerHas() {
+		h2 = new ShardedH2(List.of(0, 1), List.of(), props -> props.getSplit().setCleanup(true));
+		ShardSplit split = new ShardSplit(h2.userShards, redisTemplate, h2.props, h2.registry);
+		String kept = h2.emailOn(0, null);
+		String moved = h2.emailOn(1, null);
+		String missing = h2.emailOn(1, null);
+		h2.insert(0, 1, kept, OLDER);
+		h2.insert(0, 2, moved, OLDER);
+		h2.insert(0, 3, missing, OLDER);
+		h2.insert(1, 2, moved, NEWER);
+
+		split.cleanup();
+
+		assertEquals(List.of(1L, 3L), h2.ids(0));
+		assertEquals(List.of(2L), h2.ids(1));
+		assertEquals(1.0, h2.registry.counter("sharding.split.cleanup.deleted").count());
+	}
+
+	// Shard 0 owns everyone and the split moves part of them to shard 1
+	private ShardSplit splitting() {
+		h2 = new ShardedH2(List.of(0), List.of(0, 1), props -> props.getSplit().setChunkSize(2));
+		return new ShardSplit(h2.userShards, redisTemplate, h2.props, h2.registry);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void lockAlwaysGranted() {
+		ValueOperations<String, String> values = mock(ValueOperations.class);
+		when(redisTemplate.opsForValue()).thenReturn(values);
+		when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+		when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(1L);   // renew
+	}
+}
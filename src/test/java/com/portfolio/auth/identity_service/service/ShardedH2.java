@@ -0,0 +1,162 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.portfolio.auth.identity_service.config.ShardingProperties;
+import com.portfolio.auth.identity_service.datasource.ShardRoutingDataSource;
+import com.portfolio.auth.identity_service.id.TimeOrderedIds;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// One in-memory H2 database per users shard, wired up the way ShardingConfig does it
+final class ShardedH2 {
+
+	private static final String SCHEMA = """
+			CREATE TABLE users (
+			    id BIGINT PRIMARY KEY,
+			    name VARCHAR(100) NOT NULL,
+			    email VARCHAR(255) NOT NULL,
+			    email_normalized VARCHAR(255),
+			    password_hash VARCHAR(255) NOT NULL,
+			    phone_number VARCHAR(255),
+			    role VARCHAR(20) NOT NULL,
+			    enabled BOOLEAN NOT NULL,
+			    created_at TIMESTAMP,
+			    updated_at TIMESTAMP,
+			    last_login TIMESTAMP,
+			    CONSTRAINT uk_users_email UNIQUE (email),
+			    CONSTRAINT uk_users_email_normalized UNIQUE (email_normalized)
+			)
+			""";
+
+	final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	final ShardingProperties props = new ShardingProperties();
+	final Map<Integer, DataSource> dataSources = new TreeMap<>();
+	final ShardRoutingDataSource routing;
+	final UserShards userShards;
+
+	private final Map<Integer, JdbcTemplate> jdbc = new TreeMap<>();
+	private final Set<String> handedOut = new HashSet<>();
+	private final Map<Integer, Runnable> beforeInsert = new ConcurrentHashMap<>();
+
+	ShardedH2(List<Integer> members, List<Integer> shadowMembers) {
+		this(members, shadowMembers, props -> {
+		});
+	}
+
+	ShardedH2(List<Integer> members, List<Integer> shadowMembers, Consumer<ShardingProperties> tweaks) {
+		String name = UUID.randomUUID().toString();
+		int shardCount = IntStream.concat(members.stream().mapToInt(Integer::intValue),
+				shadowMembers.stream().mapToInt(Integer::intValue)).max().orElse(0) + 1;
+		for (int shard = 0; shard < shardCount; shard++) {
+			DataSource dataSource = new DriverManagerDataSource(
+					"jdbc:h2:mem:" + name + "-" + shard + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+			new JdbcTemplate(dataSource).execute(SCHEMA);
+			dataSources.put(shard, withInsertHook(shard, dataSource));
+			jdbc.put(shard, new JdbcTemplate(dataSource));
+		}
+
+		props.setEnabled(true);
+		props.setMembers(members);
+		props.setShadowMembers(shadowMembers);
+		props.setIdShardBits(4);
+		props.setScatterTimeout(Duration.ofSeconds(10));
+		props.getSplit().setPause(Duration.ZERO);
+		tweaks.accept(props);
+		TimeOrderedIds.configure(1, props.getIdShardBits());
+
+		routing = new ShardRoutingDataSource(dataSources, registry);
+		routing.afterPropertiesSet();
+		StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("shardRoutingDataSource", routing));
+		userShards = new UserShards(props, beans.getBeanProvider(ShardRoutingDataSource.class),
+				dataSources.get(0), registry);
+	}
+
+	void close() {
+		userShards.stop();
+		jdbc.values().forEach(template -> template.execute("SHUTDOWN"));
+		TimeOrderedIds.configure(0, 0);
+	}
+
+	JdbcTemplate jdbc(int shard) {
+		return jdbc.get(shard);
+	}
+
+	// A fresh address the ring puts on this shard (and, if given, the shadow ring on that one)
+	String emailOn(int shard, Integer shadow) {
+		for (int i = 0; ; i++) {
+			String email = "user" + i + "@example.com";
+			int shadowShard = userShards.shadowShardOf(email).orElse(shard);
+			if (userShards.shardOf(email) == shard && (shadow == null || shadowShard == shadow) && handedOut.add(email)) {
+				return email;
+			}
+		}
+	}
+
+	void insert(int shard, long id, String email, Timestamp updatedAt) {
+		insert(shard, id, email, "user " + id, updatedAt);
+	}
+
+	void insert(int shard, long id, String email, String name, Timestamp updatedAt) {
+		jdbc(shard).update("""
+				INSERT INTO users (id, name, email, email_normalized, password_hash, role, enabled, created_at, updated_at)
+				VALUES (?, ?, ?, ?, 'x', 'USER', TRUE, ?, ?)
+				""", id, name, email, email, updatedAt, updatedAt);
+	}
+
+	// Runs hook (on its own connection) right before the next INSERT the code under test sends to the shard
+	void beforeNextInsert(int shard, Runnable hook) {
+		beforeInsert.put(shard, hook);
+	}
+
+	private DataSource withInsertHook(int shard, DataSource target) {
+		return new DelegatingDataSource(target) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				Connection connection = super.getConnection();
+				return (Connection) Proxy.newProxyInstance(ShardedH2.class.getClassLoader(), new Class<?>[]{Connection.class},
+						(proxy, method, args) -> {
+							if (method.getName().startsWith("prepare") && args != null
+									&& args[0] instanceof String sql && sql.stripLeading().startsWith("INSERT INTO users")) {
+								Runnable hook = beforeInsert.remove(shard);
+								if (hook != null) {
+									hook.run();
+								}
+							}
+							try {
+								return method.invoke(connection, args);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						});
+			}
+		};
+	}
+
+	List<Long> ids(int shard) {
+		return jdbc(shard).queryForList("SELECT id FROM users ORDER BY id", Long.class);
+	}
+
+	Map<String, Object> row(int shard, long id) {
+		List<Map<String, Object>> rows = jdbc(shard).queryForList("SELECT * FROM users WHERE id = ?", id);
+		return rows.isEmpty() ? null : rows.get(0);
+	}
+}
@@ -0,0 +1,184 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.portfolio.auth.identity_service.config.AdminUserQueryProperties;
+import com.portfolio.auth.identity_service.datasource.ShardContext;
+import com.portfolio.auth.identity_service.dto.UserPage;
+import com.portfolio.auth.identity_service.dto.UserSummary;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserAdminServiceTest {
+
+	private static final Timestamp NOW = Timestamp.valueOf(LocalDateTime.now());
+
+	private ShardedH2 h2;
+	private UserAdminService service;
+
+	@BeforeEach
+	void setUp() {
+		h2 = new ShardedH2(List.of(0, 1), List.of());
+
+		// The keyset query, answered from whichever shard the scatter thread is on
+		UserRepository userRepository = mock(UserRepository.class);
+		when(userRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenAnswer(call ->
+				page(ShardContext.current(), call.getArgument(0), call.<Limit>getArgument(1).max()));
+
+		service = new UserAdminService(userRepository, h2.userShards, null, null, null,
+				new ObjectMapper(), h2.dataSources.get(0), new AdminUserQueryProperties());
+	}
+
+	@AfterEach
+	void tearDown() {
+		h2.close();
+	}
+
+	@Test
+	void aFullShardPageCutsThePageOff() {
+		for (long id = 1; id <= 5; id++) {
+			h2.insert(0, id, h2.emailOn(0, null), NOW);
+		}
+		h2.insert(1, 10, h2.emailOn(1, null), NOW);
+		h2.insert(1, 11, h2.emailOn(1, null), NOW);
+
+		UserPage first = service.list(null, null, null, 3);
+		assertEquals(List.of(1L, 2L, 3L), ids(first));
+		assertEquals(3L, first.getNextAfter());
+
+		// Shard 0 may hold more below 10: nothing of shard 1 is skipped
+		UserPage second = service.list(null, null, first.getNextAfter(), 3);
+		assertEquals(List.of(4L, 5L, 10L), ids(second));
+		assertEquals(10L, second.getNextAfter());
+
+		UserPage last = service.list(null, null, second.getNextAfter(), 3);
+		assertEquals(List.of(11L), ids(last));
+		assertNull(last.getNextAfter());
+	}
+
+	@Test
+	void shortPageStillPointsPastTheCutoff() {
+		// Shard 1's page ends at 3, so the merged page may not go past it even though dropping
+		// the copy at 3 left it short
+		h2.insert(0, 4, h2.emailOn(0, null), NOW);
+		h2.insert(1, 1, h2.emailOn(1, null), NOW);
+		h2.insert(1, 2, h2.emailOn(1, null), NOW);
+		h2.insert(1, 3, h2.emailOn(0, null), NOW);   // a row left behind for shard 0, not listed
+		h2.insert(1, 5, h2.emailOn(1, null), NOW);
+
+		UserPage first = service.list(null, null, null, 3);
+		assertEquals(List.of(1L, 2L), ids(first));
+		assertEquals(3L, first.getNextAfter());
+
+		UserPage second = service.list(null, null, first.getNextAfter(), 3);
+		assertEquals(List.of(4L, 5L), ids(second));
+		assertNull(second.getNextAfter());
+	}
+
+	@Test
+	void splitCopiesAreListedOnceByTheirOwner() {
+		List<Long> owned = new ArrayList<>();
+		for (long id = 1; id <= 40; id++) {
+			int owner = (int) (id % 2);
+			String email = h2.emailOn(owner, null);
+			h2.insert(owner, id, email, NOW);
+			owned.add(id);
+			if (id % 3 == 0) {
+				h2.insert(1 - owner, id, email, NOW);   // the same row copied to the other shard
+			}
+		}
+
+		List<Long> listed = new ArrayList<>();
+		Long after = null;
+		do {
+			UserPage page = service.list(null, null, after, 7);
+			listed.addAll(ids(page));
+			after = page.getNextAfter();
+		} while (after != null);
+
+		assertEquals(owned, listed);
+	}
+
+	@Test
+	void exportWritesOneBareJsonObjectPerLine() throws Exception {
+		h2.insert(0, 1, h2.emailOn(0, null), NOW);
+		h2.insert(0, 2, h2.emailOn(0, null), NOW);
+		h2.insert(1, 3, h2.emailOn(1, null), NOW);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(3, service.export(null, null, out));
+
+		List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+		assertEquals(3, lines.size());
+		ObjectMapper objectMapper = new ObjectMapper();
+		for (int i = 0; i < lines.size(); i++) {
+			assertTrue(lines.get(i).startsWith("{"), lines.get(i));
+			assertEquals(String.valueOf(i + 1), objectMapper.readTree(lines.get(i)).get("id").asText());
+		}
+	}
+
+	private List<UserSummary> page(int shard, long after, int limit) {
+		return h2.jdbc(shard).query("SELECT id, name, email, role, enabled, created_at FROM users WHERE id > ? ORDER BY id LIMIT ?",
+				(rs, rowNum) -> summary(rs.getLong("id"), rs.getString("name"), rs.getString("email"),
+						User.Role.valueOf(rs.getString("role")), rs.getBoolean("enabled"),
+						rs.getTimestamp("created_at").toLocalDateTime()),
+				after, limit);
+	}
+
+	private static UserSummary summary(long id, String name, String email, User.Role role, boolean enabled,
+									   LocalDateTime createdAt) {
+		return new UserSummary() {
+			@Override
+			public Long getId() {
+				return id;
+			}
+
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public String getEmail() {
+				return email;
+			}
+
+			@Override
+			public User.Role getRole() {
+				return role;
+			}
+
+			@Override
+			public boolean isEnabled() {
+				return enabled;
+			}
+
+			@Override
+			public LocalDateTime getCreatedAt() {
+				return createdAt;
+			}
+		};
+	}
+
+	private static List<Long> ids(UserPage page) {
+		return page.getItems().stream().map(UserSummary::getId).toList();
+	}
+}
@@ -0,0 +1,92 @@
+package com.portfolio.auth.identity_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.portfolio.auth.identity_service.config.UserCacheProperties;
+import com.portfolio.auth.identity_service.entity.User;
+import com.portfolio.auth.identity_service.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheTest {
+
+	private static final String EMAIL = "a@example.com";
+	private static final List<String> KEYS = List.of("user:email:{a@example.com}", "user:email:{a@example.com}:v");
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+	@SuppressWarnings("unchecked")
+	private final ValueOperations<String, String> values = mock(ValueOperations.class);
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private UserCache cache;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		UserShards userShards = mock(UserShards.class);
+		ReadYourWrites readYourWrites = mock(ReadYourWrites.class);
+		when(userShards.onShardOf(anyString(), any(Supplier.class))).thenAnswer(call -> call.<Supplier<?>>getArgument(1).get());
+		when(readYourWrites.read(anyString(), any(Supplier.class))).thenAnswer(call -> call.<Supplier<?>>getArgument(1).get());
+		when(redisTemplate.opsForValue()).thenReturn(values);
+		when(userRepository.findByEmailNormalized(EMAIL))
+				.thenReturn(Optional.of(User.builder().id(1L).name("A").email(EMAIL).build()));
+
+		cache = new UserCache(userRepository, userShards, mock(EmailNormalizationBackfill.class), readYourWrites,
+				redisTemplate, mock(RedisMessageListenerContainer.class), new ObjectMapper().findAndRegisterModules(),
+				new UserCacheProperties(), new SimpleMeterRegistry());
+	}
+
+	@Test
+	void fillIsGuardedByTheVersionReadBeforeTheLoad() {
+		when(values.multiGet(KEYS)).thenReturn(Arrays.asList(null, "3"));
+		fillReturns(1L);
+
+		cache.findByEmail(EMAIL);
+		cache.findByEmail(EMAIL);   // L1 now
+
+		verify(redisTemplate).execute(any(RedisScript.class), eq(KEYS), eq("3"), anyString(), anyString());
+		verify(userRepository, times(1)).findByEmailNormalized(EMAIL);
+	}
+
+	@Test
+	void loadThatAnEvictionOvertookIsNotCached() {
+		when(values.multiGet(KEYS)).thenReturn(Arrays.asList(null, null));
+		fillReturns(0L);   // the version moved while the row was loading
+
+		cache.findByEmail(EMAIL);
+		cache.findByEmail(EMAIL);
+
+		verify(userRepository, times(2)).findByEmailNormalized(EMAIL);
+	}
+
+	@Test
+	void evictionBumpsTheVersion() {
+		cache.evict(EMAIL);
+
+		verify(redisTemplate).execute(any(RedisScript.class), eq(KEYS), anyString());
+		verify(redisTemplate).convertAndSend("user-cache:invalidate", EMAIL);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void fillReturns(Long filled) {
+		when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString()))
+				.thenReturn(filled);
+	}
+}
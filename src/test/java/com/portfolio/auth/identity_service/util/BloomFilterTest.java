@@ -0,0 +1,62 @@
+package com.portfolio.auth.identity_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+	@Test
+	void neverReportsAnAddedValueAsMissing() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("j:" + i);
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("j:" + i));
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTarget() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("j:" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("u:" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+		assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+	}
+
+	@Test
+	void emptyFilterContainsNothing() {
+		BloomFilter filter = BloomFilter.create(100, 0.01);
+		assertFalse(filter.mightContain("anything"));
+		assertEquals(0, filter.approximateElementCount());
+	}
+
+	@Test
+	void estimatesElementCount() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 5_000; i++) {
+			filter.put("u:" + i);
+		}
+		long estimate = filter.approximateElementCount();
+		assertTrue(estimate > 4_800 && estimate < 5_200, "estimate: " + estimate);
+	}
+
+	@Test
+	void rejectsInvalidSizing() {
+		assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(100, 1.0));
+	}
+}
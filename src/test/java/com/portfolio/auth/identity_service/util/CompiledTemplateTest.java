@@ -0,0 +1,41 @@
+package com.portfolio.auth.identity_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledTemplateTest {
+
+	@Test
+	void splicesVariablesInOrder() {
+		CompiledTemplate template = CompiledTemplate.compile(
+				"Hi {{ name }}, your code is {{code}} ({{code}})", List.of("code", "name"));
+
+		assertEquals("Hi Jane, your code is 123456 (123456)", template.render("123456", "Jane"));
+		assertEquals("Hi , your code is  ()".length(), template.literalLength());
+	}
+
+	@Test
+	void templateWithoutPlaceholdersRendersAsIs() {
+		CompiledTemplate template = CompiledTemplate.compile("plain {text}", List.of());
+		assertEquals("plain {text}", template.render());
+	}
+
+	@Test
+	void placeholdersAtTheEdges() {
+		CompiledTemplate template = CompiledTemplate.compile("{{a}}-{{b}}", List.of("a", "b"));
+		assertEquals("1-2", template.render("1", "2"));
+	}
+
+	@Test
+	void rejectsUnknownOrUnclosedPlaceholdersAndWrongArity() {
+		assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("{{nope}}", List.of("code")));
+		assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("{{code", List.of("code")));
+
+		CompiledTemplate template = CompiledTemplate.compile("{{code}}", List.of("code"));
+		assertThrows(IllegalArgumentException.class, () -> template.render());
+	}
+}
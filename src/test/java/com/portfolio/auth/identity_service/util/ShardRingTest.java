@@ -0,0 +1,69 @@
+package com.portfolio.auth.identity_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRingTest {
+
+	@Test
+	void sameKeyAlwaysLandsOnTheSameShard() {
+		ShardRing ring = new ShardRing(List.of(0, 1, 2), 160);
+		ShardRing rebuilt = new ShardRing(List.of(2, 0, 1), 160);
+		for (int i = 0; i < 1_000; i++) {
+			String email = "user" + i + "@example.com";
+			assertEquals(ring.shardFor(email), rebuilt.shardFor(email));
+		}
+		assertEquals(ring, rebuilt);
+	}
+
+	@Test
+	void spreadsKeysEvenly() {
+		ShardRing ring = new ShardRing(List.of(0, 1, 2, 3), 160);
+		int[] counts = new int[4];
+		for (int i = 0; i < 40_000; i++) {
+			counts[ring.shardFor("user" + i + "@example.com")]++;
+		}
+		for (int count : counts) {
+			assertTrue(count > 7_500 && count < 12_500, "per-shard counts: " + Arrays.toString(counts));
+		}
+	}
+
+	@Test
+	void addingAShardOnlyMovesKeysOntoIt() {
+		ShardRing before = new ShardRing(List.of(0, 1, 2), 160);
+		ShardRing after = new ShardRing(List.of(0, 1, 2, 3), 160);
+
+		int moved = 0;
+		for (int i = 0; i < 30_000; i++) {
+			String email = "user" + i + "@example.com";
+			int from = before.shardFor(email);
+			int to = after.shardFor(email);
+			if (from != to) {
+				assertEquals(3, to, email + " moved between existing shards");
+				moved++;
+			}
+		}
+		assertTrue(moved > 5_500 && moved < 9_500, "moved: " + moved);
+	}
+
+	@Test
+	void singleShardOwnsEverything() {
+		ShardRing ring = new ShardRing(List.of(5), 8);
+		assertEquals(5, ring.shardFor("a@example.com"));
+		assertEquals(5, ring.shardFor(""));
+		assertArrayEquals(new int[]{5}, ring.shards());
+	}
+
+	@Test
+	void rejectsEmptyRing() {
+		assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(), 160));
+		assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(0), 0));
+	}
+}
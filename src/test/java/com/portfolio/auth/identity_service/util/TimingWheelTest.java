@@ -0,0 +1,73 @@
+package com.portfolio.auth.identity_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+	@Test
+	void handsOutKeysOnceTheirTickHasPassed() {
+		TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(100), 16, 0);
+		wheel.schedule("a", 250);
+		wheel.schedule("b", 500);
+
+		List<String> due = new ArrayList<>();
+		wheel.advance(200, due::add);
+		assertTrue(due.isEmpty());
+
+		wheel.advance(300, due::add);
+		assertEquals(List.of("a"), due);
+
+		wheel.advance(500, due::add);
+		assertEquals(List.of("a", "b"), due);
+	}
+
+	@Test
+	void neverHandsOutEarlyAcrossLaps() {
+		TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(100), 4, 0);
+		long deadline = 1_000;   // 2.5 laps out
+		wheel.schedule("k", deadline);
+
+		List<Long> handedOutAt = new ArrayList<>();
+		for (long now = 100; now <= 1_200; now += 100) {
+			long at = now;
+			wheel.advance(now, key -> {
+				handedOutAt.add(at);
+				if (at < deadline) {
+					wheel.schedule(key, deadline);   // not due yet, the caller re-schedules
+				}
+			});
+		}
+		assertEquals(1_000L, handedOutAt.get(handedOutAt.size() - 1));
+		assertTrue(handedOutAt.stream().allMatch(at -> at <= deadline));
+	}
+
+	@Test
+	void reschedulingOneLapOutDoesNotSpin() {
+		TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(100), 4, 0);
+		wheel.schedule("k", 100);
+
+		List<String> due = new ArrayList<>();
+		wheel.advance(100, key -> {
+			due.add(key);
+			wheel.schedule(key, 500);   // same slot, next lap
+		});
+		assertEquals(1, due.size());
+
+		wheel.advance(500, due::add);
+		assertEquals(2, due.size());
+	}
+
+	@Test
+	void rejectsInvalidSizing() {
+		assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(Duration.ZERO, 8, 0));
+		assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(Duration.ofSeconds(1), 0, 0));
+	}
+}